@@ -40,7 +40,9 @@
  */
 package org.primesoft.asyncworldedit.api;
 
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import java.util.Collection;
 import java.util.function.Function;
 
 /**
@@ -66,6 +68,22 @@ public interface IPhysicsWatch {
      */
     void removeLocation(String worldName, BlockVector3 location);
 
+    /**
+     * Add watched chunks
+     *
+     * @param worldName The world name
+     * @param chunks The chunks
+     */
+    void addChunks(String worldName, Collection<BlockVector2> chunks);
+
+    /**
+     * Remove watched chunks
+     *
+     * @param worldName The world name
+     * @param chunks The chunks
+     */
+    void removeChunks(String worldName, Collection<BlockVector2> chunks);
+
     
     /**
      * Enable the physics watcher
@@ -42,6 +42,7 @@ package org.primesoft.asyncworldedit.api.blockPlacer;
 
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobPriority;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.utils.IAsyncCommand;
 import org.primesoft.asyncworldedit.api.utils.IFuncParamEx;
@@ -104,6 +105,25 @@ public interface IBlockPlacer {
      */
     IJobEntry getJob(IPlayerEntry player, int jobId);
 
+    /**
+     * Get the player job priority
+     *
+     * @param player the player
+     * @param jobId job ID
+     * @return The job priority or null if job not found
+     */
+    JobPriority getJobPriority(IPlayerEntry player, int jobId);
+
+    /**
+     * Set the player job priority
+     *
+     * @param player the player
+     * @param jobId job ID
+     * @param priority the new priority
+     * @return True if the priority was changed
+     */
+    boolean setJobPriority(IPlayerEntry player, int jobId, JobPriority priority);
+
     /**
      * Get next job id for player
      *
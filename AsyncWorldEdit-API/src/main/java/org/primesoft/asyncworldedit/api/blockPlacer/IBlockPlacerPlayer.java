@@ -95,6 +95,13 @@ public interface IBlockPlacerPlayer {
      */
     Queue<IBlockPlacerEntry> getQueue();
 
+    /**
+     * Get the number of entries in the block entries queue
+     *
+     * @return
+     */
+    int getQueueSize();
+
     /**
      * Get block placing speed (blocks per second)
      *
@@ -95,6 +95,14 @@ public interface IPermissionGroup {
      */
     int getRendererTime();
 
+    /**
+     * The group weight used when sharing the block placer time
+     * between the permission groups
+     *
+     * @return
+     */
+    int getRendererWeight();
+
     /**
      * The minimum number of blocks to show the progress bar
      *
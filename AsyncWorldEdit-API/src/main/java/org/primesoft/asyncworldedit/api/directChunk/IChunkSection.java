@@ -46,10 +46,57 @@ package org.primesoft.asyncworldedit.api.directChunk;
  */
 public interface IChunkSection {
     /**
-     * Get the chunk section materials
-     * @return 
+     * The block id consumer used to iterate the section blocks
+     */
+    interface IBlockConsumer {
+        /**
+         * Process the block
+         * @param idx The block index in the section (y * 256 + z * 16 + x)
+         * @param id The block id
+         */
+        void accept(int idx, int id);
+    }
+    
+    /**
+     * Get the chunk section materials. The built-in sections store the blocks
+     * bit packed and return a copy, changes to the returned array are not
+     * written back to the section.
+     * @return The section block ids
+     * @deprecated Use getBlock, setBlock or forEachBlock
      */
+    @Deprecated
     int[] getBlockIds();
+    
+    /**
+     * Get the block id. The default implementation reads the array returned
+     * by getBlockIds.
+     * @param idx The block index in the section (y * 256 + z * 16 + x)
+     * @return 
+     */
+    default int getBlock(int idx) {
+        return getBlockIds()[idx];
+    }
+    
+    /**
+     * Set the block id. The default implementation writes to the array
+     * returned by getBlockIds, sections that return a copy override it.
+     * @param idx The block index in the section (y * 256 + z * 16 + x)
+     * @param id 
+     */
+    default void setBlock(int idx, int id) {
+        getBlockIds()[idx] = id;
+    }
+    
+    /**
+     * Iterate all the section blocks
+     * @param consumer 
+     */
+    default void forEachBlock(IBlockConsumer consumer) {
+        final int[] ids = getBlockIds();
+        for (int idx = 0; idx < ids.length; idx++) {
+            consumer.accept(idx, ids[idx]);
+        }
+    }
 
     /**
      * Get the blocks emmited light
@@ -106,6 +106,24 @@ public interface IDirectChunkAPI {
      */
     int getCombinedId(String type, Map<Property<?>, Object> data);
 
+    /**
+     * Converts block state to chunk section id. The result is cached
+     * so repeated lookups of the same state do not reach the platform.
+     *
+     * @param block
+     * @return
+     */
+    int getCombinedId(BlockStateHolder block);
+
+    /**
+     * Converts chunk section id to the immutable block state. The result is
+     * cached in a table indexed by the combined ID.
+     *
+     * @param combinedId
+     * @return
+     */
+    BlockStateHolder getBlockState(int combinedId);
+
     /**
      * Get material
      * @param type
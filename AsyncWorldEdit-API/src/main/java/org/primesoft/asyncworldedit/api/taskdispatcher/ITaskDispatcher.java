@@ -185,6 +185,15 @@ public interface ITaskDispatcher {
      */    
     <T> T queueFastOperation(IFunc<T> action);
     
+    /**
+     * Perform an action on the dispatcher, the action is performed together
+     * with all other pending actions for the chunk
+     * @param action
+     * @param world
+     * @param chunk
+     */    
+    <T> T queueFastOperation(IFunc<T> action, IWorld world, BlockVector2 chunk);
+    
 
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
@@ -58,6 +58,9 @@ public interface IAsyncWorldEditCore extends IAsyncWorldEdit {
     
     @Override
     public IWorldeditIntegratorInner getWorldEditIntegrator();
+
+    @Override
+    public IInnerBlockPlacer getBlockPlacer();
     
     public ICron getCron();
 
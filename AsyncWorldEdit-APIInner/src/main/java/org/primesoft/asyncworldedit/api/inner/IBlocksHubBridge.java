@@ -35,6 +35,8 @@
  */
 package org.primesoft.asyncworldedit.api.inner;
 
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
 /**
  *
  * @author SBPrime
@@ -43,4 +45,21 @@ public interface IBlocksHubBridge extends IBlocksHubIntegration {
     void addFacroty(IBlocksHubFactory factory);
 
     void initialize(Object blocksHubPlugin);
+
+    /**
+     * Stop the bridge and flush all queued block changes
+     */
+    void stop();
+
+    /**
+     * Remove all cached access decisions
+     */
+    void invalidateAccess();
+
+    /**
+     * Remove all cached access decisions for player
+     *
+     * @param playerEntry
+     */
+    void invalidateAccess(IPlayerEntry playerEntry);
 }
@@ -35,9 +35,11 @@
  */
 package org.primesoft.asyncworldedit.api.inner;
 
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.UUID;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 
@@ -112,6 +114,19 @@ public interface IBlocksHubIntegration {
     boolean canPlace(IPlayerEntry playerEntry, IWorld world, BlockVector3 location, 
             BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc);
 
+    /**
+     * Check if the player can change every block in the chunk, so the
+     * blocks do not need to be checked one by one. Returns false when this
+     * is not known.
+     *
+     * @param playerEntry
+     * @param world
+     * @param chunk
+     * @param dc
+     * @return
+     */
+    boolean canEditChunk(IPlayerEntry playerEntry, IWorld world, BlockVector2 chunk, boolean dc);
+
     /**
      * Log block change using BlocksHub
      *
@@ -124,6 +139,20 @@ public interface IBlocksHubIntegration {
      */
     void logBlock(IPlayerEntry playerEntry, IWorld world, BlockVector3 location, BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc);
 
+    /**
+     * Log block change using BlocksHub, the player is identified by the UUID
+     * and name captured when the change was made (the player might be offline)
+     *
+     * @param playerUuid
+     * @param playerName
+     * @param world
+     * @param location
+     * @param oldBlock
+     * @param newBlock
+     * @param dc
+     */
+    void logBlock(UUID playerUuid, String playerName, IWorld world, BlockVector3 location, BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc);
+
     /**
      * Is this a real thing
      * @return 
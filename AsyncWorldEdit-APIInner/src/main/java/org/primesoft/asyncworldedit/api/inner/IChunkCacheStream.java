@@ -35,6 +35,7 @@
  */
 package org.primesoft.asyncworldedit.api.inner;
 
+import java.io.Closeable;
 import java.io.DataInput;
 import java.io.IOException;
 import org.primesoft.asyncworldedit.api.io.SeekOrigin;
@@ -43,7 +44,7 @@ import org.primesoft.asyncworldedit.api.io.SeekOrigin;
  *
  * @author SBPrime
  */
-public interface IChunkCacheStream extends DataInput {
+public interface IChunkCacheStream extends DataInput, Closeable {
 
     /**
      * Returns the current offset in this file.
@@ -72,5 +73,12 @@ public interface IChunkCacheStream extends DataInput {
      * @return The new file position
      */
     long seek(long pos, SeekOrigin origin) throws IOException;
-    
+
+    /**
+     * Close the stream and release the underlying file
+     *
+     * @throws IOException
+     */
+    @Override
+    void close() throws IOException;
 }
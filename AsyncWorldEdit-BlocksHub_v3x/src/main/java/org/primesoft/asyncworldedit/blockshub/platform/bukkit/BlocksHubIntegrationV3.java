@@ -49,8 +49,10 @@ package org.primesoft.asyncworldedit.blockshub.platform.bukkit;
 
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.UUID;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
@@ -192,13 +194,28 @@ public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
     @Override
     public void logBlock(IPlayerEntry playerEntry, IWorld world, BlockVector3 location,
             BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc) {
-        if (location == null || world == null) {
+        if (playerEntry == null) {
             return;
         }
 
-        if (playerEntry == null 
-                || playerEntry.isDisposed()
-                || playerEntry.getUUID() == null) {
+        logBlock(playerEntry.getUUID(), playerEntry.getName(), world, location, oldBlock, newBlock, dc);
+    }
+
+    /**
+     * Log block change
+     *
+     * @param playerUuid
+     * @param playerName
+     * @param world
+     * @param location
+     * @param oldBlock
+     * @param newBlock
+     * @param dc
+     */
+    @Override
+    public void logBlock(UUID playerUuid, String playerName, IWorld world, BlockVector3 location,
+            BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc) {
+        if (location == null || world == null || playerUuid == null) {
             return;
         }
 
@@ -206,13 +223,13 @@ public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
         IBlockData newData = convert(newBlock);
 
         try {
-            m_blocksApi.logBlock(playerEntry.getUUID(), world.getUUID(),
+            m_blocksApi.logBlock(playerUuid, world.getUUID(),
                     location.getX(), location.getY(), location.getZ(),
                     oldData,
                     newData);
         } catch (Exception ex) {
             log(String.format("Error logging block: %1$s", ex.toString()));
-            log(String.format("Player: %1$s", playerEntry.getName()));
+            log(String.format("Player: %1$s", playerName));
             log(String.format("World: %1$s", world.getName()));
             log(String.format("Location: %1$s", location));
             log(String.format("Old: %1$s", oldBlock));
@@ -280,6 +297,12 @@ public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
         }
     }
     
+    @Override
+    public boolean canEditChunk(IPlayerEntry playerEntry, IWorld world, BlockVector2 chunk, boolean dc) {
+        //BlocksHub does not provide region queries, check each block
+        return false;
+    }
+
     private static IBlockData convert(BlockStateHolder bsh) {
         if (bsh == null) {
             return null;
@@ -69,17 +69,21 @@ import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.registry.BlockRegistry;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
@@ -102,6 +106,10 @@ import org.primesoft.asyncworldedit.worldedit.extent.inventory.FixedBlockBagExte
  */
 public abstract class ClassScanner implements IClassScanner {
     private static final Object ITEM = new Object();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
     
     /**
      * List of all filters
@@ -111,6 +119,11 @@ public abstract class ClassScanner implements IClassScanner {
     private final ConfigurableClassFilter m_configurableFilter = new ConfigurableClassFilter();
     
     private IClassScannerEntry[] m_blackList = new IClassScannerEntry[0];
+
+    /**
+     * The cached class scan plans
+     */
+    private volatile Map<Class<?>, ClassScanPlan> m_plans = new ConcurrentHashMap<>();
     
     /**
      * Is the class scanner initialized
@@ -124,6 +137,7 @@ public abstract class ClassScanner implements IClassScanner {
     @Override
     public IClassScanner initialize() {
         m_blackList = getBlackList();
+        m_plans = new ConcurrentHashMap<>();
         m_isInitialized = true;
         return this;
     }
@@ -147,7 +161,7 @@ public abstract class ClassScanner implements IClassScanner {
         }
 
         Queue<ScannerQueueEntry> toScan = new ArrayDeque<>();
-        HashSet<Object> scanned = new HashSet<>();
+        Set<Object> scanned = Collections.newSetFromMap(new IdentityHashMap<>());
 
         boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
         toScan.add(new ScannerQueueEntry(o, null, null));
@@ -177,7 +191,7 @@ public abstract class ClassScanner implements IClassScanner {
                 sParent = null;
             }
 
-            if (scanned.contains(cObject)) {
+            if (!scanned.add(cObject)) {
                 if (debugOn) {
                     log(String.format("* Skip:\t%1$s", sParent));
                 }
@@ -187,7 +201,7 @@ public abstract class ClassScanner implements IClassScanner {
                     log(String.format("* Scanning:\t%1$s", sParent));
                 }
                 try {
-                    for (ScannerQueueEntry f : unpack(cClass, cObject)) {
+                    for (ScannerQueueEntry f : unpack(getPlan(cClass), cObject)) {
                         Object t = f.getValue();
                         Class<?> ct = f.getValueClass();
                         if (t != null && ct != null) {
@@ -211,11 +225,9 @@ public abstract class ClassScanner implements IClassScanner {
                                 }
                             }
 
-                            if (isPrimitive(ct) || 
-                                isBlackList(ct) ||
-                                isStatic(f.getField()) ||
-                                isBlackList(cClass, f.getField()) ||
-                                Objects.equals(t, entry.getParent()))
+                            if (!f.isFollow() ||
+                                t == entry.getParent() ||
+                                getPlan(ct).isSkipped())
                             {
                                 if (debugOn) {
                                     log(String.format("* - %1$s", classMsg));
@@ -243,7 +255,6 @@ public abstract class ClassScanner implements IClassScanner {
                     log("https://github.com/SBPrime/AsyncWorldEdit/issues");
                     log("-----------------------------------------------------------------------");
                 }
-                scanned.add(cObject);
                 if (debugOn) {
                     log(String.format("* Added:\t%1$s objects.", added));
                 }
@@ -272,57 +283,115 @@ public abstract class ClassScanner implements IClassScanner {
     }
 
     /**
-     * Get all fields from a class
+     * Get the cached class scan plan
      *
      * @param oClass
-     * @param o
      * @return
      */
-    private Iterable<ScannerQueueEntry> unpack(Class<?> oClass, Object o) {
-        HashSet<ScannerQueueEntry> result = new HashSet<>();
+    private ClassScanPlan getPlan(Class<?> oClass) {
+        final Map<Class<?>, ClassScanPlan> plans = m_plans;
+        ClassScanPlan result = plans.get(oClass);
+        if (result == null) {
+            result = createPlan(oClass);
+            plans.putIfAbsent(oClass, result);
+        }
+
+        return result;
+    }
 
+    /**
+     * Create the class scan plan, resolve all the field getters and black
+     * list checks
+     *
+     * @param oClass
+     * @return
+     */
+    private ClassScanPlan createPlan(Class<?> oClass) {
         if (isPrimitive(oClass) || isBlackList(oClass)) {
-            return result;
+            return new ClassScanPlan(true, false, false, new ClassScanPlan.FieldPlan[0]);
         }
 
+        boolean scanArray = false;
         if (oClass.isArray()) {
             Class<?> componenClass = oClass;
             while (componenClass.isArray()) {
                 componenClass = componenClass.getComponentType();
             }
-            if (!isPrimitive(componenClass) && !isBlackList(componenClass)) {
-                for (Object t : (Object[]) o) {
-                    if (t != null) {
-                        result.add(new ScannerQueueEntry(t, o, null));
-                    }
-                }
+            scanArray = !isPrimitive(componenClass) && !isBlackList(componenClass);
+        }
+
+        List<ClassScanPlan.FieldPlan> fields = new ArrayList<>();
+        for (Field f : getAllFields(oClass)) {
+            if (f.getType().isPrimitive()) {
+                continue;
+            }
+
+            final MethodHandle getter;
+            try {
+                getter = getGetter(f);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                continue;
             }
+
+            fields.add(new ClassScanPlan.FieldPlan(f, getter,
+                    !isStatic(f) && !isBlackList(oClass, f)));
         }
 
-        if (Iterable.class.isAssignableFrom(oClass)) {
-            for (Object t : (Iterable<Object>) o) {
+        return new ClassScanPlan(false, scanArray, Iterable.class.isAssignableFrom(oClass),
+                fields.toArray(new ClassScanPlan.FieldPlan[0]));
+    }
+
+    /**
+     * Get the field getter as (Object)Object method handle
+     *
+     * @param f
+     * @return
+     * @throws IllegalAccessException
+     */
+    private static MethodHandle getGetter(Field f) throws IllegalAccessException {
+        f.setAccessible(true);
+
+        MethodHandle result = LOOKUP.unreflectGetter(f);
+        if (isStatic(f)) {
+            result = MethodHandles.dropArguments(result.asType(MethodType.methodType(Object.class)), 0, Object.class);
+        }
+
+        return result.asType(GETTER_TYPE);
+    }
+
+    /**
+     * Get all fields from a class
+     *
+     * @param plan
+     * @param o
+     * @return
+     */
+    private static List<ScannerQueueEntry> unpack(ClassScanPlan plan, Object o) throws Throwable {
+        if (plan.isSkipped()) {
+            return Collections.emptyList();
+        }
+
+        List<ScannerQueueEntry> result = new ArrayList<>();
+        if (plan.isScanArray()) {
+            for (Object t : (Object[]) o) {
                 if (t != null) {
                     result.add(new ScannerQueueEntry(t, o, null));
                 }
             }
         }
 
-        for (Field f : getAllFields(oClass)) {
-            boolean restore = !f.isAccessible();
-            if (restore) {
-                f.setAccessible(true);
-            }
-            try {
-                Object t = f.get(o);
+        if (plan.isScanIterable()) {
+            for (Object t : (Iterable<Object>) o) {
                 if (t != null) {
-                    result.add(new ScannerQueueEntry(t, o, f));
+                    result.add(new ScannerQueueEntry(t, o, null));
                 }
-            } catch (IllegalArgumentException ex) {
-            } catch (IllegalAccessException ex) {
             }
+        }
 
-            if (restore) {
-                f.setAccessible(false);
+        for (ClassScanPlan.FieldPlan f : plan.getFields()) {
+            Object t = (Object) f.Getter.invokeExact(o);
+            if (t != null) {
+                result.add(new ScannerQueueEntry(t, o, f.Field, f.Follow));
             }
         }
         return result;
@@ -423,6 +492,7 @@ public abstract class ClassScanner implements IClassScanner {
         }
         
         m_filters.put(filter, ITEM);
+        m_plans = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -432,9 +502,10 @@ public abstract class ClassScanner implements IClassScanner {
         }
         
         m_filters.remove(filter);
+        m_plans = new ConcurrentHashMap<>();
     }
 
-    private boolean isStatic(Field f) {
+    private static boolean isStatic(Field f) {
         if (f == null) {
             return false;
         }
@@ -445,5 +516,6 @@ public abstract class ClassScanner implements IClassScanner {
     @Override
     public void loadConfig() {
         m_configurableFilter.loadConfig();
+        m_plans = new ConcurrentHashMap<>();
     }    
 }
@@ -47,8 +47,11 @@
  */
 package org.primesoft.asyncworldedit.asyncinjector.validators;
 
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.configuration.DebugLevel;
@@ -132,6 +135,49 @@ public class StackValidator {
         Pattern.compile(".*asyncworldedit.*AsyncOperationProcessor.*")
     };
 
+    /**
+     * The cached verdicts for the stack frame classes
+     */
+    private static final Map<String, FrameClass> s_frameClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Get the cached frame class verdicts
+     *
+     * @param className
+     * @return
+     */
+    private static FrameClass getFrameClass(String className) {
+        FrameClass result = s_frameClasses.get(className);
+        if (result == null) {
+            result = new FrameClass(className);
+            s_frameClasses.putIfAbsent(className, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the first entry that decides on the class and method
+     *
+     * @param entries
+     * @param className
+     * @param methodName
+     * @param log
+     * @return
+     */
+    private static Verdict evaluate(StackValidatorEntry[] entries,
+            String className, String methodName, Consumer<String> log) {
+        for (StackValidatorEntry entry : entries) {
+            Boolean result = entry.process(() -> className, () -> methodName, log);
+
+            if (result != null) {
+                return new Verdict(entry, result);
+            }
+        }
+
+        return Verdict.NO_MATCH;
+    }
+
     /**
      * Check if the stack trace allow asyncing
      *
@@ -147,10 +193,11 @@ public class StackValidator {
                 log("****************************************************************");
             }
 
-            if (!validateStack(methodName)) {
+            final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+            if (!validateStack(methodName, stackTrace)) {
                 return false;
             }
-            if (!validateCount()) {
+            if (!validateCount(stackTrace)) {
                 return false;
             }
 
@@ -208,11 +255,11 @@ public class StackValidator {
      * Validate the stack trace position
      *
      * @param methodName
+     * @param stackTrace
      * @return
      */
-    private static boolean validateStack(InOutParam<String> methodName) {
+    private static boolean validateStack(InOutParam<String> methodName, StackTraceElement[] stackTrace) {
         final boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
         int i = stackTrace.length - 1;
         try {
             for (; i >= 0; i--) {
@@ -221,19 +268,19 @@ public class StackValidator {
                     log(String.format("* %1$s", element.toString()));
                 }
 
-                for (StackValidatorEntry entry : s_data) {
-                    Boolean result = entry.process(
-                            () -> element.getClassName(), 
-                            () -> element.getMethodName(),
-                            debugOn ? s -> log(s) : null);
-                    
-                    if (result != null) {
-                        if (result) {
-                            methodName.setValue(entry.getOperationName(element.getMethodName()));
-                        }
-                        
-                        return result;
+                final Verdict verdict;
+                if (debugOn) {
+                    verdict = evaluate(s_data, element.getClassName(), element.getMethodName(), s -> log(s));
+                } else {
+                    verdict = getFrameClass(element.getClassName()).getVerdict(element.getMethodName());
+                }
+
+                if (verdict.Entry != null) {
+                    if (verdict.Result) {
+                        methodName.setValue(verdict.Entry.getOperationName(element.getMethodName()));
                     }
+
+                    return verdict.Result;
                 }
             }
 
@@ -258,18 +305,19 @@ public class StackValidator {
     /**
      * Validate stack entry count
      *
+     * @param stackTrace
      * @return
      */
-    private static boolean validateCount() {
+    private static boolean validateCount(StackTraceElement[] stackTrace) {
         final boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
-        final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
 
         boolean result = true;
 
-        for (Pattern p : s_countPatterns) {
+        for (int idx = 0; idx < s_countPatterns.length; idx++) {
+            final Pattern p = s_countPatterns[idx];
             int cnt = 0;
             for (StackTraceElement stack : stackTrace) {
-                if (p.matcher(stack.toString()).matches()) {
+                if (getFrameClass(stack.getClassName()).isCounted(idx)) {
                     cnt++;
                 }
             }
@@ -284,4 +332,77 @@ public class StackValidator {
 
         return result;
     }
+
+    /**
+     * The entry that decided on the stack frame
+     */
+    private static final class Verdict {
+
+        private static final Verdict NO_MATCH = new Verdict(null, null);
+
+        /**
+         * The matching entry, null if no entry matched
+         */
+        public final StackValidatorEntry Entry;
+
+        /**
+         * The entry result
+         */
+        public final Boolean Result;
+
+        Verdict(StackValidatorEntry entry, Boolean result) {
+            Entry = entry;
+            Result = result;
+        }
+    }
+
+    /**
+     * The cached verdicts for a stack frame class
+     */
+    private static final class FrameClass {
+
+        /**
+         * The class name
+         */
+        private final String m_className;
+
+        /**
+         * The entries matching the class
+         */
+        private final StackValidatorEntry[] m_entries;
+
+        /**
+         * The count patterns matching the class
+         */
+        private final boolean[] m_counted;
+
+        /**
+         * The verdicts for the class methods
+         */
+        private final Map<String, Verdict> m_methods = new ConcurrentHashMap<>();
+
+        FrameClass(String className) {
+            m_className = className;
+            m_entries = Stream.of(s_data)
+                    .filter(i -> i.getClassPattern().matcher(className).matches())
+                    .toArray(StackValidatorEntry[]::new);
+
+            m_counted = new boolean[s_countPatterns.length];
+            for (int i = 0; i < m_counted.length; i++) {
+                m_counted[i] = s_countPatterns[i].matcher(className).matches();
+            }
+        }
+
+        Verdict getVerdict(String methodName) {
+            if (m_entries.length == 0) {
+                return Verdict.NO_MATCH;
+            }
+
+            return m_methods.computeIfAbsent(methodName, m -> evaluate(m_entries, m_className, m, null));
+        }
+
+        boolean isCounted(int idx) {
+            return m_counted[idx];
+        }
+    }
 }
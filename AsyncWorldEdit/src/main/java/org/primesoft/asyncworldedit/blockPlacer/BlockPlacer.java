@@ -47,10 +47,12 @@
  */
 package org.primesoft.asyncworldedit.blockPlacer;
 
-import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerListener;
 import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
+import org.primesoft.asyncworldedit.blockPlacer.entries.RegenerateEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.permissions.Permission;
@@ -62,6 +64,7 @@ import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
@@ -70,9 +73,12 @@ import org.primesoft.asyncworldedit.api.MessageSystem;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobPriority;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobStatus;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IPackedBlockTarget;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.progressDisplay.IProgressDisplay;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
@@ -83,16 +89,18 @@ import org.primesoft.asyncworldedit.configuration.ConfigMemory;
 import org.primesoft.asyncworldedit.configuration.ConfigRenderer;
 import org.primesoft.asyncworldedit.configuration.DebugLevel;
 import org.primesoft.asyncworldedit.core.AwePlatform;
+import org.primesoft.asyncworldedit.core.TickBudget;
 import org.primesoft.asyncworldedit.events.JobAddedEvent;
 import org.primesoft.asyncworldedit.events.JobRemovedEvent;
 import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.utils.GCUtils;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
  * @author SBPrime
  */
-public class BlockPlacer implements IBlockPlacer {
+public class BlockPlacer implements IInnerBlockPlacer {
     private final static Object INSTANCE = new Object();
 
     /**
@@ -101,7 +109,7 @@ public class BlockPlacer implements IBlockPlacer {
     private final IScheduler m_scheduler;
 
     /**
-     * MTA mutex
+     * Queue maintenance mutex (cancel and purge)
      */
     private final Object m_mutex = new Object();
 
@@ -118,19 +126,25 @@ public class BlockPlacer implements IBlockPlacer {
     /**
      * Logged events queue (per player)
      */
-    private final HashMap<IPlayerEntry, BlockPlacerPlayer> m_blocks;
+    private final ConcurrentHashMap<IPlayerEntry, BlockPlacerPlayer> m_blocks;
+
+    /**
+     * The permission group schedulers, kept between the runs so the group
+     * and player credits are carried over (used only by the block placer run)
+     */
+    private final Map<IPermissionGroup, BlockPlacerGroup> m_groups = new HashMap<>();
         
     private final AtomicInteger m_blocksCount = new AtomicInteger(0);
 
     /**
      * All locked queues
      */
-    private final HashSet<IPlayerEntry> m_lockedQueues;
+    private final Set<IPlayerEntry> m_lockedQueues;
 
     /**
      * Is the global queue locked
      */
-    private boolean m_globalQueueLocked;
+    private volatile boolean m_globalQueueLocked;
 
     /**
      * Global queue max size
@@ -177,6 +191,11 @@ public class BlockPlacer implements IBlockPlacer {
      */
     private final ITaskDispatcher m_taskDispatcher;
 
+    /**
+     * The adaptive main thread budget
+     */
+    private final TickBudget m_tickBudget;
+
     /**
      * List of all job added listeners
      */
@@ -198,6 +217,16 @@ public class BlockPlacer implements IBlockPlacer {
      * The blocks placer interval
      */
     private long m_interval;
+
+    /**
+     * The reusable batch of entries processed in one slice
+     */
+    private IBlockPlacerEntry[] m_batch;
+
+    /**
+     * Sort the batch entries by chunk section before placing them
+     */
+    private boolean m_chunkSorting;
     
     private long addPerSecond = 0;
     private long addPerSecondAvg = 0;
@@ -228,6 +257,7 @@ public class BlockPlacer implements IBlockPlacer {
      *
      * @return
      */
+    @Override
     public IPhysicsWatch getPhysicsWatcher() {
         return m_physicsWatcher;
     }
@@ -236,13 +266,15 @@ public class BlockPlacer implements IBlockPlacer {
      * Initialize new instance of the block placer
      *
      * @param aweCore parent
+     * @param tickBudget the main thread budget
      */
-    public BlockPlacer(IAsyncWorldEditCore aweCore) {
+    public BlockPlacer(IAsyncWorldEditCore aweCore, TickBudget tickBudget) {
+        m_tickBudget = tickBudget;
         m_jobAddedListeners = new ConcurrentHashMap<>();
         m_lastRunTime = System.currentTimeMillis();
         m_runNumber = 0;
-        m_blocks = new HashMap<>();
-        m_lockedQueues = new HashSet<>();
+        m_blocks = new ConcurrentHashMap<>();
+        m_lockedQueues = ConcurrentHashMap.newKeySet();
         m_scheduler = aweCore.getPlatform().getScheduler();
         m_progressDisplay = aweCore.getProgressDisplayManager();        
 
@@ -264,6 +296,8 @@ public class BlockPlacer implements IBlockPlacer {
         m_talkInterval = rConfig.getQueueTalkInterval();
         m_queueMaxSizeHard = rConfig.getQueueMaxSizeHard();
         m_queueMaxSizeSoft = rConfig.getQueueMaxSizeSoft();
+        m_batch = new IBlockPlacerEntry[Math.max(1, rConfig.getBatchSize())];
+        m_chunkSorting = rConfig.isChunkSorting();
         
         ConfigMemory mConfig = ConfigProvider.memory();
         
@@ -326,15 +360,11 @@ public class BlockPlacer implements IBlockPlacer {
         boolean talk = false;
         final List<IJobEntry> jobsToCancel = new ArrayList<>();
         //Number of blocks placed for player        
-        final Map<IPermissionGroup, Set<IPlayerEntry>> groups;
-
-        synchronized (m_mutex) {
-            groups = m_blocks.keySet().stream()
-                    .collect(Collectors.groupingBy(
-                            i -> i.getPermissionGroup(), 
-                            Collectors.toSet())
-                    );
-        }
+        final Map<IPermissionGroup, Set<IPlayerEntry>> groups = m_blocks.keySet().stream()
+                .collect(Collectors.groupingBy(
+                        i -> i.getPermissionGroup(), 
+                        Collectors.toSet())
+                );
         
         m_runNumber++;
         if (m_runNumber > m_talkInterval) {
@@ -352,16 +382,27 @@ public class BlockPlacer implements IBlockPlacer {
         final List<BlockPlacerGroup> processedGroups;        
         processedGroups = new ArrayList<>(knownGroups.length);
         
+        m_groups.keySet().retainAll(groups.keySet());
         for (Map.Entry<IPermissionGroup, HashSet<IPlayerEntry>> entry : knownGroups) {
             IPermissionGroup permissionGroup = entry.getKey();
-            IPlayerEntry[] keys = entry.getValue().toArray(new IPlayerEntry[0]);
+            IPlayerEntry[] keys = sortByQueueSize(entry.getValue().toArray(new IPlayerEntry[0]));
 
             if (keys.length > 0) {
-                processedGroups.add(new BlockPlacerGroup(permissionGroup, keys));
+                BlockPlacerGroup group = m_groups.get(permissionGroup);
+                if (group == null) {
+                    group = new BlockPlacerGroup(permissionGroup, keys, this::getPriorityWeight);
+                    m_groups.put(permissionGroup, group);
+                } else {
+                    group.update(keys, this::getPriorityWeight);
+                }
+
+                processedGroups.add(group);
             }
         }
         
+        final long processStart = System.nanoTime();
         boolean blockPlaced = !groups.isEmpty() && processQueue(processedGroups, blocksPlaced, jobsToCancel);
+        m_tickBudget.addAweTime(System.nanoTime() - processStart);
 
         if (m_globalQueueLocked) {
             boolean unlock = GCUtils.getTotalAvailableMemory() >= m_minMemorySoft;
@@ -382,14 +423,12 @@ public class BlockPlacer implements IBlockPlacer {
             }
         }
 
-        synchronized (m_mutex) {
-            for (Map.Entry<IPlayerEntry, BlockPlacerPlayer> queueEntry : m_blocks.entrySet()) {
-                IPlayerEntry playerEntry = queueEntry.getKey();
-                BlockPlacerPlayer entry = queueEntry.getValue();
-                Integer cnt = blocksPlaced.get(playerEntry);
+        for (Map.Entry<IPlayerEntry, BlockPlacerPlayer> queueEntry : m_blocks.entrySet()) {
+            IPlayerEntry playerEntry = queueEntry.getKey();
+            BlockPlacerPlayer entry = queueEntry.getValue();
+            Integer cnt = blocksPlaced.get(playerEntry);
 
-                showProgress(playerEntry, entry, cnt != null ? cnt : 0, timeDelte, talk);
-            }
+            showProgress(playerEntry, entry, cnt != null ? cnt : 0, timeDelte, talk);
         }
 
         for (IJobEntry job : jobsToCancel) {
@@ -401,10 +440,7 @@ public class BlockPlacer implements IBlockPlacer {
     }
 
     private void runOnShutdown() {
-        IPlayerEntry[] entries;
-        synchronized (m_mutex) {
-            entries = m_blocks.keySet().toArray(new IPlayerEntry[0]);
-        }
+        IPlayerEntry[] entries = m_blocks.keySet().toArray(new IPlayerEntry[0]);
         
         for (IPlayerEntry pe : entries) {
             Object mutex = pe.getWaitMutex();
@@ -422,6 +458,8 @@ public class BlockPlacer implements IBlockPlacer {
      */
     private boolean processQueue(final List<BlockPlacerGroup> groups,
             final HashMap<IPlayerEntry, Integer> blocksPlaced, final List<IJobEntry> jobsToCancel) {        
+        final IBlockPlacerEntry[] batch = m_batch;
+        final boolean chunkSorting = m_chunkSorting;
         long startTime = System.currentTimeMillis();
         int blocks = 0;
         
@@ -429,39 +467,56 @@ public class BlockPlacer implements IBlockPlacer {
 
         int pos = 0;
         while (! groups.isEmpty()) {
+            if (pos >= groups.size()) {
+                pos = 0;
+            }
+            
             BlockPlacerGroup group = groups.get(pos);
-            int maxTime = group.getRendererTime();
-            int maxBlocksCount = group.getRendererBlocks();
+            int maxTime = m_tickBudget.scale(group.getRendererTime());
+            int maxBlocksCount = m_tickBudget.scale(group.getRendererBlocks());
+            int maxBatch = Math.min(batch.length, group.getCredit(batch.length));
+            if (maxBlocksCount != -1) {
+                maxBatch = Math.max(1, Math.min(maxBatch, maxBlocksCount - blocks + 1));
+            }
             
-            IBlockPlacerEntry entry;
-            synchronized (m_mutex) {
-                entry = fetchEntry(group, blocksPlaced, jobsToCancel);
+            int cnt = fetchEntries(group, blocksPlaced, jobsToCancel, batch, maxBatch);
+
+            if (cnt == 0) {
+                groups.remove(pos);
+                continue;
+            }
+            
+            if (chunkSorting) {
+                ChunkSorter.sort(batch, cnt);
             }
 
-            if (entry == null) {
-                groups.remove(group);
-            } else {
-                entry.process(this);
-                blocks++;
-                
-                
-                boolean isDemanding = entry.isDemanding();
-                demanding |= isDemanding;
-                
-                long now = System.currentTimeMillis();
-                if (isDemanding) {
-                    groups.clear();
-                } 
-                else if ((maxTime != -1 && (now - startTime) >= maxTime) ||
-                        (maxBlocksCount != -1 && blocks > maxBlocksCount))
-                {
-                    groups.remove(group);
+            boolean isDemanding = false;
+            for (int i = 0; i < cnt; i++) {
+                IBlockPlacerEntry entry = batch[i];
+                batch[i] = null;
+
+                try {
+                    entry.process(this);
+                } catch (Exception ex) {
+                    ExceptionHelper.printException(ex, "Error while processing block placer entry.");
+                    releasePhysicsWatch(entry);
                 }
+                isDemanding |= entry.isDemanding();
             }
-            
-            pos = pos + 1;
-            if (pos >= groups.size()) {
-                pos = 0;
+            blocks += cnt;
+            demanding |= isDemanding;
+
+            long now = System.currentTimeMillis();
+            if (isDemanding) {
+                groups.clear();
+            } 
+            else if ((maxTime != -1 && (now - startTime) >= maxTime) ||
+                    (maxBlocksCount != -1 && blocks > maxBlocksCount))
+            {
+                groups.remove(pos);
+            }
+            else if (!group.useCredit(cnt)) {
+                pos++;
             }
         }
 
@@ -474,73 +529,73 @@ public class BlockPlacer implements IBlockPlacer {
     }
 
     /**
-     * Fetch next entry that is going to be processed in this run
+     * Fetch next entries that are going to be processed in this run. All the
+     * entries are fetched from a single player queue.
      *
-     * @param playerNames list of all players
-     * @param seqNumber sequence number in player names (everyone is treated
-     * equally)
+     * @param permissionGroup the permission group to fetch the entries for
      * @param blocksPlaced number of blocks placed for player
      * @param jobsToCancel jobs to cancel
-     * @return fatched block
+     * @param batch the output array
+     * @param maxEntries maximum number of entries to fetch
+     * @return number of fetched entries
      */
-    private IBlockPlacerEntry fetchEntry(final BlockPlacerGroup permissionGroup,
+    private int fetchEntries(final BlockPlacerGroup permissionGroup,
             final HashMap<IPlayerEntry, Integer> blocksPlaced,
-            final List<IJobEntry> jobsToCancel) {
+            final List<IJobEntry> jobsToCancel,
+            final IBlockPlacerEntry[] batch, final int maxEntries) {
         if (permissionGroup == null) {
-            return null;
+            return 0;
         }
         
         IPlayerEntry[] playerEntries = permissionGroup.getPlayers();        
         if (playerEntries == null || playerEntries.length == 0) {
-            return null;
+            return 0;
         }
 
         int keyPos = permissionGroup.getSeqNumber() % playerEntries.length;
-        IBlockPlacerEntry result = null;
+        int resultPos = -1;
+        boolean hasCredit = false;
+        int result = 0;
         IPlayerEntry resultPlayer = null;
 
-        for (int retry = playerEntries.length; result == null && retry > 0; retry--) {
+        for (int retry = playerEntries.length; result == 0 && retry > 0; retry--) {
             final IPlayerEntry player = playerEntries[keyPos];
             final BlockPlacerPlayer playerEntry = m_blocks.get(player);
             if (playerEntry != null) {
-                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                synchronized (queue) {
-                    if (!queue.isEmpty()) {
-                        IBlockPlacerEntry entry = queue.poll();
-                        m_blocksCount.decrementAndGet();
-                        
-                        if (entry != null) {
-                            result = entry;
-                            resultPlayer = player;
-
-                            if (blocksPlaced.containsKey(player)) {
-                                blocksPlaced.put(player, blocksPlaced.get(player) + 1);
-                            } else {
-                                blocksPlaced.put(player, 1);
-                            }
-                        }
-                    } else {
-                        for (IJobEntry job : playerEntry.getJobs()) {
-                            JobStatus jStatus = job.getStatus();
-                            if (jStatus == JobStatus.Done
-                                    || jStatus == JobStatus.Waiting
-                                    || jStatus == JobStatus.Canceled) {
-                                jobsToCancel.add(job);
-                            }
+                final int credit = permissionGroup.getPlayerCredit(player, batch.length);
+                final int blocksLeft = permissionGroup.getBlocksLeft(player);
+                final int max = Math.max(1, Math.min(Math.min(maxEntries, blocksLeft), credit));
+                IBlockPlacerEntry entry;
+                while (result < max && (entry = pollEntry(playerEntry)) != null) {
+                    batch[result++] = entry;
+                }
+                
+                if (result > 0) {
+                    resultPlayer = player;
+                    resultPos = keyPos;
+                    hasCredit = result < credit && result < blocksLeft;
+
+                    blocksPlaced.merge(player, result, Integer::sum);
+                } else {
+                    for (IJobEntry job : playerEntry.getJobs()) {
+                        JobStatus jStatus = job.getStatus();
+                        if (jStatus == JobStatus.Done
+                                || jStatus == JobStatus.Waiting
+                                || jStatus == JobStatus.Canceled) {
+                            jobsToCancel.add(job);
                         }
+                    }
 
-                        for (IJobEntry job : jobsToCancel) {
-                            playerEntry.removeJob(job);
-                        }
+                    for (IJobEntry job : jobsToCancel) {
+                        playerEntry.removeJob(job);
                     }
                 }
 
-                final int size = queue.size();
+                final int size = playerEntry.getQueueSize();
                 if (size < permissionGroup.getQueueSoftLimit()) {
                     unlockQueue(player, true);
                 }
-                if (size == 0 && !playerEntry.hasJobs()) {
-                    m_blocks.remove(playerEntries[keyPos]);
+                if (size == 0 && !playerEntry.hasJobs() && removeIfEmpty(player, playerEntry)) {
                     if (player.getMessaging(MessageSystem.BAR)) {
                         hideProgressBar(player, playerEntry);
                     }
@@ -551,20 +606,136 @@ public class BlockPlacer implements IBlockPlacer {
             keyPos = (keyPos + 1) % playerEntries.length;
         }
 
-        permissionGroup.updateProgress(keyPos, resultPlayer);
+        //Keep serving the player until the turn credit is used up
+        permissionGroup.updateProgress(hasCredit ? resultPos : keyPos, resultPlayer, result);
+        return result;
+    }
+
+    /**
+     * Sort the players by the queue size (smallest first) so the small
+     * operations are finished with low latency
+     *
+     * @param players
+     * @return
+     */
+    private IPlayerEntry[] sortByQueueSize(IPlayerEntry[] players) {
+        if (players.length < 2) {
+            return players;
+        }
+
+        //The queue sizes change while sorting so use a snapshot
+        final long[] keys = new long[players.length];
+        for (int i = 0; i < players.length; i++) {
+            BlockPlacerPlayer playerEntry = m_blocks.get(players[i]);
+            long size = playerEntry == null ? 0 : playerEntry.getQueueSize();
+            keys[i] = (size << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        final IPlayerEntry[] result = new IPlayerEntry[players.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = players[(int) keys[i]];
+        }
+        
         return result;
     }
 
+    /**
+     * Get the player scheduler weight
+     *
+     * @param player
+     * @return
+     */
+    private int getPriorityWeight(IPlayerEntry player) {
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
+        return playerEntry == null ? JobPriority.Normal.getWeight() : playerEntry.getPriorityWeight();
+    }
+
+    /**
+     * Get the next entry from the player queue skipping entries of jobs that
+     * are beeing canceled
+     *
+     * @param playerEntry
+     * @return
+     */
+    private IBlockPlacerEntry pollEntry(BlockPlacerPlayer playerEntry) {
+        IBlockPlacerEntry entry;
+        while ((entry = playerEntry.poll()) != null) {
+            m_blocksCount.decrementAndGet();
+
+            if (!playerEntry.isCanceled(entry.getJobId())) {
+                return entry;
+            }
+
+            onEntryRemoved(playerEntry, entry);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the player entry if it has no queued entries and no jobs. The
+     * check is performed atomicly with the producers adding new entries.
+     *
+     * @param player
+     * @param playerEntry
+     * @return True if the entry was removed
+     */
+    private boolean removeIfEmpty(IPlayerEntry player, BlockPlacerPlayer playerEntry) {
+        final boolean[] removed = new boolean[]{false};
+        m_blocks.computeIfPresent(player, (pe, entry) -> {
+            if (entry != playerEntry || entry.getQueueSize() > 0 || entry.hasJobs()) {
+                return entry;
+            }
+
+            removed[0] = true;
+            return null;
+        });
+
+        return removed[0];
+    }
+
+    /**
+     * Cleanup the entry removed from the queue without processing it
+     *
+     * @param playerEntry
+     * @param entry
+     */
+    private void onEntryRemoved(BlockPlacerPlayer playerEntry, IBlockPlacerEntry entry) {
+        if (entry instanceof JobEntry) {
+            JobEntry jobEntry = (JobEntry) entry;
+            playerEntry.removeJob(jobEntry);
+            onJobRemoved(jobEntry);
+        } else {
+            releasePhysicsWatch(entry);
+        }
+    }
+
+    /**
+     * Release the physics watch locations held by the entry
+     *
+     * @param entry
+     */
+    private void releasePhysicsWatch(IBlockPlacerEntry entry) {
+        if (entry instanceof IBlockPlacerLocationEntry) {
+            IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+            String worldName = bpEntry.getWorldName();
+            if (worldName != null) {
+                m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
+            }
+        } else if (entry instanceof RegenerateEntry) {
+            RegenerateEntry rEntry = (RegenerateEntry) entry;
+            m_physicsWatcher.removeChunks(rEntry.getWorldName(), rEntry.getChunks());
+        }
+    }
+
     /**
      * stop block logger
      */
     public void stop() {
         m_task.stop();
 
-        BlockPlacerPlayer[] entries;
-        synchronized (m_mutex) {
-            entries = m_blocks.values().toArray(new BlockPlacerPlayer[0]);
-        }
+        BlockPlacerPlayer[] entries = m_blocks.values().toArray(new BlockPlacerPlayer[0]);
 
         for (BlockPlacerPlayer pe : entries) {
             for (IJobEntry je : pe.getJobs()) {
@@ -587,12 +758,8 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public int getJobId(IPlayerEntry player) {
-        final BlockPlacerPlayer playerEntry;
-        synchronized (m_mutex) {
-            playerEntry = m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe));
-        }
-
-        return playerEntry.getNextJobId();
+        return m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe))
+                .getNextJobId();
     }
 
     /**
@@ -604,13 +771,44 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IJobEntry getJob(IPlayerEntry player, int jobId) {
-        synchronized (m_mutex) {
-            BlockPlacerPlayer playerEntry = m_blocks.get(player);
-            if (playerEntry == null) {
-                return null;
-            }
-            return playerEntry.getJob(jobId);
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
+        if (playerEntry == null) {
+            return null;
         }
+        return playerEntry.getJob(jobId);
+    }
+
+    /**
+     * Get the player job priority
+     *
+     * @param player the player
+     * @param jobId job ID
+     * @return The job priority or null if job not found
+     */
+    @Override
+    public JobPriority getJobPriority(IPlayerEntry player, int jobId) {
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
+        if (playerEntry == null) {
+            return null;
+        }
+        return playerEntry.getJobPriority(jobId);
+    }
+
+    /**
+     * Set the player job priority
+     *
+     * @param player the player
+     * @param jobId job ID
+     * @param priority the new priority
+     * @return True if the priority was changed
+     */
+    @Override
+    public boolean setJobPriority(IPlayerEntry player, int jobId, JobPriority priority) {
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
+        if (playerEntry == null) {
+            return false;
+        }
+        return playerEntry.setJobPriority(jobId, priority);
     }
 
     /**
@@ -622,12 +820,16 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public boolean addJob(IPlayerEntry player, IJobEntry job) {
-        final boolean result;
+        final boolean[] added = new boolean[]{false};
+        m_blocks.compute(player, (pe, playerEntry) -> {
+            if (playerEntry == null) {
+                playerEntry = new BlockPlacerPlayer(pe);
+            }
 
-        synchronized (m_mutex) {
-            result = m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe))
-                    .addJob(job, false);
-        }
+            added[0] = playerEntry.addJob(job, false);
+            return playerEntry;
+        });
+        final boolean result = added[0];
 
         if (result) {
             m_jobAddedListeners.keySet().forEach(listener -> listener.jobAdded(job));
@@ -664,6 +866,63 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public boolean addTasks(final IPlayerEntry player, final IBlockPlacerEntry entry) {
+        final boolean isJob = entry instanceof JobEntry;
+
+        return addTasks(player, isJob, playerEntry -> {
+            if (entry instanceof IBlockPlacerLocationEntry) {
+                IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+                String worldName = bpEntry.getWorldName();
+                if (worldName != null) {
+                    m_physicsWatcher.addLocation(worldName, bpEntry.getLocation());
+                }
+            } else if (entry instanceof RegenerateEntry) {
+                RegenerateEntry rEntry = (RegenerateEntry) entry;
+                m_physicsWatcher.addChunks(rEntry.getWorldName(), rEntry.getChunks());
+            }
+            if (isJob) {
+                playerEntry.addJob((JobEntry) entry, true);
+            }
+
+            playerEntry.offer(entry);
+        });
+    }
+
+    /**
+     * Add plain block set to perform in async mode. The block is stored in
+     * the packed player queue instead of a block placer entry.
+     *
+     * @param player
+     * @param target the block set target
+     * @param worldName
+     * @param jobId
+     * @param location
+     * @param block
+     * @param options the target set block options
+     * @return
+     */
+    @Override
+    public boolean addBlock(final IPlayerEntry player, final IPackedBlockTarget target,
+            final String worldName, final int jobId, final BlockVector3 location,
+            final BlockStateHolder block, final Object options) {
+        return addTasks(player, false, playerEntry -> {
+            if (worldName != null) {
+                m_physicsWatcher.addLocation(worldName, location);
+            }
+
+            playerEntry.offerBlock(target, worldName, jobId, location, block, options);
+        });
+    }
+
+    /**
+     * Add task to perform in async mode
+     *
+     * @param player
+     * @param isJob is the task a job entry
+     * @param offer adds the task to the player queue
+     * @return
+     */
+    private boolean addTasks(final IPlayerEntry player, final boolean isJob,
+            final Consumer<BlockPlacerPlayer> offer) {
         if (player == null) {
             return false;
         }
@@ -697,83 +956,55 @@ public class BlockPlacer implements IBlockPlacer {
                 }
             }
 
-            synchronized (m_mutex) {
-                final BlockPlacerPlayer playerEntry = 
-                        m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe));
+            final BlockPlacerPlayer playerEntry = 
+                    m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe));
 
-                if (m_lockedQueues.contains(player) && !(entry instanceof JobEntry)) {
-                    waitOn = player.getWaitMutex();
-                    retry = true;
-                    continue;
-                }
-
-                final Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                final boolean bypassGlobal = (player.isAllowed(Permission.QUEUE_BYPASS) && !ConfigProvider.permission().isQueueBypassDisabled())
-                        || entry instanceof JobEntry;
-                final boolean bypass = player.isAllowed(Permission.QUEUE_BYPASS) || entry instanceof JobEntry;
-                final IPermissionGroup group = player.getPermissionGroup();
-                
-                int globalSize = m_blocksCount.get();
-                long memAvailable = GCUtils.getTotalAvailableMemory();
+            if (m_lockedQueues.contains(player) && !isJob) {
+                waitOn = player.getWaitMutex();
+                retry = true;
+                continue;
+            }
 
-                boolean queueFull = m_queueMaxSizeHard > 0 && globalSize > m_queueMaxSizeHard;
-                boolean memLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
+            final boolean bypassGlobal = (player.isAllowed(Permission.QUEUE_BYPASS) && !ConfigProvider.permission().isQueueBypassDisabled())
+                    || isJob;
+            final boolean bypass = player.isAllowed(Permission.QUEUE_BYPASS) || isJob;
+            final IPermissionGroup group = player.getPermissionGroup();
 
-                if ((queueFull || memLow) && !bypassGlobal) {
-                    if (!playerEntry.isInformed()) {
-                        playerEntry.setInformed(true);
+            int globalSize = m_blocksCount.get();
+            long memAvailable = GCUtils.getTotalAvailableMemory();
 
-                        if (queueFull) {
-                            player.say(MessageType.BLOCK_PLACER_GLOBAL_QUEUE_FULL.format());
-                        } else if (memLow) {
-                            player.say(MessageType.BLOCK_PLACER_MEMORY_LOW.format());
-                        }
-                    }
+            boolean queueFull = m_queueMaxSizeHard > 0 && globalSize > m_queueMaxSizeHard;
+            boolean memLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
 
-                    waitOn = m_globalWaitMutex;
-                    m_globalQueueLocked = true;
-                    retry = true;
+            if ((queueFull || memLow) && !bypassGlobal) {
+                if (!playerEntry.isInformed()) {
+                    playerEntry.setInformed(true);
 
-                    continue;
+                    if (queueFull) {
+                        player.say(MessageType.BLOCK_PLACER_GLOBAL_QUEUE_FULL.format());
+                    } else if (memLow) {
+                        player.say(MessageType.BLOCK_PLACER_MEMORY_LOW.format());
+                    }
                 }
 
-                if (playerEntry.isInformed()) {
-                    playerEntry.setInformed(false);
-                }
+                waitOn = m_globalWaitMutex;
+                m_globalQueueLocked = true;
+                retry = true;
 
-                boolean wait;
-                synchronized (queue) {
-                    if (queue.size() >= group.getQueueHardLimit() && !bypass) {
-                        wait = true;
-                    } else {
-                        queue.add(entry);
-                        m_blocksCount.incrementAndGet();
-                        
-                        wait = false;
-                    }
-                }
+                continue;
+            }
 
-                if (wait) {
-                    if (!m_lockedQueues.contains(player)) {
-                        m_lockedQueues.add(player);
-                        player.say(MessageType.BLOCK_PLACER_QUEUE_FULL.format());
-                    }
+            if (playerEntry.isInformed()) {
+                playerEntry.setInformed(false);
+            }
 
-                    waitOn = player.getWaitMutex();
-                    retry = true;
-                    continue;
-                }
-                
-                if (entry instanceof IBlockPlacerLocationEntry) {
-                    IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                    String worldName = bpEntry.getWorldName();
-                    if (worldName != null) {
-                        m_physicsWatcher.addLocation(worldName, bpEntry.getLocation());
-                    }
-                }
-                if (entry instanceof JobEntry) {
-                    playerEntry.addJob((JobEntry) entry, true);
+            if (!enqueue(player, offer, bypass ? -1 : group.getQueueHardLimit())) {
+                if (m_lockedQueues.add(player)) {
+                    player.say(MessageType.BLOCK_PLACER_QUEUE_FULL.format());
                 }
+
+                waitOn = player.getWaitMutex();
+                retry = true;
             }
         } while (retry);
 
@@ -781,6 +1012,39 @@ public class BlockPlacer implements IBlockPlacer {
         return true;
     }
 
+    /**
+     * Add the entry to the player queue. The player entry lookup and the
+     * queue update are atomic so the entry is never added to a player entry
+     * that was already removed by the block placer.
+     *
+     * @param player
+     * @param offer adds the entry to the player queue
+     * @param hardLimit the queue hard limit, -1 to ignore the limit
+     * @return True if the entry was added
+     */
+    private boolean enqueue(final IPlayerEntry player, final Consumer<BlockPlacerPlayer> offer,
+            final int hardLimit) {
+        final boolean[] added = new boolean[]{false};
+
+        m_blocks.compute(player, (pe, playerEntry) -> {
+            if (playerEntry == null) {
+                playerEntry = new BlockPlacerPlayer(pe);
+            }
+
+            if (hardLimit >= 0 && playerEntry.getQueueSize() >= hardLimit) {
+                return playerEntry;
+            }
+
+            offer.accept(playerEntry);
+            m_blocksCount.incrementAndGet();
+            added[0] = true;
+
+            return playerEntry;
+        });
+
+        return added[0];
+    }
+
     /**
      * Wait for job to finish
      *
@@ -832,9 +1096,8 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public int cancelJob(IPlayerEntry player, int jobId) {
-        int newSize, result;
+        final int newSize, result;
         final BlockPlacerPlayer playerEntry;
-        Queue<IBlockPlacerEntry> queue = null;
         IJobEntry[] jobs = null;
         synchronized (m_mutex) {
             playerEntry = m_blocks.get(player);
@@ -856,8 +1119,6 @@ public class BlockPlacer implements IBlockPlacer {
                 jobs = new IJobEntry[]{job};
             }        
             
-            queue = playerEntry.getQueue();
-
             for (IJobEntry job : jobs)
             {
                 playerEntry.removeJob(job);
@@ -873,41 +1134,19 @@ public class BlockPlacer implements IBlockPlacer {
         }
 
         synchronized (m_mutex) {
-            Queue<IBlockPlacerEntry> filtered = new LinkedList<>();
-            if (queue != null) {
-                synchronized (queue) {
-                    //TODO: Optimize this for undo
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (jobIds.contains(entry.getJobId())) {
-                            if (entry instanceof IBlockPlacerLocationEntry) {
-                                IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                                String worldName = bpEntry.getWorldName();
-                                if (worldName != null) {
-                                    m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
-                                }
-                            } else if (entry instanceof JobEntry) {
-                                JobEntry jobEntry = (JobEntry) entry;
-                                playerEntry.removeJob(jobEntry);
-                                onJobRemoved(jobEntry);
-                            }
-                        } else {
-                            filtered.add(entry);
-                        }
-                    }
+            //The entries are dropped by the block placer when polled
+            m_blocks.computeIfPresent(player, (pe, entry) -> {
+                if (entry == playerEntry) {
+                    entry.cancelJobs(jobIds);
                 }
+                return entry;
+            });
+
+            result = playerEntry.countEntries(jobIds);
 
-                newSize = filtered.size();
-                result = queue.size() - filtered.size();
-            } else {
-                newSize = 0;
-                result = 0;
-            }
             IPermissionGroup group = player.getPermissionGroup();
-            m_blocksCount.addAndGet(-result);
-            if (newSize > 0) {
-                playerEntry.updateQueue(filtered);
-            } else if (newSize == 0) {
-                m_blocks.remove(player);
+            newSize = Math.max(0, playerEntry.getQueueSize() - result);
+            if (newSize == 0 && removeIfEmpty(player, playerEntry)) {
                 if (player.getMessaging(MessageSystem.BAR)) {
                     hideProgressBar(player, playerEntry);
                 }
@@ -931,30 +1170,19 @@ public class BlockPlacer implements IBlockPlacer {
         synchronized (m_mutex) {
             final BlockPlacerPlayer playerEntry = m_blocks.get(player);
             if (playerEntry != null) {
-                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                synchronized (queue) {
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (entry instanceof IBlockPlacerLocationEntry) {
-                            IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                            String name = bpEntry.getWorldName();
-                            if (name != null) {
-                                m_physicsWatcher.removeLocation(name, bpEntry.getLocation());
-                            }
-                        } else if (entry instanceof JobEntry) {
-                            JobEntry jobEntry = (JobEntry) entry;
-                            playerEntry.removeJob(jobEntry);
-                            onJobRemoved(jobEntry);
-                        }
-                    }
+                final List<IBlockPlacerEntry> removed = new ArrayList<>();
+                if (m_blocks.remove(player, playerEntry)) {
+                    //No new entries are added to the removed player entry
+                    playerEntry.removeAllEntries(removed::add);
                 }
+                removed.forEach(entry -> onEntryRemoved(playerEntry, entry));
 
                 IJobEntry[] jobs = playerEntry.getJobs();
                 for (IJobEntry job : jobs) {
                     playerEntry.removeJob(job.getJobId());
                     onJobRemoved(job);
                 }
-                result = queue.size();
-                m_blocks.remove(player);                
+                result = removed.size();
                 if (player.getMessaging(MessageSystem.BAR)) {
                     hideProgressBar(player, playerEntry);
                 }
@@ -991,9 +1219,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IPlayerEntry[] getAllPlayers() {
-        synchronized (m_mutex) {
-            return m_blocks.keySet().toArray(new IPlayerEntry[0]);
-        }
+        return m_blocks.keySet().toArray(new IPlayerEntry[0]);
     }
 
     /**
@@ -1004,9 +1230,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public IBlockPlacerPlayer getPlayerEvents(IPlayerEntry player) {
-        synchronized (m_mutex) {
-            return m_blocks.get(player);
-        }
+        return m_blocks.get(player);
     }
 
     /**
@@ -1016,10 +1240,7 @@ public class BlockPlacer implements IBlockPlacer {
      * @return
      */
     public String getPlayerMessage(IPlayerEntry player) {
-        final BlockPlacerPlayer entry;
-        synchronized (m_mutex) {
-            entry = m_blocks.get(player);
-        }
+        final BlockPlacerPlayer entry = m_blocks.get(player);
 
         boolean bypass = player.isAllowed(Permission.QUEUE_BYPASS);
         IPermissionGroup group = player.getPermissionGroup();
@@ -1061,10 +1282,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public void removeJob(final IPlayerEntry player, IJobEntry jobEntry) {
-        BlockPlacerPlayer playerEntry;
-        synchronized (m_mutex) {
-            playerEntry = m_blocks.get(player);
-        }
+        BlockPlacerPlayer playerEntry = m_blocks.get(player);
 
         if (playerEntry != null) {
             playerEntry.removeJob(jobEntry);
@@ -1171,11 +1389,10 @@ public class BlockPlacer implements IBlockPlacer {
      * @param player
      */
     private void unlockQueue(final IPlayerEntry player, boolean talk) {
-        if (m_lockedQueues.contains(player)) {
+        if (m_lockedQueues.remove(player)) {
             if (talk) {
                 player.say(MessageType.BLOCK_PLACER_QUEUE_UNLOCKED.format());
             }
-            m_lockedQueues.remove(player);
 
             Object mutex = player.getWaitMutex();
             synchronized (mutex) {
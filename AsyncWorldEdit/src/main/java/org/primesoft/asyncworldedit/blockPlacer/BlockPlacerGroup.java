@@ -48,11 +48,17 @@
 package org.primesoft.asyncworldedit.blockPlacer;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 
 /**
+ * The block placer permission group. The group shares the placing time 
+ * using deficit round robin: each turn the group (and each player in the group)
+ * receives credit proportional to its weight. The group is kept between the
+ * block placer runs so the unused (or overused) credit is carried over.
  *
  * @author SBPrime
  */
@@ -60,19 +66,57 @@ public class BlockPlacerGroup {
     private static final int INFINITE = -10;
 
     private final Map<IPlayerEntry, Integer> m_players;
+    private final Map<IPlayerEntry, Integer> m_weights;
+    private final Map<IPlayerEntry, Integer> m_credits;
     private final IPermissionGroup m_permGroup;
 
     private int m_seqNumber = 0;
+    
+    /**
+     * The group credit left in the current turn
+     */
+    private int m_credit = 0;
 
     public BlockPlacerGroup(IPermissionGroup group, IPlayerEntry[] players) {
-        m_players = new HashMap<>();
+        this(group, players, p -> 1);
+    }
+
+    /**
+     * Create new group
+     *
+     * @param group the permission group
+     * @param players the players (in order in which they are served)
+     * @param weights the player weights
+     */
+    public BlockPlacerGroup(IPermissionGroup group, IPlayerEntry[] players,
+            ToIntFunction<IPlayerEntry> weights) {
+        m_players = new LinkedHashMap<>();
+        m_weights = new HashMap<>();
+        m_credits = new HashMap<>();
+        m_permGroup = group;
+
+        update(players, weights);
+    }
+
+    /**
+     * Start a new block placer run. The players and the number of blocks
+     * they can place in the run are refreshed, the credits of the players
+     * that are still in the group are kept.
+     *
+     * @param players the players (in order in which they are served)
+     * @param weights the player weights
+     */
+    public void update(IPlayerEntry[] players, ToIntFunction<IPlayerEntry> weights) {
+        m_players.clear();
+        m_weights.clear();
 
         for (IPlayerEntry p : players) {
             int cnt = p.getRenderBlocks();
             m_players.put(p, cnt < 0 ? INFINITE : cnt);
+            m_weights.put(p, Math.max(1, weights.applyAsInt(p)));
         }
 
-        m_permGroup = group;
+        m_credits.keySet().retainAll(m_weights.keySet());
     }
 
     /**
@@ -100,17 +144,30 @@ public class BlockPlacerGroup {
      * @param pe
      */
     public void updateProgress(int keyPos, IPlayerEntry pe) {
+        updateProgress(keyPos, pe, 1);
+    }
+
+    /**
+     * Set new sequence number and update player blocks left
+     *
+     * @param keyPos
+     * @param pe
+     * @param blocks number of blocks placed
+     */
+    public void updateProgress(int keyPos, IPlayerEntry pe, int blocks) {
         m_seqNumber = keyPos;
         if (pe == null) {
             return;
         }
 
+        m_credits.computeIfPresent(pe, (p, c) -> c - blocks);
+        
         Integer cnt = m_players.getOrDefault(pe, 0);
         if (cnt == INFINITE) {
             return;
         }
         
-        cnt--;
+        cnt -= blocks;
         if (cnt <= 0) {
             m_players.remove(pe);            
         } else {
@@ -118,6 +175,85 @@ public class BlockPlacerGroup {
         }
     }
 
+    /**
+     * Get the number of blocks the player can place in this run
+     *
+     * @param pe
+     * @return
+     */
+    public int getBlocksLeft(IPlayerEntry pe) {
+        Integer cnt = m_players.get(pe);
+        if (cnt == null) {
+            return 0;
+        }
+
+        return cnt == INFINITE ? Integer.MAX_VALUE : cnt;
+    }
+
+    /**
+     * Get the player credit in the current turn, starts a new turn
+     * if the credit was used up (the overused credit is deducted)
+     *
+     * @param pe
+     * @param quantum the credit for weight 1
+     * @return
+     */
+    public int getPlayerCredit(IPlayerEntry pe, int quantum) {
+        int credit = m_credits.getOrDefault(pe, 0);
+        if (credit <= 0) {
+            final int turnCredit = Math.max(1, quantum * m_weights.getOrDefault(pe, 1));
+            while (credit <= 0) {
+                credit += turnCredit;
+            }
+            m_credits.put(pe, credit);
+        }
+
+        return credit;
+    }
+
+    /**
+     * Has the player any credit left in the current turn
+     *
+     * @param pe
+     * @return
+     */
+    public boolean hasPlayerCredit(IPlayerEntry pe) {
+        return m_credits.getOrDefault(pe, 0) > 0;
+    }
+
+    /**
+     * Get the group credit in the current turn, starts a new turn
+     * if the credit was used up (the overused credit is deducted)
+     *
+     * @param quantum the credit for weight 1
+     * @return
+     */
+    public int getCredit(int quantum) {
+        if (m_credit <= 0) {
+            final int turnCredit = Math.max(1, quantum * getWeight());
+            while (m_credit <= 0) {
+                m_credit += turnCredit;
+            }
+        }
+
+        return m_credit;
+    }
+
+    /**
+     * Use the group credit
+     *
+     * @param blocks
+     * @return True if there is credit left in the current turn
+     */
+    public boolean useCredit(int blocks) {
+        m_credit -= blocks;
+        return m_credit > 0;
+    }
+
+    public int getWeight() {
+        return m_permGroup == null ? 1 : Math.max(1, m_permGroup.getRendererWeight());
+    }
+
     public int getQueueSoftLimit() {
         return m_permGroup.getQueueSoftLimit();
     }
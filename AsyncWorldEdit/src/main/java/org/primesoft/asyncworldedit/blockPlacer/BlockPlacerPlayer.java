@@ -47,18 +47,27 @@
  */
 package org.primesoft.asyncworldedit.blockPlacer;
 
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IPackedBlockTarget;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.ICountProvider;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobPriority;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.RedoJob;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
@@ -76,9 +85,35 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
     private final Map<ICountProvider, Object> m_otherCountSources = new ConcurrentHashMap<>();
 
     /**
-     * The queue
+     * The queue lanes, one for each job priority (multiple producers, the
+     * block placer is the only consumer). The lanes are polled from the
+     * highest priority.
      */
-    private Queue<IBlockPlacerEntry> m_queue;
+    private final ConcurrentLinkedQueue<IBlockPlacerEntry>[] m_lanes;
+
+    /**
+     * The lane of each job that has entries in the queue. The entries of
+     * a job stay in one lane (keep their order) while the job has queued
+     * entries.
+     */
+    private final Map<Integer, JobLane> m_jobLanes = new ConcurrentHashMap<>();
+
+    /**
+     * The last packed block run added to the queue, only used by the
+     * producers (serialized by the block placer)
+     */
+    private PackedBlocks m_packedTail;
+    
+    /**
+     * Number of entries in the queue (ConcurrentLinkedQueue.size is O(n))
+     */
+    private final AtomicInteger m_queueSize = new AtomicInteger(0);
+    
+    /**
+     * Jobs that are beeing canceled (job ID to the number of cancel markers
+     * in the queue), entries for this jobs are dropped by the block placer
+     */
+    private final Map<Integer, Integer> m_canceledJobs = new ConcurrentHashMap<>();
     /**
      * Current block placing speed (blocks per second)
      */
@@ -90,6 +125,11 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
     private final Map<Integer, IJobEntry> m_jobs;
     private final AtomicInteger m_jobsCount = new AtomicInteger(0);
 
+    /**
+     * The job priorities (jobs that are not on the list have normal priority)
+     */
+    private final Map<Integer, JobPriority> m_jobPriorities = new ConcurrentHashMap<>();
+
     /**
      * Is the player informed about queue limit reached
      */
@@ -105,14 +145,76 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     private final IPlayerEntry m_player;
 
+    /**
+     * The job queue lane
+     */
+    private static final class JobLane {
+
+        /**
+         * The lane index
+         */
+        final int Lane;
+
+        /**
+         * Number of queued entries (and cancel markers), the lane is not
+         * used when the count drops to 0
+         */
+        final AtomicInteger Count = new AtomicInteger(1);
+
+        JobLane(int lane) {
+            Lane = lane;
+        }
+
+        /**
+         * Add an entry to the lane
+         *
+         * @return False if the lane is not used anymore
+         */
+        boolean acquire() {
+            return Count.getAndUpdate(c -> c > 0 ? c + 1 : c) > 0;
+        }
+    }
+
+    /**
+     * Queue marker added when jobs are canceled. All the entries of the
+     * canceled jobs are in the lane before the marker.
+     */
+    private static final class CancelMarker implements IBlockPlacerEntry {
+
+        private final Map<Integer, JobLane> m_jobs;
+
+        CancelMarker(Map<Integer, JobLane> jobs) {
+            m_jobs = jobs;
+        }
+
+        @Override
+        public int getJobId() {
+            return -1;
+        }
+
+        @Override
+        public boolean isDemanding() {
+            return false;
+        }
+
+        @Override
+        public boolean process(IBlockPlacer bp) {
+            return true;
+        }
+    }
+
     /**
      * Create new player entry
      *
      * @param player
      */
+    @SuppressWarnings("unchecked")
     public BlockPlacerPlayer(IPlayerEntry player) {
         m_player = player;
-        m_queue = new LinkedList<>();
+        m_lanes = new ConcurrentLinkedQueue[JobPriority.values().length];
+        for (int i = 0; i < m_lanes.length; i++) {
+            m_lanes[i] = new ConcurrentLinkedQueue<>();
+        }
         m_speed = 0;
         m_jobs = new ConcurrentHashMap<>();
     }
@@ -138,13 +240,23 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
     }
 
     /**
-     * Get block entries queue
+     * Get block entries queue (a snapshot of the queue in the order in which
+     * the entries are placed)
      *
      * @return
      */
     @Override
     public Queue<IBlockPlacerEntry> getQueue() {
-        return m_queue;
+        final ConcurrentLinkedQueue<IBlockPlacerEntry> result = new ConcurrentLinkedQueue<>();
+        for (int lane = m_lanes.length - 1; lane >= 0; lane--) {
+            for (IBlockPlacerEntry entry : m_lanes[lane]) {
+                if (!(entry instanceof CancelMarker)) {
+                    result.add(entry);
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -154,7 +266,298 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     @Override
     public void updateQueue(Queue<IBlockPlacerEntry> newQueue) {
-        m_queue = newQueue;
+        for (ConcurrentLinkedQueue<IBlockPlacerEntry> lane : m_lanes) {
+            lane.clear();
+        }
+        m_jobLanes.clear();
+        m_canceledJobs.clear();
+        m_packedTail = null;
+        m_queueSize.set(0);
+
+        for (IBlockPlacerEntry entry : newQueue) {
+            if (entry instanceof PackedBlocks) {
+                final int cnt = ((PackedBlocks) entry).size();
+                if (cnt == 0) {
+                    continue;
+                }
+
+                int lane = 0;
+                for (int i = 0; i < cnt; i++) {
+                    lane = acquireLane(entry.getJobId());
+                }
+                m_lanes[lane].add(entry);
+                m_queueSize.addAndGet(cnt);
+            } else {
+                offer(entry);
+            }
+        }
+        m_packedTail = null;
+    }
+
+    /**
+     * Get the number of entries in the queue
+     *
+     * @return
+     */
+    @Override
+    public int getQueueSize() {
+        return m_queueSize.get();
+    }
+
+    /**
+     * Add entry to the queue. This method is safe to call from any thread.
+     *
+     * @param entry
+     */
+    public void offer(IBlockPlacerEntry entry) {
+        m_packedTail = null;
+        m_lanes[acquireLane(entry.getJobId())].add(entry);
+        m_queueSize.incrementAndGet();
+    }
+
+    /**
+     * Add plain block set to the queue. Consecutive block sets are stored
+     * packed. The producers need to be serialized.
+     *
+     * @param target
+     * @param worldName
+     * @param jobId
+     * @param location
+     * @param block
+     * @param options
+     */
+    public void offerBlock(IPackedBlockTarget target, String worldName, int jobId,
+            BlockVector3 location, BlockStateHolder block, Object options) {
+        if (!PackedBlocks.canPack(location)) {
+            offer(new PackedBlockEntry(target, m_player, worldName, jobId, location, block, options));
+            return;
+        }
+
+        final int lane = acquireLane(jobId);
+        PackedBlocks tail = m_packedTail;
+        if (tail == null || !tail.add(target, m_player, worldName, jobId, location, block, options)) {
+            tail = new PackedBlocks(target, m_player, worldName, jobId);
+            tail.add(target, m_player, worldName, jobId, location, block, options);
+
+            m_packedTail = tail;
+            m_lanes[lane].add(tail);
+        }
+
+        m_queueSize.incrementAndGet();
+    }
+
+    /**
+     * Get the queue lane for a new job entry
+     *
+     * @param jobId
+     * @return
+     */
+    private int acquireLane(int jobId) {
+        final JobLane result = m_jobLanes.compute(jobId, (id, jobLane) -> {
+            if (jobLane != null && jobLane.acquire()) {
+                return jobLane;
+            }
+
+            //The job has no queued entries, use the current job priority
+            m_packedTail = null;
+            return new JobLane(getLane(id));
+        });
+
+        return result.Lane;
+    }
+
+    /**
+     * The job entry was removed from the queue
+     *
+     * @param jobId
+     */
+    private void releaseLane(int jobId) {
+        final JobLane jobLane = m_jobLanes.get(jobId);
+        if (jobLane != null) {
+            release(jobId, jobLane);
+        }
+    }
+
+    private void release(int jobId, JobLane jobLane) {
+        if (jobLane.Count.decrementAndGet() <= 0) {
+            m_jobLanes.remove(jobId, jobLane);
+        }
+    }
+
+    /**
+     * Get the queue lane for the job priority
+     *
+     * @param jobId
+     * @return
+     */
+    private int getLane(int jobId) {
+        return m_jobPriorities.getOrDefault(jobId, JobPriority.Normal).ordinal();
+    }
+
+    /**
+     * Get next entry from the queue. The entries of the high priority jobs
+     * are returned first. Only the block placer should call this method.
+     *
+     * @return Entry or null if queue is empty
+     */
+    public IBlockPlacerEntry poll() {
+        for (int lane = m_lanes.length - 1; lane >= 0; lane--) {
+            final IBlockPlacerEntry result = poll(m_lanes[lane]);
+            if (result != null) {
+                releaseLane(result.getJobId());
+                m_queueSize.decrementAndGet();
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get next entry from the queue lane
+     *
+     * @param queue
+     * @return Entry or null if the lane is empty
+     */
+    private IBlockPlacerEntry poll(ConcurrentLinkedQueue<IBlockPlacerEntry> queue) {
+        IBlockPlacerEntry result;
+
+        while ((result = queue.peek()) != null) {
+            if (result instanceof CancelMarker) {
+                //All entries of the canceled jobs are processed
+                queue.remove(result);
+                releaseCanceled((CancelMarker) result);
+                continue;
+            } else if (result instanceof PackedBlocks) {
+                final PackedBlocks blocks = (PackedBlocks) result;
+                result = blocks.poll();
+                if (result == null) {
+                    //The run is empty and closed
+                    queue.remove(blocks);
+                    continue;
+                }
+            } else if (!queue.remove(result)) {
+                //Removed in the meantime
+                continue;
+            }
+
+            return result;
+        }
+
+        return null;
+    }
+
+    /**
+     * Is the job beeing canceled
+     *
+     * @param jobId
+     * @return
+     */
+    public boolean isCanceled(int jobId) {
+        return !m_canceledJobs.isEmpty() && m_canceledJobs.containsKey(jobId);
+    }
+
+    /**
+     * Cancel the jobs. The entries are not removed from the queue, the block
+     * placer drops the entries of the canceled jobs when it polls them. The
+     * producers need to be serialized.
+     *
+     * @param jobIds
+     */
+    public void cancelJobs(Collection<Integer> jobIds) {
+        final List<Map<Integer, JobLane>> markers = new ArrayList<>();
+        for (int i = 0; i < m_lanes.length; i++) {
+            markers.add(null);
+        }
+
+        for (Integer id : jobIds) {
+            final JobLane jobLane = m_jobLanes.get(id);
+            if (jobLane == null || !jobLane.acquire()) {
+                //No queued entries
+                continue;
+            }
+
+            Map<Integer, JobLane> marker = markers.get(jobLane.Lane);
+            if (marker == null) {
+                marker = new HashMap<>();
+                markers.set(jobLane.Lane, marker);
+            }
+            marker.put(id, jobLane);
+            m_canceledJobs.merge(id, 1, Integer::sum);
+        }
+
+        m_packedTail = null;
+        for (int lane = 0; lane < m_lanes.length; lane++) {
+            final Map<Integer, JobLane> marker = markers.get(lane);
+            if (marker != null) {
+                m_lanes[lane].add(new CancelMarker(marker));
+            }
+        }
+    }
+
+    /**
+     * Count the queued entries that belong to the provided jobs. The queue
+     * is not modified.
+     *
+     * @param jobIds
+     * @return
+     */
+    public int countEntries(Collection<Integer> jobIds) {
+        int result = 0;
+        for (ConcurrentLinkedQueue<IBlockPlacerEntry> lane : m_lanes) {
+            for (IBlockPlacerEntry entry : lane) {
+                if (entry instanceof CancelMarker || !jobIds.contains(entry.getJobId())) {
+                    continue;
+                }
+
+                result += entry instanceof PackedBlocks ? ((PackedBlocks) entry).size() : 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove all entries from the queue
+     *
+     * @param onRemoved
+     * @return Number of removed entries
+     */
+    public int removeAllEntries(Consumer<IBlockPlacerEntry> onRemoved) {
+        int result = 0;
+
+        for (ConcurrentLinkedQueue<IBlockPlacerEntry> lane : m_lanes) {
+            IBlockPlacerEntry entry;
+            while ((entry = lane.poll()) != null) {
+                if (entry instanceof CancelMarker) {
+                    releaseCanceled((CancelMarker) entry);
+                } else if (entry instanceof PackedBlocks) {
+                    int cnt = ((PackedBlocks) entry).removeAll(onRemoved);
+                    m_queueSize.addAndGet(-cnt);
+                    result += cnt;
+                } else {
+                    m_queueSize.decrementAndGet();
+                    result++;
+                    onRemoved.accept(entry);
+                }
+            }
+        }
+        m_jobLanes.clear();
+
+        return result;
+    }
+
+    /**
+     * The cancel marker was removed from the queue
+     *
+     * @param marker
+     */
+    private void releaseCanceled(CancelMarker marker) {
+        for (Map.Entry<Integer, JobLane> entry : marker.m_jobs.entrySet()) {
+            final Integer id = entry.getKey();
+            m_canceledJobs.computeIfPresent(id, (_id, cnt) -> cnt > 1 ? cnt - 1 : null);
+            release(id, entry.getValue());
+        }
     }
 
     /**
@@ -268,6 +671,62 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
             j.cancel();
             return null;
         });
+        m_jobPriorities.remove(jobId);
+    }
+
+    /**
+     * Get the job priority
+     *
+     * @param jobId
+     * @return The priority or null if job not found
+     */
+    public JobPriority getJobPriority(int jobId) {
+        if (!m_jobs.containsKey(jobId)) {
+            return null;
+        }
+
+        return m_jobPriorities.getOrDefault(jobId, JobPriority.Normal);
+    }
+
+    /**
+     * Set the job priority. The already queued entries of the job keep
+     * their order, the priority is used for the entries queued after them.
+     *
+     * @param jobId
+     * @param priority
+     * @return True if the job was found
+     */
+    public boolean setJobPriority(int jobId, JobPriority priority) {
+        if (priority == null || !m_jobs.containsKey(jobId)) {
+            return false;
+        }
+
+        if (priority == JobPriority.Normal) {
+            m_jobPriorities.remove(jobId);
+        } else {
+            m_jobPriorities.put(jobId, priority);
+        }
+        
+        return true;
+    }
+
+    /**
+     * Get the scheduler weight of the player. The weight is based on the
+     * highest priority of the player jobs.
+     *
+     * @return
+     */
+    public int getPriorityWeight() {
+        if (m_jobPriorities.isEmpty()) {
+            return JobPriority.Normal.getWeight();
+        }
+
+        int result = m_jobPriorities.size() < m_jobs.size() ? JobPriority.Normal.getWeight() : 0;
+        for (JobPriority priority : m_jobPriorities.values()) {
+            result = Math.max(result, priority.getWeight());
+        }
+        
+        return result > 0 ? result : JobPriority.Normal.getWeight();
     }
 
     /**
@@ -337,12 +796,12 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
 
     @Override
     public boolean hasBlocks() {
-        return !m_queue.isEmpty() || m_otherCountSources.keySet().stream().anyMatch(i -> i.getCount() > 0);
+        return m_queueSize.get() > 0 || m_otherCountSources.keySet().stream().anyMatch(i -> i.getCount() > 0);
     }
 
     @Override
     public int getOperationCount() {
-        return m_queue.size() + m_otherCountSources.keySet().stream().mapToInt(ICountProvider::getCount).sum();
+        return m_queueSize.get() + m_otherCountSources.keySet().stream().mapToInt(ICountProvider::getCount).sum();
     }
 
     @Override
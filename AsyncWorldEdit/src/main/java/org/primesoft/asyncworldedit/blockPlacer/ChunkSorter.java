@@ -0,0 +1,137 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+
+/**
+ * Orders the block placer batch by world, chunk and chunk section so each
+ * chunk section is modified contiguously. Only runs of location entries are
+ * sorted, all other entries are treated as barriers. The sort is stable so 
+ * multiple changes of the same block keep their order.
+ *
+ * @author SBPrime
+ */
+final class ChunkSorter {
+
+    /**
+     * Minimum run length worth sorting
+     */
+    private static final int MIN_RUN = 2;
+
+    private static final Comparator<IBlockPlacerEntry> CHUNK_ORDER = (e1, e2) -> {
+        IBlockPlacerLocationEntry l1 = (IBlockPlacerLocationEntry) e1;
+        IBlockPlacerLocationEntry l2 = (IBlockPlacerLocationEntry) e2;
+
+        String w1 = l1.getWorldName();
+        String w2 = l2.getWorldName();
+        if (w1 != w2) {
+            int result = w1.compareTo(w2);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        BlockVector3 p1 = l1.getLocation();
+        BlockVector3 p2 = l2.getLocation();
+
+        int result = Integer.compare(p1.getBlockX() >> 4, p2.getBlockX() >> 4);
+        if (result != 0) {
+            return result;
+        }
+
+        result = Integer.compare(p1.getBlockZ() >> 4, p2.getBlockZ() >> 4);
+        if (result != 0) {
+            return result;
+        }
+
+        return Integer.compare(p1.getBlockY() >> 4, p2.getBlockY() >> 4);
+    };
+
+    private ChunkSorter() {
+    }
+
+    /**
+     * Sort the batch entries
+     *
+     * @param batch the batch to sort
+     * @param count number of entries in the batch
+     */
+    static void sort(IBlockPlacerEntry[] batch, int count) {
+        int runStart = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (!isSortable(batch[i])) {
+                sortRun(batch, runStart, i);
+                runStart = i + 1;
+            }
+        }
+
+        sortRun(batch, runStart, count);
+    }
+
+    private static void sortRun(IBlockPlacerEntry[] batch, int from, int to) {
+        if (to - from < MIN_RUN) {
+            return;
+        }
+
+        Arrays.sort(batch, from, to, CHUNK_ORDER);
+    }
+
+    private static boolean isSortable(IBlockPlacerEntry entry) {
+        if (!(entry instanceof IBlockPlacerLocationEntry) || entry.isDemanding()) {
+            return false;
+        }
+
+        IBlockPlacerLocationEntry lEntry = (IBlockPlacerLocationEntry) entry;
+        return lEntry.getWorldName() != null && lEntry.getLocation() != null;
+    }
+}
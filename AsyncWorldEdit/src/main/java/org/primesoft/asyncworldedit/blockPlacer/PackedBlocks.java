@@ -0,0 +1,332 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IPackedBlockTarget;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * A run of plain block set operations stored in primitive arrays. The
+ * entries are created when the blocks are taken from the queue so the queued
+ * blocks use a packed position, a palette id and an options id.
+ *
+ * Producers are serialized by the block placer, the single consumer takes
+ * the blocks from the head. Once the run is emptied by the consumer (or
+ * removed) it is closed and no more blocks can be added.
+ *
+ * @author SBPrime
+ */
+final class PackedBlocks implements IBlockPlacerEntry {
+
+    /**
+     * Maximum number of blocks in a run
+     */
+    private final static int MAX_BLOCKS = 4096;
+
+    /**
+     * Maximum number of different options in a run
+     */
+    private final static int MAX_OPTIONS = 256;
+
+    private final static int INITIAL_SIZE = 64;
+
+    private final IPackedBlockTarget m_target;
+
+    private final IPlayerEntry m_player;
+
+    private final String m_worldName;
+
+    private final int m_jobId;
+
+    /**
+     * The packed block positions
+     */
+    private long[] m_positions = new long[INITIAL_SIZE];
+
+    /**
+     * The block palette ids
+     */
+    private int[] m_blocks = new int[INITIAL_SIZE];
+
+    /**
+     * The options palette ids
+     */
+    private byte[] m_options = new byte[INITIAL_SIZE];
+
+    private BlockStateHolder[] m_blockPalette = new BlockStateHolder[16];
+
+    private final Map<BlockStateHolder, Integer> m_blockLookup = new IdentityHashMap<>();
+
+    private Object[] m_optionsPalette = new Object[4];
+
+    private int m_optionsCount;
+
+    /**
+     * Next block to take
+     */
+    private int m_head;
+
+    /**
+     * Number of added blocks
+     */
+    private int m_tail;
+
+    private boolean m_isClosed;
+
+    PackedBlocks(IPackedBlockTarget target, IPlayerEntry player, String worldName, int jobId) {
+        m_target = target;
+        m_player = player;
+        m_worldName = worldName;
+        m_jobId = jobId;
+    }
+
+    @Override
+    public int getJobId() {
+        return m_jobId;
+    }
+
+    @Override
+    public boolean isDemanding() {
+        return false;
+    }
+
+    /**
+     * Add block to the run
+     *
+     * @param target
+     * @param player
+     * @param worldName
+     * @param jobId
+     * @param location
+     * @param block
+     * @param options
+     * @return false if the block does not belong to this run or the run is
+     * full or closed
+     */
+    synchronized boolean add(IPackedBlockTarget target, IPlayerEntry player, String worldName, int jobId,
+            BlockVector3 location, BlockStateHolder block, Object options) {
+        if (m_isClosed || m_tail >= MAX_BLOCKS
+                || target != m_target || player != m_player || jobId != m_jobId
+                || (worldName == null ? m_worldName != null : !worldName.equals(m_worldName))) {
+            return false;
+        }
+
+        int optionsId = getOptionsId(options);
+        if (optionsId < 0) {
+            return false;
+        }
+
+        if (m_tail == m_positions.length) {
+            int size = Math.min(MAX_BLOCKS, m_positions.length * 2);
+            m_positions = Arrays.copyOf(m_positions, size);
+            m_blocks = Arrays.copyOf(m_blocks, size);
+            m_options = Arrays.copyOf(m_options, size);
+        }
+
+        m_positions[m_tail] = pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        m_blocks[m_tail] = getBlockId(block);
+        m_options[m_tail] = (byte) optionsId;
+        m_tail++;
+
+        return true;
+    }
+
+    /**
+     * Take the next block
+     *
+     * @return the block entry or null if the run is empty (the run is closed)
+     */
+    synchronized IBlockPlacerEntry poll() {
+        if (m_head >= m_tail) {
+            close();
+            return null;
+        }
+
+        return createEntry(m_head++);
+    }
+
+    /**
+     * Get the number of blocks left in the run
+     *
+     * @return
+     */
+    synchronized int size() {
+        return m_isClosed ? 0 : m_tail - m_head;
+    }
+
+    /**
+     * Remove all the blocks and close the run
+     *
+     * @param onRemoved
+     * @return number of removed blocks
+     */
+    synchronized int removeAll(Consumer<IBlockPlacerEntry> onRemoved) {
+        int result = 0;
+        while (m_head < m_tail) {
+            onRemoved.accept(createEntry(m_head++));
+            result++;
+        }
+
+        close();
+        return result;
+    }
+
+    @Override
+    public boolean process(IBlockPlacer bp) {
+        IBlockPlacerEntry entry;
+        boolean result = true;
+        while ((entry = poll()) != null) {
+            result &= entry.process(bp);
+        }
+
+        return result;
+    }
+
+    private void close() {
+        m_isClosed = true;
+        m_positions = null;
+        m_blocks = null;
+        m_options = null;
+        m_blockPalette = null;
+        m_optionsPalette = null;
+        m_blockLookup.clear();
+    }
+
+    private IBlockPlacerEntry createEntry(int idx) {
+        long pos = m_positions[idx];
+
+        return new PackedBlockEntry(m_target, m_player, m_worldName, m_jobId,
+                BlockVector3.at(unpackX(pos), unpackY(pos), unpackZ(pos)),
+                m_blockPalette[m_blocks[idx]], m_optionsPalette[m_options[idx] & 0xff]);
+    }
+
+    private int getBlockId(BlockStateHolder block) {
+        Integer result = m_blockLookup.get(block);
+        if (result != null) {
+            return result;
+        }
+
+        int id = m_blockLookup.size();
+        if (id == m_blockPalette.length) {
+            m_blockPalette = Arrays.copyOf(m_blockPalette, id * 2);
+        }
+
+        m_blockPalette[id] = block;
+        m_blockLookup.put(block, id);
+
+        return id;
+    }
+
+    private int getOptionsId(Object options) {
+        for (int i = 0; i < m_optionsCount; i++) {
+            Object o = m_optionsPalette[i];
+            if (o == options || (o != null && o.equals(options))) {
+                return i;
+            }
+        }
+
+        if (m_optionsCount >= MAX_OPTIONS) {
+            return -1;
+        }
+
+        if (m_optionsCount == m_optionsPalette.length) {
+            m_optionsPalette = Arrays.copyOf(m_optionsPalette, m_optionsCount * 2);
+        }
+
+        m_optionsPalette[m_optionsCount] = options;
+        return m_optionsCount++;
+    }
+
+    /**
+     * Can the position be packed
+     *
+     * @param location
+     * @return
+     */
+    static boolean canPack(BlockVector3 location) {
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        return x >= -(1 << 25) && x < (1 << 25)
+                && z >= -(1 << 25) && z < (1 << 25)
+                && y >= -(1 << 11) && y < (1 << 11);
+    }
+
+    /**
+     * Pack the position (26 bits X and Z, 12 bits Y)
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    static long pack(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    static int unpackX(long pos) {
+        return (int) (pos >> 38);
+    }
+
+    static int unpackY(long pos) {
+        return (int) (pos << 52 >> 52);
+    }
+
+    static int unpackZ(long pos) {
+        return (int) (pos << 26 >> 38);
+    }
+}
@@ -48,11 +48,14 @@
 package org.primesoft.asyncworldedit.blockPlacer.entries;
 
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.RegenOptions;
 import com.sk89q.worldedit.world.World;
+import java.util.Set;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.utils.IAction;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
 import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerEntry;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
@@ -67,6 +70,7 @@ public class RegenerateEntry extends BlockPlacerEntry {
     private final IAction m_finalize;
     private final Extent m_extent;
     private final RegenOptions m_options;
+    private final Set<BlockVector2> m_chunks;
 
     public RegenerateEntry(
             final int jobId,
@@ -81,10 +85,27 @@ public class RegenerateEntry extends BlockPlacerEntry {
         m_extent = extent;
         m_world = world;
         m_options = options;
+        m_chunks = region.getChunks();
         
         m_finalize = finalizeAction;
     }
 
+    /**
+     * The regenerated world name
+     * @return 
+     */
+    public String getWorldName() {
+        return m_world.getName();
+    }
+
+    /**
+     * The regenerated chunks
+     * @return 
+     */
+    public Set<BlockVector2> getChunks() {
+        return m_chunks;
+    }
+
     @Override
     public boolean process(IBlockPlacer bp) {
         try {
@@ -96,6 +117,8 @@ public class RegenerateEntry extends BlockPlacerEntry {
             return false;
         }
         finally{
+            ((IInnerBlockPlacer) bp).getPhysicsWatcher().removeChunks(getWorldName(), m_chunks);
+            
             if (m_finalize != null) {
                 m_finalize.execute();
             }
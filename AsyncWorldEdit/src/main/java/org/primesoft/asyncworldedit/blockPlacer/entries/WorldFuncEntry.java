@@ -50,7 +50,7 @@ package org.primesoft.asyncworldedit.blockPlacer.entries;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
-import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 
 /**
@@ -94,7 +94,7 @@ public class WorldFuncEntry<T>
         T result = m_function.execute();
 
         if (m_worldName != null) {
-            ((BlockPlacer) bp).getPhysicsWatcher().removeLocation(m_worldName, m_location);
+            ((IInnerBlockPlacer) bp).getPhysicsWatcher().removeLocation(m_worldName, m_location);
         }
 
         if (result instanceof Boolean) {
@@ -50,7 +50,7 @@ package org.primesoft.asyncworldedit.blockPlacer.entries;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
-import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.api.utils.IFuncEx;
 
@@ -92,7 +92,7 @@ public class WorldFuncEntryEx<T, TException extends Exception>
         finally
         {
             if (m_worldName != null) {
-                ((BlockPlacer)bp).getPhysicsWatcher().removeLocation(m_worldName, m_location);
+                ((IInnerBlockPlacer) bp).getPhysicsWatcher().removeLocation(m_worldName, m_location);
             }
         }
 
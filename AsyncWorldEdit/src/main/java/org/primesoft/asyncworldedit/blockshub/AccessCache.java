@@ -0,0 +1,208 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockshub;
+
+import com.sk89q.worldedit.world.block.BlockType;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cache of the BlocksHub access decisions. The decisions are stored per
+ * player, world and chunk. Place decisions are also stored per placed block
+ * type.
+ *
+ * @author SBPrime
+ */
+final class AccessCache {
+
+    /**
+     * Maximum number of cached decisions per player
+     */
+    private static final int MAX_ENTRIES = 4096;
+
+    /**
+     * The cache key
+     */
+    private static final class Key {
+
+        private final UUID m_world;
+
+        private final int m_x;
+
+        private final int m_z;
+
+        private final BlockType m_type;
+
+        private final boolean m_dc;
+
+        Key(UUID world, int x, int z, BlockType type, boolean dc) {
+            m_world = world;
+            m_x = x;
+            m_z = z;
+            m_type = type;
+            m_dc = dc;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = m_world.hashCode();
+            hash = 31 * hash + m_x;
+            hash = 31 * hash + m_z;
+            hash = 31 * hash + Objects.hashCode(m_type);
+            hash = 2 * hash + (m_dc ? 1 : 0);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return m_x == other.m_x && m_z == other.m_z
+                    && m_dc == other.m_dc && m_type == other.m_type
+                    && m_world.equals(other.m_world);
+        }
+    }
+
+    /**
+     * The cached decision
+     */
+    private static final class Decision {
+
+        final boolean allowed;
+
+        final long expires;
+
+        Decision(boolean allowed, long expires) {
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Player UUID to player decisions
+     */
+    private final Map<UUID, Map<Key, Decision>> m_decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Get the cached decision or compute a new one
+     *
+     * @param player the player UUID
+     * @param world the world UUID
+     * @param cx chunk X coordinate
+     * @param cz chunk Z coordinate
+     * @param type the placed block type, null for access checks
+     * @param dc is the check done for the direct chunk API
+     * @param ttl how long the decision is valid (in ms)
+     * @param check the access check
+     * @return
+     */
+    boolean get(UUID player, UUID world, int cx, int cz, BlockType type, boolean dc,
+            long ttl, BooleanSupplier check) {
+        if (ttl <= 0 || player == null || world == null) {
+            return check.getAsBoolean();
+        }
+
+        final Map<Key, Decision> decisions = m_decisions.computeIfAbsent(player, _p -> new ConcurrentHashMap<>());
+        final Key key = new Key(world, cx, cz, type, dc);
+        final long now = System.currentTimeMillis();
+
+        Decision decision = decisions.get(key);
+        if (decision == null || decision.expires < now) {
+            decision = new Decision(check.getAsBoolean(), now + ttl);
+            if (decisions.size() >= MAX_ENTRIES) {
+                prune(decisions, now);
+            }
+            decisions.put(key, decision);
+        }
+
+        return decision.allowed;
+    }
+
+    /**
+     * Remove the expired decisions, drop all decisions if the cache is still
+     * full
+     *
+     * @param decisions
+     * @param now
+     */
+    private static void prune(Map<Key, Decision> decisions, long now) {
+        decisions.values().removeIf(d -> d.expires < now);
+        if (decisions.size() >= MAX_ENTRIES) {
+            decisions.clear();
+        }
+    }
+
+    /**
+     * Remove all decisions
+     */
+    void clear() {
+        m_decisions.clear();
+    }
+
+    /**
+     * Remove all player decisions
+     *
+     * @param player
+     */
+    void clear(UUID player) {
+        if (player == null) {
+            return;
+        }
+
+        m_decisions.remove(player);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockshub;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import static org.primesoft.asyncworldedit.LoggerProvider.log;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+
+/**
+ * The batched block change logger. The block changes are collected in per
+ * world batches and sent to the BlocksHub integrator from the server main
+ * thread (the BlocksHub API is not thread safe). The player UUID and name
+ * are captured when the change is queued so the changes are logged even if
+ * the player logs out before the batch is flushed.
+ *
+ * @author SBPrime
+ */
+final class BlockLogger {
+
+    /**
+     * Number of block changes in one batch
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Block changes batch for a single world, the batch is flushed by
+     * the dispatcher on the next tick or when the logger is stopped
+     */
+    private final class Batch implements IDispatcherEntry {
+
+        final IWorld world;
+
+        final UUID[] playerUuids = new UUID[BATCH_SIZE];
+
+        final String[] playerNames = new String[BATCH_SIZE];
+
+        final int[] x = new int[BATCH_SIZE];
+
+        final int[] y = new int[BATCH_SIZE];
+
+        final int[] z = new int[BATCH_SIZE];
+
+        final BlockStateHolder[] oldBlocks = new BlockStateHolder[BATCH_SIZE];
+
+        final BlockStateHolder[] newBlocks = new BlockStateHolder[BATCH_SIZE];
+
+        final boolean[] dc = new boolean[BATCH_SIZE];
+
+        int size;
+
+        Batch(IWorld world) {
+            this.world = world;
+        }
+
+        boolean add(IPlayerEntry player, BlockVector3 location,
+                BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean isDc) {
+            playerUuids[size] = player.getUUID();
+            playerNames[size] = player.getName();
+            x[size] = location.getBlockX();
+            y[size] = location.getBlockY();
+            z[size] = location.getBlockZ();
+            oldBlocks[size] = oldBlock;
+            newBlocks[size] = newBlock;
+            dc[size] = isDc;
+            size++;
+
+            return size == BATCH_SIZE;
+        }
+
+        @Override
+        public Object getMutex() {
+            return m_mutex;
+        }
+
+        @Override
+        public boolean Process() {
+            return flush(this);
+        }
+    }
+
+    /**
+     * The current integrator
+     */
+    private final Supplier<IBlocksHubIntegration> m_integrator;
+
+    /**
+     * The task dispatcher used to flush the batches
+     */
+    private final Supplier<ITaskDispatcher> m_dispatcher;
+
+    /**
+     * The logger mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * World UUID to the batch that is being filled
+     */
+    private final Map<UUID, Batch> m_open = new HashMap<>();
+
+    /**
+     * All the batches that are not flushed
+     */
+    private final Set<Batch> m_unflushed = new LinkedHashSet<>();
+
+    /**
+     * Number of queued block changes
+     */
+    private int m_pending;
+
+    /**
+     * Number of dropped block changes since the last report
+     */
+    private long m_dropped;
+
+    /**
+     * Is the logger running
+     */
+    private boolean m_isRunning = true;
+
+    BlockLogger(Supplier<IBlocksHubIntegration> integrator,
+            Supplier<ITaskDispatcher> dispatcher) {
+        m_integrator = integrator;
+        m_dispatcher = dispatcher;
+    }
+
+    /**
+     * Queue the block change
+     *
+     * @param playerEntry
+     * @param world
+     * @param location
+     * @param oldBlock
+     * @param newBlock
+     * @param dc
+     * @param maxPending the maximum number of queued block changes
+     * @return false if the logger is stopped and the change was not queued
+     */
+    boolean queue(IPlayerEntry playerEntry, IWorld world, BlockVector3 location,
+            BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc, int maxPending) {
+        final ITaskDispatcher dispatcher = m_dispatcher.get();
+        if (dispatcher == null) {
+            return false;
+        }
+
+        Batch newBatch = null;
+        synchronized (m_mutex) {
+            if (!m_isRunning) {
+                return false;
+            }
+
+            if (m_pending >= maxPending) {
+                m_dropped++;
+                return true;
+            }
+
+            final UUID worldUuid = world.getUUID();
+            Batch batch = m_open.get(worldUuid);
+            if (batch == null) {
+                batch = new Batch(world);
+                newBatch = batch;
+
+                m_open.put(worldUuid, batch);
+                m_unflushed.add(batch);
+            }
+
+            m_pending++;
+            if (batch.add(playerEntry, location, oldBlock, newBlock, dc)) {
+                m_open.remove(worldUuid);
+            }
+        }
+
+        if (newBatch != null) {
+            dispatcher.addFastTask(newBatch);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop the logger, all queued block changes are flushed on the
+     * calling thread
+     */
+    void stop() {
+        final List<Batch> batches;
+        synchronized (m_mutex) {
+            m_isRunning = false;
+            batches = new ArrayList<>(m_unflushed);
+        }
+
+        for (Batch batch : batches) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Send the batch to the integrator
+     *
+     * @param batch
+     * @return false if the batch was already flushed
+     */
+    private boolean flush(Batch batch) {
+        long dropped;
+        synchronized (m_mutex) {
+            if (!m_unflushed.remove(batch)) {
+                return false;
+            }
+
+            m_open.remove(batch.world.getUUID(), batch);
+            m_pending -= batch.size;
+
+            dropped = m_dropped;
+            m_dropped = 0;
+        }
+
+        if (dropped > 0) {
+            log(String.format("BlocksHub logging queue is full, %1$s block changes were not logged.", dropped));
+        }
+
+        final IBlocksHubIntegration integrator = m_integrator.get();
+        final IWorld world = batch.world;
+
+        for (int i = 0; i < batch.size; i++) {
+            try {
+                integrator.logBlock(batch.playerUuids[i], batch.playerNames[i], world,
+                        BlockVector3.at(batch.x[i], batch.y[i], batch.z[i]),
+                        batch.oldBlocks[i], batch.newBlocks[i], batch.dc[i]);
+            } catch (Exception ex) {
+                ExceptionHelper.printException(ex, "Error logging block.");
+            }
+        }
+
+        return true;
+    }
+}
@@ -48,16 +48,20 @@
 package org.primesoft.asyncworldedit.blockshub;
 
 import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
 import org.primesoft.asyncworldedit.api.configuration.IWorldEditConfig;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubBridge;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubFactory;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
@@ -69,6 +73,7 @@ import org.primesoft.asyncworldedit.configuration.AccessType;
 import org.primesoft.asyncworldedit.configuration.BHLevel;
 import org.primesoft.asyncworldedit.configuration.ConfigBlocksHub;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.permissions.Permission;
 import org.primesoft.asyncworldedit.platform.api.IPlatform;
 
@@ -82,7 +87,7 @@ public class BlocksHubBridge implements IBlocksHubBridge {
     /**
      * The current integrator
      */
-    private IBlocksHubIntegration m_integrator = new NullBlocksHubIntegration();
+    private volatile IBlocksHubIntegration m_integrator = new NullBlocksHubIntegration();
     
     /**
      * This flag helps in speeding up the checks
@@ -99,6 +104,19 @@ public class BlocksHubBridge implements IBlocksHubBridge {
      */
     private final IPlatform m_platform;
 
+    /**
+     * The chunk access decisions
+     */
+    private final AccessCache m_accessCache = new AccessCache();
+
+    /**
+     * The asynchronous block change logger
+     */
+    private final BlockLogger m_logger = new BlockLogger(() -> m_integrator, () -> {
+        IAsyncWorldEditCore core = AwePlatform.getInstance().getCore();
+        return core != null ? core.getTaskDispatcher() : null;
+    });
+
     public BlocksHubBridge(IPlatform platform) {
         m_platform = platform;
     }
@@ -114,13 +132,36 @@ public class BlocksHubBridge implements IBlocksHubBridge {
         }
 
         if (playerEntry == null || !playerEntry.isPlayer()
-                || playerEntry.isDisposed()
                 || playerEntry.getUUID() == null || playerEntry.getName() == null
                 || playerEntry.getName().isEmpty()) {
             return;
         }
 
-        m_integrator.logBlock(playerEntry, world, location, oldBlock, newBlock, dc);
+        if (world == null || location == null) {
+            return;
+        }
+
+        if (!m_logger.queue(playerEntry, world, location, oldBlock, newBlock, dc,
+                ConfigProvider.blocksHub().getLogMaxPending())) {
+            m_integrator.logBlock(playerEntry, world, location, oldBlock, newBlock, dc);
+        }
+    }
+
+    @Override
+    public void logBlock(UUID playerUuid, String playerName, IWorld world, BlockVector3 location,
+            BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc) {
+        if (!m_shouldProcess) { return; }
+
+        BHLevel level = ConfigProvider.blocksHub().getLogBlocks();
+        if (level == BHLevel.Disabled || (dc && level == BHLevel.Regular)) {
+            return;
+        }
+
+        if (playerUuid == null || world == null || location == null) {
+            return;
+        }
+
+        m_integrator.logBlock(playerUuid, playerName, world, location, oldBlock, newBlock, dc);
     }
 
     @Override
@@ -165,7 +206,8 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.hasAccess(playerEntry, world, location);
+        return isAllowed(playerEntry, world, location, null, false,
+                () -> m_integrator.hasAccess(playerEntry, world, location));
     }
     
     
@@ -202,7 +244,8 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.hasAccess(playerEntry, world, location);
+        return isAllowed(playerEntry, world, location, null, false,
+                () -> m_integrator.hasAccess(playerEntry, world, location));
     }
 
     @Override
@@ -238,64 +281,76 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.hasAccess(playerEntry, world, location, dc);
+        return isAllowed(playerEntry, world, location, null, dc,
+                () -> m_integrator.hasAccess(playerEntry, world, location, dc));
     }    
 
     /**
      * Check if player can place a block using WorldEdit black list
      */
     private boolean canPlace(IPlayerEntry playerEntry, BlockStateHolder newBlock) {
-        if (playerEntry == null || newBlock == null || playerEntry.isAllowed(Permission.BYPASS_WHITELIST)) {
+        if (newBlock == null) {
             return true;
         }
 
+        final Set<String> blackList = getBlackList(playerEntry);
+        return blackList == null || !blackList.contains(newBlock.getBlockType().getId());
+    }
+
+    /**
+     * Get the WorldEdit black list used for the player
+     *
+     * @return The black list or null if no blocks are black listed
+     */
+    private Set<String> getBlackList(IPlayerEntry playerEntry) {
+        if (playerEntry == null || playerEntry.isAllowed(Permission.BYPASS_WHITELIST)) {
+            return null;
+        }
+
         IPermissionGroup group = playerEntry.getPermissionGroup();
         if (group == null) {
-            return true;
+            return null;
         }
 
         IWorldEditConfig weConfig = group.getWorldEditConfig();
         if (!(weConfig instanceof IPremiumWorldEditConfig)) {
-            return true;
+            return null;
         }
 
         IConfigBlackList blackListConfig = ((IPremiumWorldEditConfig) weConfig).getBlockListOptions();
         if (blackListConfig == null) {
-            return true;
+            return null;
         }
 
         if (!blackListConfig.isSetEnabled()) {
-            return true;
+            return null;
         }
 
         Set<String> blackList = weConfig.getDisallowedBlocks();
 
         if (blackList == null) {
             if (m_platform == null) {
-                return true;
+                return null;
             }
 
             IWorldeditIntegratorInner worldEdit = m_platform.getWorldEditIntegrator();
             if (worldEdit == null) {
-                return true;
+                return null;
             }
             
             LocalConfiguration config = worldEdit.getConfiguration();
             if (config == null) {
-                return true;
+                return null;
             }
 
             blackList = config.disallowedBlocks;
-            if (blackList == null) {
-                return true;
-            }
         }
 
-        if (blackList.isEmpty()) {
-            return true;
+        if (blackList == null || blackList.isEmpty()) {
+            return null;
         }
 
-        return !blackList.contains(newBlock.getBlockType().getId());
+        return blackList;
     }
 
     @Override
@@ -341,7 +396,8 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock);
+        return isAllowed(playerEntry, world, location, newBlock, false,
+                () -> m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock));
     }
 
     @Override
@@ -386,7 +442,8 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock, dc);
+        return isAllowed(playerEntry, world, location, newBlock, dc,
+                () -> m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock, dc));
     }
     
     @Override
@@ -431,7 +488,109 @@ public class BlocksHubBridge implements IBlocksHubBridge {
             return bhConfig.isAccessAllowed(AccessType.Offline);
         }
 
-        return m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock, dc);
+        return isAllowed(playerEntry, world, location, newBlock, dc,
+                () -> m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock, dc));
+    }
+
+    @Override
+    public boolean canEditChunk(IPlayerEntry playerEntry, IWorld world, BlockVector2 chunk, boolean dc) {
+        if (getBlackList(playerEntry) != null) {
+            return false;
+        }
+
+        if (!m_shouldProcess) { return true; }
+
+        if (playerEntry != null && playerEntry.isAllowed(Permission.BYPASS_BLOCKS_HUB)) {
+            return true;
+        }
+
+        ConfigBlocksHub bhConfig = ConfigProvider.blocksHub();
+
+        BHLevel level = bhConfig.getCheckAccess();
+        if (level == BHLevel.Disabled || (dc && level == BHLevel.Regular)) {
+            return true;
+        }
+
+        if (playerEntry == null) {
+            return bhConfig.isAccessAllowed(AccessType.Null);
+        }
+
+        boolean isUnknown = playerEntry.isUnknown()
+                || playerEntry.getName() == null || playerEntry.getName().isEmpty()
+                || playerEntry.getUUID() == null || !playerEntry.isPlayer();
+
+        boolean isConsole = playerEntry.isConsole();
+        boolean isOffline = playerEntry.isPlayer() && playerEntry.isDisposed();
+
+        if (isUnknown) {
+            return bhConfig.isAccessAllowed(AccessType.Unknown);
+        }
+        if (isConsole) {
+            return bhConfig.isAccessAllowed(AccessType.Console);
+        }
+
+        if (isOffline) {
+            return bhConfig.isAccessAllowed(AccessType.Offline);
+        }
+
+        if (world == null || chunk == null) {
+            return false;
+        }
+
+        return m_integrator.canEditChunk(playerEntry, world, chunk, dc);
+    }
+
+    @Override
+    public void stop() {
+        m_logger.stop();
+    }
+
+    @Override
+    public void invalidateAccess() {
+        m_accessCache.clear();
+    }
+
+    @Override
+    public void invalidateAccess(IPlayerEntry playerEntry) {
+        if (playerEntry == null) {
+            return;
+        }
+
+        m_accessCache.clear(playerEntry.getUUID());
+    }
+
+    /**
+     * Get the cached chunk access decision, place decisions (newBlock not
+     * null) are cached per placed block type
+     */
+    private boolean isAllowed(IPlayerEntry playerEntry, IWorld world, Vector3 location,
+            BlockStateHolder newBlock, boolean dc, BooleanSupplier check) {
+        if (world == null || location == null) {
+            return check.getAsBoolean();
+        }
+
+        int cx = (int) Math.floor(location.getX()) >> 4;
+        int cz = (int) Math.floor(location.getZ()) >> 4;
+
+        return m_accessCache.get(playerEntry.getUUID(), world.getUUID(), cx, cz,
+                newBlock != null ? newBlock.getBlockType() : null, dc,
+                ConfigProvider.blocksHub().getAccessCacheTime(), check);
+    }
+
+    /**
+     * Get the cached chunk access decision, place decisions (newBlock not
+     * null) are cached per placed block type
+     */
+    private boolean isAllowed(IPlayerEntry playerEntry, IWorld world, BlockVector3 location,
+            BlockStateHolder newBlock, boolean dc, BooleanSupplier check) {
+        if (world == null || location == null) {
+            return check.getAsBoolean();
+        }
+
+        return m_accessCache.get(playerEntry.getUUID(), world.getUUID(), 
+                location.getBlockX() >> 4, location.getBlockZ() >> 4,
+                newBlock != null ? newBlock.getBlockType() : null, dc,
+                ConfigProvider.blocksHub().getAccessCacheTime(), check);
     }
 
     @Override
@@ -443,6 +602,7 @@ public class BlocksHubBridge implements IBlocksHubBridge {
         log(String.format("Initializing BlocksHub using %1$s...", blocksHubPlugin.getClass().getName()));
 
         m_shouldProcess = false;
+        m_accessCache.clear();
         for (IBlocksHubFactory factory : m_factories.keySet()) {
             IBlocksHubIntegration integrator = create(factory, blocksHubPlugin);
 
@@ -47,9 +47,11 @@
  */
 package org.primesoft.asyncworldedit.blockshub;
 
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.UUID;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
@@ -65,6 +67,11 @@ public class NullBlocksHubIntegration implements IBlocksHubIntegration {
             BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc) {        
     }
 
+    @Override
+    public void logBlock(UUID playerUuid, String playerName, IWorld world, BlockVector3 location,
+            BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc) {
+    }
+
     @Override
     public boolean canPlace(IPlayerEntry playerEntry, IWorld world, BlockVector3 location, 
             BlockStateHolder oldBlock, BlockStateHolder newBlock) {
@@ -98,6 +105,11 @@ public class NullBlocksHubIntegration implements IBlocksHubIntegration {
         return true;
     }
 
+    @Override
+    public boolean canEditChunk(IPlayerEntry playerEntry, IWorld world, BlockVector2 chunk, boolean dc) {
+        return true;
+    }
+
     @Override
     public boolean isReal() {
         return false;
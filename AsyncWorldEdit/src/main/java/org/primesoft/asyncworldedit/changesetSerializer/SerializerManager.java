@@ -56,18 +56,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IChangesetSerializer;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
@@ -82,7 +83,7 @@ import org.primesoft.asyncworldedit.configuration.ConfigMemory;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.configuration.UndoBehaviour;
 import org.primesoft.asyncworldedit.strings.MessageType;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.FrameCacheStream;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.GCUtils;
 import org.primesoft.asyncworldedit.utils.io.VarInt;
@@ -101,7 +102,22 @@ public final class SerializerManager implements IInnerSerializerManager {
 
     private final String MEMORY_ENTRY = "++MEMORY++";
 
-    private final String PREFIX = "ts";
+    final static String PREFIX = "ts";
+
+    /**
+     * The undo file frame size (uncompressed)
+     */
+    private final static int FRAME_SIZE = 0x40000;
+
+    /**
+     * The undo file frame compression level
+     */
+    private final static int FRAME_COMPRESSION = Deflater.BEST_SPEED;
+
+    /**
+     * Maximum size of the compressed data written to the undo file at once
+     */
+    private final static int COMMIT_SIZE = 0x400000;
 
     /**
      * Current memory storage seed
@@ -111,7 +127,7 @@ public final class SerializerManager implements IInnerSerializerManager {
     /**
      * List of all undo descriptors
      */
-    private final Map<File, UndoDescriptor> m_undoDescriptors = new HashMap<>();
+    private final Map<File, UndoDescriptor> m_undoDescriptors = new ConcurrentHashMap<>();
 
     /**
      * List of all known serializers
@@ -187,6 +203,8 @@ public final class SerializerManager implements IInnerSerializerManager {
                 Integer.toHexString(ua),
                 id));
 
+        UndoCatalog.getInstance().add(undoFile, player.getUUID(), timestamp);
+
         if (!playerFolder.exists()) {
             playerFolder.mkdirs();
         }
@@ -224,6 +242,8 @@ public final class SerializerManager implements IInnerSerializerManager {
         } catch (IOException ioe) {
             ExceptionHelper.printException(ioe, "Unable to close undo file.");
         }
+
+        UndoCatalog.getInstance().close(storageFile);
     }
 
     @Override
@@ -257,36 +277,33 @@ public final class SerializerManager implements IInnerSerializerManager {
         sp.addReference(fileNameIdx);
 
         synchronized (ud.getMutex()) {
-            FileOutputStream stream = null;
-            FileOutputStream streamIdx = null;
-
             try {
-                stream = new FileOutputStream(fileName, true);
-                streamIdx = new FileOutputStream(fileNameIdx, true);
+                if (ud.isClosed()) {
+                    return;
+                }
+
+                final FileChannel channel = ud.getDataChannel();
+                final FileChannel channelIdx = ud.getIdxChannel();
 
-                ByteArrayOutputStream memoryOut = new ByteArrayOutputStream();
+                ByteArrayOutputStream memoryOut = new ByteArrayOutputStream(FRAME_SIZE + 0x1000);
                 ByteArrayOutputStream memoryOutIdx = new ByteArrayOutputStream();
+                ByteArrayOutputStream commitOut = new ByteArrayOutputStream();
 
                 DataOutputStream bufferStream = new DataOutputStream(memoryOut);
                 DataOutputStream bufferStreamIdx = new DataOutputStream(memoryOutIdx);
+                DataOutputStream commitStream = new DataOutputStream(commitOut);
 
                 for (Change change : data) {
-                    if (bufferStreamIdx.size() > 1000000) {
-                        bufferStreamIdx.flush();
-                        bufferStreamIdx.close();
-                        streamIdx.write(memoryOutIdx.toByteArray());
+                    if (bufferStream.size() > FRAME_SIZE) {
+                        FrameCacheStream.writeFrame(commitStream, memoryOut.toByteArray(), memoryOut.size(), FRAME_COMPRESSION);
 
-                        memoryOutIdx = new ByteArrayOutputStream();
-                        bufferStreamIdx = new DataOutputStream(memoryOutIdx);
-                    }
-                    if (bufferStream.size() > 1000000) {
-                        bufferStream.flush();
-                        bufferStream.close();
-                        stream.write(memoryOut.toByteArray());
-
-                        memoryOut = new ByteArrayOutputStream();
+                        memoryOut.reset();
                         bufferStream = new DataOutputStream(memoryOut);
                     }
+                    if (commitOut.size() > COMMIT_SIZE) {
+                        commit(channel, commitOut);
+                        commit(channelIdx, memoryOutIdx);
+                    }
 
                     long size = save(ud, bufferStream, change);
                     VarInt.writeLong(bufferStreamIdx, size);
@@ -296,41 +313,11 @@ public final class SerializerManager implements IInnerSerializerManager {
                     }
                 }
 
-                bufferStream.flush();
-                bufferStream.close();
-
-                bufferStreamIdx.flush();
-                bufferStreamIdx.close();
-
-                memoryOut.flush();
-                memoryOut.close();
-
-                memoryOutIdx.flush();
-                memoryOutIdx.close();
-
-                stream.write(memoryOut.toByteArray());
-                stream.flush();
-                stream.close();
-
-                streamIdx.write(memoryOutIdx.toByteArray());
-                streamIdx.flush();
-                streamIdx.close();
+                FrameCacheStream.writeFrame(commitStream, memoryOut.toByteArray(), memoryOut.size(), FRAME_COMPRESSION);
+                commit(channel, commitOut);
+                commit(channelIdx, memoryOutIdx);
             } catch (IOException ioe) {
                 ExceptionHelper.printException(ioe, String.format("Unable to save undo data. Data might be corrupted"));
-
-                if (stream != null) {
-                    try {
-                        stream.close();
-                    } catch (IOException ex) {
-                    }
-                }
-
-                if (streamIdx != null) {
-                    try {
-                        streamIdx.close();
-                    } catch (IOException ex) {
-                    }
-                }
             } finally {
                 sp.release();
                 sp.release();
@@ -341,6 +328,26 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
     }
 
+    /**
+     * Write the buffered data to the undo file
+     *
+     * @param channel
+     * @param data
+     * @throws IOException
+     */
+    private static void commit(FileChannel channel, ByteArrayOutputStream data) throws IOException {
+        if (data.size() == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        data.reset();
+    }
+
     @Override
     public List<Change> load(File storageFile, int entries,
             IPlayerEntry player, ICancelabeEditSession editSession) {
@@ -364,17 +371,20 @@ public final class SerializerManager implements IInnerSerializerManager {
         final StreamProvider sp = StreamProvider.getInstance();
         final File fileName = ud.getFile();
 
+        UndoCatalog.getInstance().touch(fileName);
+
         sp.reserve();
         sp.addReference(fileName);
 
         synchronized (mutex) {
             RandomAccessFile stream = null;
+            IChunkCacheStream dataStream = null;
             try {
                 stream = new RandomAccessFile(fileName, "r");
                 UndoEntry uEntry;
                 boolean breakLoop = false;
 
-                IChunkCacheStream dataStream = new ChunkCacheStream(stream);
+                dataStream = new FrameCacheStream(StreamProvider.createInputStream(stream, 4, 0x10000));
 
                 do {
                     uEntry = UndoEntry.load(dataStream);
@@ -414,10 +424,18 @@ public final class SerializerManager implements IInnerSerializerManager {
                     }
                 } while (uEntry != null && result.size() < entries && !breakLoop);
 
+                dataStream.close();
                 stream.close();
             } catch (IOException ioe) {
                 ExceptionHelper.printException(ioe, "Unable to load undo data. Data might be corrupted.");
 
+                if (dataStream != null) {
+                    try {
+                        dataStream.close();
+                    } catch (IOException ex) {
+                    }
+                }
+
                 if (stream != null) {
                     try {
                         stream.close();
@@ -451,7 +469,37 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
 
         data.setId(idx);
-        return save(stream, data);
+
+        final UndoPalette types = descriptor.getTypes();
+        final int typeId = types.getOrAdd(data.getType());
+        final int start = stream.size();
+
+        saveTableEntries(stream, UndoEntry.RECORD_TYPE, types);
+        saveTableEntries(stream, UndoEntry.RECORD_BLOCK, descriptor.getBlockPalette());
+        UndoEntry.save(stream, data, typeId);
+
+        return stream.size() - start;
+    }
+
+    /**
+     * Save the palette entries that are not yet stored in the undo file
+     *
+     * @param stream
+     * @param record
+     * @param palette
+     * @throws IOException
+     */
+    private void saveTableEntries(DataOutputStream stream, byte record, UndoPalette palette) throws IOException {
+        if (!palette.hasPending()) {
+            return;
+        }
+
+        final List<String> pending = new ArrayList<>();
+        int idx = palette.drainPending(pending);
+
+        for (String value : pending) {
+            UndoEntry.saveTableEntry(stream, record, idx++, value);
+        }
     }
 
     /**
@@ -536,6 +584,10 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
 
         String type = entry.getType();
+        if (entry instanceof UndoEntry && ((UndoEntry) entry).getTypeId() >= 0) {
+            type = storage instanceof UndoDescriptor
+                    ? ((UndoDescriptor) storage).getTypes().get(((UndoEntry) entry).getTypeId()) : null;
+        }
         if (type == null) {
             return null;
         }
@@ -624,6 +676,16 @@ public final class SerializerManager implements IInnerSerializerManager {
 
     @Override
     public Long getTimestamp(File file) {
+        return parseTimestamp(file);
+    }
+
+    /**
+     * Get the undo file creation time from the file name
+     *
+     * @param file
+     * @return
+     */
+    static Long parseTimestamp(File file) {
         if (file == null) {
             return null;
         }
@@ -48,11 +48,16 @@
 package org.primesoft.asyncworldedit.changesetSerializer;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.configuration.DebugLevel;
+import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.MappedCacheStream;
 
 /**
  *
@@ -167,6 +172,7 @@ public class StreamProvider {
                     log(String.format("Error removing file %1$s", m_file));
                 } else {
                     m_isRemoved = true;
+                    UndoCatalog.getInstance().remove(m_file);
                 }
             } else {
                 m_isRemoved = true;
@@ -211,6 +217,25 @@ public class StreamProvider {
         return s_instance;
     }
 
+    /**
+     * Create the undo file input stream, based on the configuration the file
+     * is memory mapped or read using the chunk cache
+     *
+     * @param stream The opened file
+     * @param maxChunks Maximum number of cached chunks
+     * @param chunkSize The chunk size
+     * @return
+     * @throws IOException
+     */
+    public static IChunkCacheStream createInputStream(RandomAccessFile stream,
+            int maxChunks, int chunkSize) throws IOException {
+        if (ConfigProvider.undo().isMemoryMapped()) {
+            return new MappedCacheStream(stream.getChannel());
+        }
+
+        return new ChunkCacheStream(stream, maxChunks, chunkSize);
+    }
+
     /**
      * The MTA access mutex
      */
@@ -0,0 +1,712 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import static org.primesoft.asyncworldedit.LoggerProvider.log;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+
+/**
+ * The persistent catalog of the undo files. The catalog is stored in the
+ * undo folder as an append only journal that is compacted when it grows too
+ * large. It allows the undo cleanup to visit only the expired files and to
+ * evict the least recently used files when the undo folder is over quota.
+ *
+ * @author SBPrime
+ */
+public final class UndoCatalog {
+
+    /**
+     * The catalog file name
+     */
+    private final static String CATALOG_FILE = "undo.catalog";
+
+    /**
+     * The journal record types
+     */
+    private final static byte OP_ADD = 1;
+    private final static byte OP_SIZE = 2;
+    private final static byte OP_TOUCH = 3;
+    private final static byte OP_REMOVE = 4;
+
+    /**
+     * Number of journal records allowed above the number of entries
+     * before the journal is compacted
+     */
+    private final static int COMPACT_SLACK = 1024;
+
+    /**
+     * Maximum time the journal records are kept in the write buffer (ms)
+     */
+    private final static long FLUSH_INTERVAL = 5000;
+
+    /**
+     * Time to wait before the journal is rewritten after a write error (ms)
+     */
+    private final static long RETRY_INTERVAL = 30000;
+
+    /**
+     * The instance of UndoCatalog
+     */
+    private final static UndoCatalog s_instance = new UndoCatalog(ConfigProvider::getUndoFolder);
+
+    /**
+     * Get the instance of undo catalog
+     *
+     * @return
+     */
+    public static UndoCatalog getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * The catalog entry
+     */
+    private final static class Entry {
+
+        final File file;
+
+        final String name;
+
+        final UUID owner;
+
+        final long created;
+
+        long size;
+
+        boolean inUse;
+
+        Entry(File file, String name, UUID owner, long created, long size) {
+            this.file = file;
+            this.name = name;
+            this.owner = owner;
+            this.created = created;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The MTA mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * The current undo folder provider
+     */
+    private final Supplier<File> m_undoFolder;
+
+    /**
+     * All entries in the least recently used order
+     */
+    private final LinkedHashMap<String, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * All entries ordered by the creation time
+     */
+    private final TreeSet<Entry> m_byCreated = new TreeSet<>(
+            Comparator.<Entry>comparingLong(i -> i.created).thenComparing(i -> i.name));
+
+    /**
+     * Number of entries for each owner
+     */
+    private final Map<UUID, Integer> m_ownerEntries = new HashMap<>();
+
+    /**
+     * The total size of all entries
+     */
+    private long m_totalSize;
+
+    /**
+     * The undo folder the catalog is loaded for
+     */
+    private File m_folder;
+
+    /**
+     * The journal stream
+     */
+    private DataOutputStream m_journal;
+
+    /**
+     * Number of records in the journal
+     */
+    private int m_journalRecords;
+
+    /**
+     * Last journal flush time
+     */
+    private long m_lastFlush;
+
+    /**
+     * The journal is not rewritten before this time after a write error
+     */
+    private long m_retryTime;
+
+    UndoCatalog(Supplier<File> undoFolder) {
+        m_undoFolder = undoFolder;
+    }
+
+    /**
+     * Add new undo file to the catalog
+     *
+     * @param file the undo data file
+     * @param owner the undo file owner
+     * @param created the undo file creation time
+     */
+    public void add(File file, UUID owner, long created) {
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return;
+            }
+
+            String name = getName(file);
+            Entry entry = m_entries.get(name);
+            if (entry != null) {
+                removeEntry(entry);
+            }
+
+            entry = new Entry(file, name, owner, created, 0);
+            entry.inUse = true;
+            addEntry(entry);
+
+            writeRecord(OP_ADD, entry);
+        }
+    }
+
+    /**
+     * Mark the undo file as closed and update its size
+     *
+     * @param file
+     */
+    public void close(File file) {
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return;
+            }
+
+            Entry entry = m_entries.get(getName(file));
+            if (entry == null) {
+                return;
+            }
+
+            entry.inUse = false;
+            setSize(entry, getSize(file));
+
+            writeRecord(OP_SIZE, entry);
+        }
+    }
+
+    /**
+     * Mark the undo file as recently used
+     *
+     * @param file
+     */
+    public void touch(File file) {
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return;
+            }
+
+            Entry entry = m_entries.get(getName(file));
+            if (entry == null) {
+                return;
+            }
+
+            writeRecord(OP_TOUCH, entry);
+        }
+    }
+
+    /**
+     * Remove the undo file from the catalog. If this was the last file of the
+     * owner the owner folder is removed when empty.
+     *
+     * @param file
+     */
+    public void remove(File file) {
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return;
+            }
+
+            Entry entry = m_entries.get(getName(file));
+            if (entry == null) {
+                return;
+            }
+
+            removeEntry(entry);
+            writeRecord(OP_REMOVE, entry);
+
+            if (!m_ownerEntries.containsKey(entry.owner)) {
+                File folder = file.getParentFile();
+                String[] files = folder != null ? folder.list() : null;
+
+                if (files != null && files.length == 0 && !folder.delete()) {
+                    log(String.format("Unable to remove undo folder %1$s", folder));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the undo files created before the provided time that are not in use
+     *
+     * @param time
+     * @return
+     */
+    public List<File> getExpired(long time) {
+        final List<File> result = new ArrayList<>();
+
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return result;
+            }
+
+            for (Entry entry : m_byCreated) {
+                if (entry.created > time) {
+                    break;
+                }
+
+                if (!entry.inUse) {
+                    result.add(entry.file);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the least recently used undo files that need to be removed to fit
+     * the undo folder in the quota
+     *
+     * @param quota the maximum size of all undo files (in bytes)
+     * @return
+     */
+    public List<File> getOverQuota(long quota) {
+        final List<File> result = new ArrayList<>();
+
+        synchronized (m_mutex) {
+            if (!ensureLoaded()) {
+                return result;
+            }
+
+            long size = m_totalSize;
+            Iterator<Entry> it = m_entries.values().iterator();
+            while (size > quota && it.hasNext()) {
+                Entry entry = it.next();
+
+                if (!entry.inUse) {
+                    result.add(entry.file);
+                    size -= entry.size;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the buffered journal records to the disk
+     */
+    public void flush() {
+        synchronized (m_mutex) {
+            if (m_journal == null) {
+                return;
+            }
+
+            try {
+                flushJournal();
+            } catch (IOException ex) {
+                onJournalError(ex);
+            }
+        }
+    }
+
+    /**
+     * Close the catalog journal
+     */
+    public void close() {
+        synchronized (m_mutex) {
+            closeJournal();
+
+            m_folder = null;
+            m_entries.clear();
+            m_byCreated.clear();
+            m_ownerEntries.clear();
+            m_totalSize = 0;
+        }
+    }
+
+    /**
+     * Load the catalog for the current undo folder. The loaded catalog is
+     * kept in memory even when the journal can not be written.
+     *
+     * @return
+     */
+    private boolean ensureLoaded() {
+        final File folder = m_undoFolder.get();
+        if (folder == null) {
+            return false;
+        }
+
+        if (folder.equals(m_folder)) {
+            return true;
+        }
+
+        close();
+        m_folder = folder;
+
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+
+        final File catalogFile = new File(folder, CATALOG_FILE);
+        if (catalogFile.exists()) {
+            readJournal(catalogFile);
+        } else {
+            scanFolder(folder);
+        }
+
+        compact();
+
+        return true;
+    }
+
+    /**
+     * Read the journal file
+     *
+     * @param catalogFile
+     */
+    private void readJournal(File catalogFile) {
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogFile)))) {
+            while (true) {
+                final byte op = stream.readByte();
+                final String name = stream.readUTF();
+
+                switch (op) {
+                    case OP_ADD: {
+                        UUID owner = new UUID(stream.readLong(), stream.readLong());
+                        long created = stream.readLong();
+                        long size = stream.readLong();
+
+                        Entry old = m_entries.get(name);
+                        if (old != null) {
+                            removeEntry(old);
+                        }
+                        addEntry(new Entry(new File(m_folder, name), name, owner, created, size));
+                        break;
+                    }
+                    case OP_SIZE: {
+                        long size = stream.readLong();
+                        Entry entry = m_entries.get(name);
+                        if (entry != null) {
+                            setSize(entry, size);
+                        }
+                        break;
+                    }
+                    case OP_TOUCH:
+                        m_entries.get(name);
+                        break;
+                    case OP_REMOVE: {
+                        Entry entry = m_entries.get(name);
+                        if (entry != null) {
+                            removeEntry(entry);
+                        }
+                        break;
+                    }
+                    default:
+                        log(String.format("Undo catalog %1$s is corrupted, ignoring the remaining entries.", catalogFile));
+                        return;
+                }
+            }
+        } catch (EOFException ex) {
+            //End of the journal
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, String.format("Unable to read undo catalog %1$s", catalogFile));
+        }
+    }
+
+    /**
+     * Build the catalog from the undo folder content, used when there is
+     * no catalog file
+     *
+     * @param folder
+     */
+    private void scanFolder(File folder) {
+        log("Building the undo files catalog...");
+
+        try (Stream<File> files = Files.walk(folder.toPath(), 2, FileVisitOption.FOLLOW_LINKS)
+                .map(i -> i.toFile())) {
+            files.filter(i -> i.isFile() && i.getName().startsWith(SerializerManager.PREFIX)
+                    && !i.getName().endsWith(".idx"))
+                    .forEach(i -> {
+                        Long created = SerializerManager.parseTimestamp(i);
+                        UUID owner = parseOwner(i);
+                        if (created == null || owner == null) {
+                            return;
+                        }
+
+                        addEntry(new Entry(i, getName(i), owner, created, getSize(i)));
+                    });
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to build the undo files catalog.");
+        }
+
+        final File[] folders = folder.listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File f : folders) {
+                String[] files = f.list();
+                if (files != null && files.length == 0 && !f.delete()) {
+                    log(String.format("Unable to remove undo folder %1$s", f));
+                }
+            }
+        }
+
+        log(String.format("...undo files catalog contains %1$s files.", m_entries.size()));
+    }
+
+    /**
+     * Rewrite the journal using only the current entries
+     */
+    private void compact() {
+        closeJournal();
+
+        final File catalogFile = new File(m_folder, CATALOG_FILE);
+        final File tmpFile = new File(m_folder, CATALOG_FILE + ".tmp");
+
+        try {
+            try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                for (Entry entry : m_entries.values()) {
+                    writeRecord(stream, OP_ADD, entry);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), catalogFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            m_journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(catalogFile, true)));
+            m_journalRecords = m_entries.size();
+            m_lastFlush = System.currentTimeMillis();
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, String.format("Unable to write undo catalog %1$s", catalogFile));
+            m_retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+        }
+    }
+
+    /**
+     * Flush the journal stream
+     *
+     * @throws IOException
+     */
+    private void flushJournal() throws IOException {
+        m_journal.flush();
+        m_lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Drop the broken journal stream, the journal is rewritten from the
+     * in memory catalog on the next write after the retry interval
+     *
+     * @param ex
+     */
+    private void onJournalError(IOException ex) {
+        ExceptionHelper.printException(ex, "Unable to write undo catalog.");
+        closeJournal();
+        m_retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+    }
+
+    /**
+     * Close the journal stream
+     */
+    private void closeJournal() {
+        if (m_journal == null) {
+            return;
+        }
+
+        try {
+            m_journal.close();
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to close undo catalog.");
+        }
+        m_journal = null;
+    }
+
+    /**
+     * Append the record to the journal. The new entries are flushed at once,
+     * other records are flushed in batches. If the journal failed it is
+     * rewritten from the in memory catalog instead.
+     *
+     * @param op
+     * @param entry
+     */
+    private void writeRecord(byte op, Entry entry) {
+        final long now = System.currentTimeMillis();
+
+        if (m_journal == null) {
+            if (now >= m_retryTime) {
+                compact();
+            }
+            return;
+        }
+
+        try {
+            writeRecord(m_journal, op, entry);
+
+            if (op == OP_ADD || now - m_lastFlush >= FLUSH_INTERVAL) {
+                flushJournal();
+            }
+        } catch (IOException ex) {
+            onJournalError(ex);
+            return;
+        }
+
+        m_journalRecords++;
+        if (m_journalRecords > 2 * m_entries.size() + COMPACT_SLACK) {
+            compact();
+        }
+    }
+
+    private static void writeRecord(DataOutputStream stream, byte op, Entry entry) throws IOException {
+        stream.writeByte(op);
+        stream.writeUTF(entry.name);
+
+        switch (op) {
+            case OP_ADD:
+                stream.writeLong(entry.owner.getMostSignificantBits());
+                stream.writeLong(entry.owner.getLeastSignificantBits());
+                stream.writeLong(entry.created);
+                stream.writeLong(entry.size);
+                break;
+            case OP_SIZE:
+                stream.writeLong(entry.size);
+                break;
+        }
+    }
+
+    private void addEntry(Entry entry) {
+        m_entries.put(entry.name, entry);
+        m_byCreated.add(entry);
+        m_ownerEntries.merge(entry.owner, 1, Integer::sum);
+        m_totalSize += entry.size;
+    }
+
+    private void removeEntry(Entry entry) {
+        m_entries.remove(entry.name);
+        m_byCreated.remove(entry);
+        m_ownerEntries.computeIfPresent(entry.owner, (_o, cnt) -> cnt > 1 ? cnt - 1 : null);
+        m_totalSize -= entry.size;
+    }
+
+    private void setSize(Entry entry, long size) {
+        m_totalSize += size - entry.size;
+        entry.size = size;
+    }
+
+    /**
+     * Get the catalog name of the file (relative to the undo folder)
+     *
+     * @param file
+     * @return
+     */
+    private static String getName(File file) {
+        File parent = file.getParentFile();
+
+        return parent != null ? parent.getName() + "/" + file.getName() : file.getName();
+    }
+
+    /**
+     * Get the undo file owner from the folder name
+     *
+     * @param file
+     * @return
+     */
+    private static UUID parseOwner(File file) {
+        File parent = file.getParentFile();
+        if (parent == null) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(parent.getName());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the size of the undo data and index file
+     *
+     * @param file
+     * @return
+     */
+    private static long getSize(File file) {
+        return file.length() + new File(file.getPath() + ".idx").length();
+    }
+}
@@ -51,6 +51,8 @@ import com.sk89q.worldedit.history.change.Change;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -65,12 +67,50 @@ import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
 public class UndoDescriptor implements IMemoryStorage {
 
     private final File m_file;
-    private boolean m_isClosed = false;
+    private volatile boolean m_isClosed = false;
     private final Object m_mutex = new Object();
     private long m_entryIdx;
 
     private final Map<UUID, Change> m_memoryChanges = new ConcurrentHashMap<UUID, Change>();
 
+    /**
+     * The undo data file channel
+     */
+    private FileChannel m_dataChannel;
+
+    /**
+     * The undo index file channel
+     */
+    private FileChannel m_idxChannel;
+
+    /**
+     * The interned change types
+     */
+    private final UndoPalette m_types = new UndoPalette();
+
+    /**
+     * The block states palette
+     */
+    private final UndoPalette m_blockPalette = new UndoPalette();
+
+    /**
+     * Get the interned change types
+     *
+     * @return
+     */
+    UndoPalette getTypes() {
+        return m_types;
+    }
+
+    /**
+     * Get the block states palette
+     *
+     * @return
+     */
+    public UndoPalette getBlockPalette() {
+        return m_blockPalette;
+    }
+
     /**
      * The current entry IDX
      *
@@ -120,6 +160,41 @@ public class UndoDescriptor implements IMemoryStorage {
         return m_file;
     }
 
+    /**
+     * Get the undo file channel, the channel is kept open until the
+     * descriptor is closed. Requires the MTA mutex.
+     *
+     * @return
+     * @throws IOException
+     */
+    FileChannel getDataChannel() throws IOException {
+        if (m_dataChannel == null) {
+            m_dataChannel = openChannel(m_file);
+        }
+
+        return m_dataChannel;
+    }
+
+    /**
+     * Get the undo index file channel, the channel is kept open until the
+     * descriptor is closed. Requires the MTA mutex.
+     *
+     * @return
+     * @throws IOException
+     */
+    FileChannel getIdxChannel() throws IOException {
+        if (m_idxChannel == null) {
+            m_idxChannel = openChannel(new File(m_file.getPath() + ".idx"));
+        }
+
+        return m_idxChannel;
+    }
+
+    private static FileChannel openChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
     /**
      * Store the change in memory
      *
@@ -163,6 +238,21 @@ public class UndoDescriptor implements IMemoryStorage {
 
     void close() throws IOException {
         m_isClosed = true;
+
+        synchronized (m_mutex) {
+            try {
+                if (m_dataChannel != null) {
+                    m_dataChannel.close();
+                }
+            } finally {
+                if (m_idxChannel != null) {
+                    m_idxChannel.close();
+                }
+            }
+
+            m_dataChannel = null;
+            m_idxChannel = null;
+        }
     }
 
     boolean isClosed() {
@@ -55,6 +55,7 @@ import java.nio.charset.Charset;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
  *
@@ -66,7 +67,23 @@ public class UndoEntry implements IUndoEntry {
     private final static int INT_SIZE = 4;
     private final static Charset UTF8 = Charset.forName("UTF8");
 
+    /**
+     * Undo file record: the undo entry
+     */
+    private final static byte RECORD_ENTRY = 0;
+
+    /**
+     * Undo file record: change type table entry
+     */
+    final static byte RECORD_TYPE = 1;
+
+    /**
+     * Undo file record: block state palette entry
+     */
+    final static byte RECORD_BLOCK = 2;
+
     private final String m_type;
+    private final int m_typeId;
     private final byte[] m_data;
     private long m_id = -1;
 
@@ -82,10 +99,63 @@ public class UndoEntry implements IUndoEntry {
 
     UndoEntry(String type, byte[] data, long id) {
         m_type = type == null ? "" : type;
+        m_typeId = -1;
+        m_data = data == null ? new byte[0] : data;
+        m_id = id;
+    }
+
+    private UndoEntry(int typeId, byte[] data, long id) {
+        m_type = "";
+        m_typeId = typeId;
         m_data = data == null ? new byte[0] : data;
         m_id = id;
     }
 
+    /**
+     * Get the index of the type in the undo file type table
+     *
+     * @return The type index or -1 if the type is stored in the entry
+     */
+    int getTypeId() {
+        return m_typeId;
+    }
+
+    /**
+     * Save the undo data to the undo file stream using the interned type
+     *
+     * @param stream
+     * @param entry
+     * @param typeId The index of the entry type in the type table
+     * @throws IOException
+     */
+    static void save(DataOutput stream, IUndoEntry entry, int typeId) throws IOException {
+        byte[] data = entry.getData();
+
+        stream.writeByte(RECORD_ENTRY);
+        VarInt.writeLong(stream, entry.getId());
+        VarInt.writeInt(stream, typeId);
+        VarInt.writeInt(stream, data.length);
+        stream.write(data);
+    }
+
+    /**
+     * Save the type table or block palette entry to the undo file stream
+     *
+     * @param stream
+     * @param record The record type
+     * @param idx The table index
+     * @param value The table value
+     * @throws IOException
+     */
+    static void saveTableEntry(DataOutput stream, byte record, int idx, String value) throws IOException {
+        byte[] valueBytes = value.getBytes(UTF8);
+
+        stream.writeByte(record);
+        VarInt.writeInt(stream, idx);
+        VarInt.writeInt(stream, valueBytes.length);
+        stream.write(valueBytes);
+    }
+
     /**
      * Save the undo data to stream
      *
@@ -190,48 +260,45 @@ public class UndoEntry implements IUndoEntry {
     }
 
     /**
-     * Load the undo data from stream
+     * Load the undo data from the undo file stream, the type table and block
+     * palette records are skipped
      *
      * @param stream
      * @return
      * @throws IOException
      */
     static UndoEntry load(IChunkCacheStream stream) throws IOException {
-        long pos = stream.getFilePointer();
         long length = stream.length();
 
-        if (length - pos < LONG_SIZE) {
-            return null;
-        }
-        long id = stream.readLong();//The ID
-        pos += LONG_SIZE;
+        while (stream.getFilePointer() < length) {
+            byte record = stream.readByte();
 
-        if (length - pos < INT_SIZE) {
-            return null;
-        }
-        int typeLen = stream.readInt();
-        pos += INT_SIZE;
+            if (record != RECORD_ENTRY) {
+                //The tables are kept in the undo descriptor, skip the entry
+                VarInt.readInt(stream);
+                int valueLen = VarInt.readInt(stream);
+                if (length - stream.getFilePointer() < valueLen) {
+                    return null;
+                }
 
-        if (length - pos < typeLen) {
-            return null;
-        }
-        byte[] typeBytes = new byte[typeLen];
-        stream.readFully(typeBytes);
-        pos += typeLen;
+                stream.skipBytes(valueLen);
+                continue;
+            }
 
-        if (length - pos < INT_SIZE) {
-            return null;
-        }
-        int dataLen = stream.readInt();
-        pos += INT_SIZE;
+            long id = VarInt.readLong(stream);
+            int typeId = VarInt.readInt(stream);
+            int dataLen = VarInt.readInt(stream);
 
-        if (length - pos < dataLen) {
-            return null;
+            if (length - stream.getFilePointer() < dataLen) {
+                return null;
+            }
+            byte[] data = new byte[dataLen];
+            stream.readFully(data);
+
+            return new UndoEntry(typeId, data, id);
         }
-        byte[] data = new byte[dataLen];
-        stream.readFully(data);
 
-        return new UndoEntry(new String(typeBytes, UTF8), data, id);
+        return null;
     }
 
     /**
@@ -58,7 +58,7 @@ import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
 import org.primesoft.asyncworldedit.api.utils.IDisposable;
 import org.primesoft.asyncworldedit.changesetSerializer.StreamProvider;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.FrameCacheStream;
 import org.primesoft.asyncworldedit.worldedit.history.changeset.ThreadSafeChangeSet;
 
 /**
@@ -111,7 +111,7 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
         }
 
         final StreamProvider sp = StreamProvider.getInstance();
-        final RandomAccessFile stream;
+        RandomAccessFile stream = null;
         final IChunkCacheStream dataStream;
 
         sp.reserve();
@@ -119,11 +119,18 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
 
         try {
             stream = new RandomAccessFile(storageFile, "r");
-            dataStream = new ChunkCacheStream(stream);
+            dataStream = new FrameCacheStream(StreamProvider.createInputStream(stream, 4, 0x10000));
 
         } catch (IOException ex) {
             ExceptionHelper.printException(ex, String.format("Unable to create undo iterator for %1$s", storageFile.getName()));
 
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ioe) {
+                }
+            }
+
             sp.removeReference(storageFile);
             sp.release();
 
@@ -174,6 +181,12 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
                 return;
             }
 
+            try {
+                m_dataStream.close();
+            } catch (IOException ioe) {
+
+            }
+
             try {
                 m_stream.close();
             } catch (IOException ioe) {
@@ -52,10 +52,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
 import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
 import org.primesoft.asyncworldedit.changesetSerializer.StreamProvider;
 import org.primesoft.asyncworldedit.api.io.SeekOrigin;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
 import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
@@ -98,10 +98,11 @@ public class UndoFileBackwordIterator extends BaseFileIterator {
         sp.addReference(idxFile);
 
         RandomAccessFile inputStream = null;
+        IChunkCacheStream io = null;
         try {
             inputStream = new RandomAccessFile(idxFile, "r");
 
-            ChunkCacheStream io = new ChunkCacheStream(inputStream, 4, 0x10000);
+            io = StreamProvider.createInputStream(inputStream, 4, 0x10000);
 
             for (int i = 0; i < m_storageSize; i++) {
                 m_offsets[i] = pos;
@@ -112,6 +113,13 @@ public class UndoFileBackwordIterator extends BaseFileIterator {
 
             return false;
         } finally {
+            if (io != null) {
+                try {
+                    io.close();
+                } catch (Exception ex) {
+                }
+            }
+
             if (inputStream != null) {
                 try {
                     inputStream.close();
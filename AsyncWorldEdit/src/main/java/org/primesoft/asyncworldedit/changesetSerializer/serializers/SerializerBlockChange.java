@@ -61,13 +61,19 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IChangesetSerializer;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoDescriptor;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoPalette;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
 import org.primesoft.asyncworldedit.worldedit.blocks.BlockStates;
 import org.bukkit.Bukkit;
 
 /**
+ * The block change serializer. Positions are stored as the chunk coordinates
+ * and the chunk relative block position, block states are stored as the undo
+ * file palette indexes (when available).
  *
  * @author SBPrime
  */
@@ -106,15 +112,16 @@ public class SerializerBlockChange implements IChangesetSerializer {
             previous = BlockStates.AIR;
         }
 
+        final UndoPalette palette = getPalette(storage);
+
         try {
             UnsafeDataOutput stream = new UnsafeDataOutput();
 
-            stream.writeDouble(position.getX());
-            stream.writeDouble(position.getY());
-            stream.writeDouble(position.getZ());
+            stream.writeBoolean(palette != null);
+            writePosition(stream, position);
 
-            writeBlock(stream, previous);
-            writeBlock(stream, current);
+            writeBlock(stream, palette, previous);
+            writeBlock(stream, palette, current);
 
             return stream.toByteArray();
         } catch (IOException ex) {
@@ -132,27 +139,78 @@ public class SerializerBlockChange implements IChangesetSerializer {
         try {
             UnsafeDataInput stream = new UnsafeDataInput(data);
 
-            double x = stream.readDouble();
-            double y = stream.readDouble();
-            double z = stream.readDouble();
+            final UndoPalette palette;
+            if (stream.readBoolean()) {
+                palette = getPalette(storage);
+                if (palette == null) {
+                    return null;
+                }
+            } else {
+                palette = null;
+            }
+
+            BlockVector3 position = readPosition(stream);
 
-            BlockStateHolder previous = readBlock(stream);
-            BlockStateHolder current = readBlock(stream);
+            BlockStateHolder previous = readBlock(stream, palette);
+            BlockStateHolder current = readBlock(stream, palette);
 
-            return new BlockChange(BlockVector3.at(x, y, z), previous, current);
+            return new BlockChange(position, previous, current);
         } catch (IOException ioe) {
             ExceptionHelper.printException(ioe, "Unable to deserialize BlockChange");
             return null;
         }
     }
 
+    /**
+     * Get the undo file block palette
+     *
+     * @param storage
+     * @return
+     */
+    private UndoPalette getPalette(IMemoryStorage storage) {
+        return storage instanceof UndoDescriptor ? ((UndoDescriptor) storage).getBlockPalette() : null;
+    }
+
+    /**
+     * Serialize block position (chunk coordinates and position in chunk)
+     *
+     * @param stream
+     * @param position
+     */
+    static void writePosition(DataOutput stream, BlockVector3 position) throws IOException {
+        final int x = position.getX();
+        final int z = position.getZ();
+
+        VarInt.writeSignedInt(stream, x >> 4);
+        VarInt.writeSignedInt(stream, z >> 4);
+        stream.writeByte((x & 0xf) | ((z & 0xf) << 4));
+        VarInt.writeSignedInt(stream, position.getY());
+    }
+
+    /**
+     * Deserialize block position
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    static BlockVector3 readPosition(DataInput stream) throws IOException {
+        final int cx = VarInt.readSignedInt(stream);
+        final int cz = VarInt.readSignedInt(stream);
+        final int xz = stream.readUnsignedByte();
+        final int y = VarInt.readSignedInt(stream);
+
+        return BlockVector3.at((cx << 4) | (xz & 0xf), y, (cz << 4) | (xz >> 4));
+    }
+
     /**
      * Serialize block data
      *
      * @param stream
+     * @param palette
      * @param block
      */
-    private void writeBlock(DataOutput stream, BlockStateHolder bsh) throws IOException {
+    private void writeBlock(DataOutput stream, UndoPalette palette, BlockStateHolder bsh) throws IOException {
         final String id;
         final boolean isBs = isBlockState(bsh);
         final BaseBlock block;
@@ -163,34 +221,81 @@ public class SerializerBlockChange implements IChangesetSerializer {
         } else {
             block = bsh.toBaseBlock();
             id = block.toImmutableState().getAsString();
-        }                 
-        final byte[] idData = id.getBytes(UTF8);
-        final int idLength = idData.length;
-        
-        stream.writeBoolean(isBs);
-        stream.writeInt(idLength);
-        stream.write(idData);
+        }
 
-        NbtTagSerializer.serialize(stream, block != null && block.hasNbtData() ? block.getNbtData() : NbtTagSerializer.END_TAG);
+        if (palette != null) {
+            writePaletteEntry(stream, palette, id, isBs);
+        } else {
+            final byte[] idData = id.getBytes(UTF8);
+
+            stream.writeBoolean(isBs);
+            VarInt.writeInt(stream, idData.length);
+            stream.write(idData);
+        }
+
+        if (!isBs) {
+            NbtTagSerializer.serialize(stream, block.hasNbtData() ? block.getNbtData() : NbtTagSerializer.END_TAG);
+        }
     }
 
-    private BlockStateHolder readBlock(DataInput stream) throws IOException {
-        final boolean isBs = stream.readBoolean();
-        final int idLength = stream.readInt();
-        final byte[] idData = new byte[idLength];
-        stream.readFully(idData);
-        String id = new String(idData, UTF8);
+    private BlockStateHolder readBlock(DataInput stream, UndoPalette palette) throws IOException {
+        final boolean isBs;
+        final String id;
+
+        if (palette != null) {
+            final int entry = readPaletteEntry(stream);
 
-        final BlockState state = BlockFactory.getState(id);
+            isBs = (entry & 1) != 0;
+            id = palette.get(entry >>> 1);
+        } else {
+            isBs = stream.readBoolean();
+
+            final int idLength = VarInt.readInt(stream);
+            final byte[] idData = new byte[idLength];
+            stream.readFully(idData);
+            id = new String(idData, UTF8);
+        }
+
+        final BlockState state = id != null ? BlockFactory.getState(id) : null;
+        if (isBs) {
+            return state;
+        }
+
+        Tag nbtTag = NbtTagSerializer.deserialize(stream);
         if (state == null) {
             return null;
         }
-        Tag nbtTag = NbtTagSerializer.deserialize(stream);
         if (nbtTag instanceof CompoundTag) {
             return state.toBaseBlock((CompoundTag) nbtTag);
         }
 
-        return isBs ? state : state.toBaseBlock();
+        return state.toBaseBlock();
+    }
+
+    /**
+     * Serialize the block palette entry (palette index and the block state
+     * flag in the lowest bit)
+     *
+     * @param stream
+     * @param palette
+     * @param id
+     * @param isBs
+     * @throws IOException
+     */
+    static void writePaletteEntry(DataOutput stream, UndoPalette palette, String id, boolean isBs) throws IOException {
+        VarInt.writeInt(stream, (palette.getOrAdd(id) << 1) | (isBs ? 1 : 0));
+    }
+
+    /**
+     * Deserialize the block palette entry
+     *
+     * @param stream
+     * @return The palette index shifted left by one and the block state flag
+     * in the lowest bit
+     * @throws IOException
+     */
+    static int readPaletteEntry(DataInput stream) throws IOException {
+        return VarInt.readInt(stream);
     }
 
     private BaseBlock safeToBaseBlock(final BlockStateHolder bsh) {
@@ -56,7 +56,6 @@ import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerChange;
 import org.primesoft.asyncworldedit.changesetSerializer.UndoEntry;
-import org.primesoft.asyncworldedit.utils.Compression;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
@@ -107,7 +106,7 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
                 UndoEntry.save(stream, entry);
             }
 
-            return Compression.compress(stream.toByteArray());
+            return stream.toByteArray();
         } catch (IOException ex) {
             ExceptionHelper.printException(ex, "Unable to serialize BlockPlacerChange");
             return null;
@@ -117,8 +116,6 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
     @Override
     public Change deserialize(byte[] data, IMemoryStorage storage) {
         try {
-            data = Compression.decompress(data);
-            
             UnsafeDataInput stream = new UnsafeDataInput(data);
 
             boolean isDemanding = stream.readBoolean();
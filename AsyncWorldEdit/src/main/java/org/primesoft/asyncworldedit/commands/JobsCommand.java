@@ -184,7 +184,7 @@ public class JobsCommand {
             } else {
                 for (IPlayerEntry pw : users) {
                     IBlockPlacerPlayer entry = bPlacer.getPlayerEvents(pw);
-                    int cnt = entry != null ? entry.getQueue().size() : 0;                    
+                    int cnt = entry != null ? entry.getQueueSize() : 0;                    
                     String name = pw.getName();
                     lines.add(MessageType.CMD_JOBS_OTHER_SHORT.format(name, cnt));
                     if (entry != null) {
@@ -55,11 +55,17 @@ import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
  * @author SBPrime
  */
 public class ConfigBlocksHub {
+    private static final int DEFAULT_LOG_MAX_PENDING = 100000;
+
     private final EnumSet<AccessType> m_accessOverride;
     
     private final BHLevel m_checkAccess;
 
     private final BHLevel m_logBlocks;
+
+    private final long m_accessCacheTime;
+
+    private final int m_logMaxPending;
     
     
 
@@ -82,6 +88,24 @@ public class ConfigBlocksHub {
     }
     
     
+    /**
+     * The maximum number of block changes waiting to be logged
+     *
+     * @return
+     */
+    public int getLogMaxPending() {
+        return m_logMaxPending;
+    }
+
+    /**
+     * How long (in ms) the chunk access decisions are cached
+     *
+     * @return
+     */
+    public long getAccessCacheTime() {
+        return m_accessCacheTime;
+    }
+    
     /**
      * World access override for "special" player entries
      *
@@ -96,14 +120,19 @@ public class ConfigBlocksHub {
         m_accessOverride = EnumSet.noneOf(AccessType.class);
         if (bhSection == null) {
             m_logBlocks = BHLevel.Regular;
+            m_logMaxPending = DEFAULT_LOG_MAX_PENDING;
             m_checkAccess = BHLevel.Disabled;
+            m_accessCacheTime = 0;
             return;
         }
 
         IConfigurationSection logSection = bhSection.getConfigurationSection("log");
         if (logSection == null) {
             m_logBlocks = BHLevel.Regular;
+            m_logMaxPending = DEFAULT_LOG_MAX_PENDING;
         } else {
+            m_logMaxPending = Math.max(1, logSection.getInt("maxPending", DEFAULT_LOG_MAX_PENDING));
+
             boolean isEnabled = logSection.getBoolean("isEnabled", true);
             boolean isDcEnabled = logSection.getBoolean("isDcEnabled", false);
 
@@ -119,6 +148,7 @@ public class ConfigBlocksHub {
         IConfigurationSection accessSection = bhSection.getConfigurationSection("access");
         if (accessSection == null) {
             m_checkAccess = BHLevel.Disabled;
+            m_accessCacheTime = 0;
         } else {
             boolean isEnabled = accessSection.getBoolean("isEnabled", true);
             boolean isDcEnabled = accessSection.getBoolean("isDcEnabled", false);
@@ -131,6 +161,8 @@ public class ConfigBlocksHub {
                 m_checkAccess = BHLevel.All;
             }
 
+            m_accessCacheTime = Math.max(0, accessSection.getLong("cacheTime", 0));
+
             if (accessSection.getBoolean("allowNull", false)) {
                 m_accessOverride.add(AccessType.Null);
             }
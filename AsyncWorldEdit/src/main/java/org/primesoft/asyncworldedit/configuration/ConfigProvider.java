@@ -120,6 +120,11 @@ public class ConfigProvider {
      */
     private static ConfigDispatcher m_configDispatcher;
     
+    /**
+     * The adaptive main thread budget configuration
+     */
+    private static ConfigTickBudget m_configTickBudget;
+    
     
     /**
      * The permission configuration
@@ -212,6 +217,14 @@ public class ConfigProvider {
         return m_configDispatcher;
     }
     
+    /**
+     * The adaptive main thread budget configuration
+     * @return 
+     */
+    public static ConfigTickBudget tickBudget() {
+        return m_configTickBudget;
+    }
+    
     /**
      * The blocks hub config
      * @return 
@@ -367,6 +380,7 @@ public class ConfigProvider {
         m_configRenderer = new ConfigRenderer(mainSection.getConfigurationSection("rendering"));
         m_configBlocksHub = new ConfigBlocksHub(mainSection.getConfigurationSection("blocksHub"));
         m_configDispatcher = new ConfigDispatcher(mainSection.getConfigurationSection("dispatcher"));
+        m_configTickBudget = new ConfigTickBudget(mainSection.getConfigurationSection("tickBudget"));
         m_configDCApi = new ConfigDirectChunkApi(mainSection.getConfigurationSection("directChunk"));
         m_configPermission = new ConfigPermission(mainSection.getConfigurationSection("permissions"));
         m_configUndo = new ConfigUndo(mainSection.getConfigurationSection("undo"));
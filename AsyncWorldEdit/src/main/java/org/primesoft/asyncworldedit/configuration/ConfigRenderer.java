@@ -67,6 +67,10 @@ public class ConfigRenderer {
     private final int m_cooldown;
     
     private final int m_bpsAverage;
+    
+    private final int m_batchSize;
+    
+    private final boolean m_chunkSorting;
 
     /**
      * Get maximum size of the queue
@@ -102,6 +106,25 @@ public class ConfigRenderer {
         return m_bpsAverage;
     }
 
+    /**
+     * Maximum number of entries fetched from a single player queue
+     * before the time limit is checked
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return m_batchSize;
+    }
+
+    /**
+     * Should the batch entries be grouped by chunk section
+     *
+     * @return
+     */
+    public boolean isChunkSorting() {
+        return m_chunkSorting;
+    }
+
     public ConfigRenderer(IConfigurationSection renderSection) {
         if (renderSection == null) {
             m_interval = 15;
@@ -110,6 +133,8 @@ public class ConfigRenderer {
             m_queueMaxSizeHard = 10000000;
             m_queueMaxSizeSoft = 5000000;
             m_bpsAverage = 5;
+            m_batchSize = 64;
+            m_chunkSorting = true;
         } else {
             m_interval = renderSection.getInt("interval", 15);
             m_queueTalkInterval = renderSection.getInt("talk-interval", 10);
@@ -117,10 +142,15 @@ public class ConfigRenderer {
             m_queueMaxSizeHard = renderSection.getInt("queue-max-size-hard", 10000000);
             m_queueMaxSizeSoft = renderSection.getInt("queue-max-size-soft", 5000000);
             m_bpsAverage = renderSection.getInt("bps-avg-data-points", 5);
+            m_batchSize = renderSection.getInt("batch-size", 64);
+            m_chunkSorting = renderSection.getBoolean("chunk-sorting", true);
 
             if (m_bpsAverage < 2) {
                 log("Warinig: Not enough data points to properly calculate the BPS. Value: " + m_bpsAverage + " minimum: 2");
             }
+            if (m_batchSize < 1) {
+                log("Warinig: Invalid batch size: " + m_batchSize + " minimum: 1");
+            }
             if (m_queueMaxSizeHard <= 0) {
                 log("Warinig: Block queue is disabled!");
             }
@@ -63,6 +63,9 @@ public class ConfigUndo {
     private final int m_keepSessionOnLogoutFor;
     private final int m_keepUndoFileFor;
     private final int m_undoFileCleanupInterval;
+    private final boolean m_memoryMapped;
+    private final int m_maxPendingChanges;
+    private final int m_undoFolderQuota;
 
     public UndoBehaviour getMainBehaviour() {
         return m_undoMain;
@@ -92,6 +95,36 @@ public class ConfigUndo {
         return m_keepUndoFileFor;
     }
 
+    /**
+     * The maximum size of the undo folder (in MB), 0 - no limit
+     *
+     * @return
+     */
+    public int undoFolderQuota() {
+        return m_undoFolderQuota;
+    }
+
+    /**
+     * Read the undo files using memory mapped segments. The segments are
+     * unmapped by the garbage collector, until then they use the address space
+     * and on Windows the undo files can not be deleted.
+     *
+     * @return
+     */
+    public boolean isMemoryMapped() {
+        return m_memoryMapped;
+    }
+
+    /**
+     * Maximum number of changes waiting to be written to the undo files
+     * before the edits are throttled
+     *
+     * @return
+     */
+    public int getMaxPendingChanges() {
+        return m_maxPendingChanges;
+    }
+
 
     ConfigUndo(IConfigurationSection secUndo) {
         if (secUndo == null) {
@@ -102,11 +135,17 @@ public class ConfigUndo {
             m_keepSessionOnLogoutFor = 0;
             m_undoFileCleanupInterval = 30;
             m_keepUndoFileFor = 0;
+            m_memoryMapped = false;
+            m_maxPendingChanges = 500000;
+            m_undoFolderQuota = 0;
         } else {
             m_storeOnDisk = secUndo.getBoolean("storeOnDisk", true);
             m_keepSessionOnLogoutFor = secUndo.getInt("keepSessionOnLogoutFor", 0);
             m_undoFileCleanupInterval = secUndo.getInt("undoFileCleanupInterval", 30);
             m_keepUndoFileFor = secUndo.getInt("keepUndoFileFor", 0);
+            m_memoryMapped = secUndo.getBoolean("memoryMappedFiles", false);
+            m_maxPendingChanges = secUndo.getInt("maxPendingChanges", 500000);
+            m_undoFolderQuota = Math.max(0, secUndo.getInt("undoFolderQuota", 0));
             
             m_undoAsync = parse(secUndo.getString("memoryLow", null), UndoBehaviour.Wait);
             UndoBehaviour uLoad = parse(secUndo.getString("memoryLowStorage", null), UndoBehaviour.Wait);
@@ -104,6 +104,11 @@ public class PermissionGroup implements IPermissionGroup {
      */
     private final int m_rendererTime;
 
+    /**
+     * The group weight when sharing the block placer time
+     */
+    private final int m_rendererWeight;
+
     /**
      * maximum size of the player block queue
      */
@@ -211,6 +216,16 @@ public class PermissionGroup implements IPermissionGroup {
         return m_rendererTime;
     }
 
+    /**
+     * The group weight when sharing the block placer time
+     *
+     * @return
+     */
+    @Override
+    public int getRendererWeight() {
+        return m_rendererWeight;
+    }
+
     /**
      * maximum size of the player block queue
      *
@@ -315,6 +330,7 @@ public class PermissionGroup implements IPermissionGroup {
         m_queueSoftLimit = 250000;
         m_rendererBlocks = 10000;
         m_rendererTime = 40;
+        m_rendererWeight = 1;
         m_useBarApi = true;
         m_useChat = true;
         m_undoDisabled = false;
@@ -370,6 +386,9 @@ public class PermissionGroup implements IPermissionGroup {
 
         m_rendererBlocks = rendererBlocks;
         m_rendererTime = rendererTime;
+        m_rendererWeight = validate(rendererSection == null
+                ? defaults.getRendererWeight() : rendererSection.getInt("weight", defaults.getRendererWeight()),
+                defaults.getRendererWeight(), false);
 
         m_queueHardLimit = validate(queueSection == null
                 ? defaults.getQueueHardLimit() : queueSection.getInt("limit-hard", defaults.getQueueHardLimit()),
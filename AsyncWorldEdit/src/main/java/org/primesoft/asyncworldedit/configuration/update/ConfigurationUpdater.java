@@ -62,7 +62,7 @@ public class ConfigurationUpdater {
     /**
      * The config file version
      */
-    public static final int CONFIG_VERSION = 23;
+    public static final int CONFIG_VERSION = 24;
 
     
     static {
@@ -89,6 +89,7 @@ public class ConfigurationUpdater {
         s_configurationUpdaters.put(20, new ConfigUpdater_v20_v21());
         s_configurationUpdaters.put(21, new ConfigUpdater_v21_v22());
         s_configurationUpdaters.put(22, new ConfigUpdater_v22_v23());
+        s_configurationUpdaters.put(23, new ConfigUpdater_v23_v24());
     }
     
     public static boolean updateConfig(IConfiguration config, int version) {
@@ -73,7 +73,6 @@ import org.primesoft.asyncworldedit.directChunk.relighter.BlockReligher;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IAdapter;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
-import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkAPI;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerManager;
@@ -86,6 +85,7 @@ import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
 import org.primesoft.asyncworldedit.api.inner.IWorldeditIntegratorInner;
 import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
 import org.primesoft.asyncworldedit.api.map.IMapUtils;
 import org.primesoft.asyncworldedit.changesetSerializer.SerializerManager;
 import org.primesoft.asyncworldedit.platform.api.ICommandManager;
@@ -114,6 +114,7 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
     private BlockPlacer m_blockPlacer;
     private Cron m_cron;
     private TaskDispatcher m_dispatcher;
+    private TickBudget m_tickBudget;
     private IPlotMeFix m_plotMeFix;
     private final PlayerManager m_playerManager = new PlayerManager(this);
     private IProgressDisplayManager m_progressDisplay;
@@ -263,7 +264,7 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
     }
 
     @Override
-    public IBlockPlacer getBlockPlacer() {
+    public IInnerBlockPlacer getBlockPlacer() {
         return m_blockPlacer;
     }
 
@@ -337,8 +338,9 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
 
         m_progressDisplay = new ProgressDisplayManager();
 
-        m_dispatcher = new TaskDispatcher(this);
-        m_blockPlacer = new BlockPlacer(this);
+        m_tickBudget = new TickBudget(m_platform.getScheduler());
+        m_dispatcher = new TaskDispatcher(this, m_tickBudget);
+        m_blockPlacer = new BlockPlacer(this, m_tickBudget);
         m_cron = new Cron(this);
 
         m_changesetSerializer = new SerializerManager(this);
@@ -402,8 +404,10 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
      * Initialize the plugin in aordance to the config
      */
     private void initializeConfig() {
+        m_tickBudget.loadConfig();
         m_blockPlacer.loadConfig();
         m_cron.loadConfig();
+        m_blocksHubBridge.invalidateAccess();
         if (ConfigProvider.physicsFreeze().isEnabled()) {
             m_platform.getPhysicsWatcher().enable(ConfigProvider.physicsFreeze()::shouldFreeze);
         } else {
@@ -435,6 +439,7 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
             m_blockPlacer.stop();
             m_cron.stop();
             m_dispatcher.stop();
+            m_tickBudget.stop();
 
             IInnerDirectChunkAPI dcApi = getInnerDirectChunkAPI();
             IBlockRelighter bRelighter = dcApi != null ? dcApi.getBlockRelighter() : null;
@@ -442,6 +447,8 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
                 bRelighter.stop();
             }
 
+            m_blocksHubBridge.stop();
+
             m_isInitialized = false;
 
             m_platform.onDisable();
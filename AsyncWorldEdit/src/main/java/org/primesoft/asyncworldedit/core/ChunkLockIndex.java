@@ -0,0 +1,254 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per world index of locked chunks. The index keeps the number of locks for
+ * each chunk and the number of locked chunks in the neighbourhood of each
+ * chunk, so testing for any locked chunk within the radius is a single
+ * lookup. Reads are lock-free and do not allocate, updates are serialized.
+ *
+ * @author SBPrime
+ */
+final class ChunkLockIndex {
+
+    /**
+     * Empty slot marker (not a valid chunk key)
+     */
+    private final static long EMPTY = Long.MIN_VALUE;
+
+    /**
+     * Initial table size
+     */
+    private final static int INITIAL_SIZE = 64;
+
+    private static long encode(int cx, int cz) {
+        return (long) cx << 32 | cz & 0xFFFFFFFFL;
+    }
+
+    /**
+     * The test radius (in chunks)
+     */
+    private final int m_radius;
+
+    /**
+     * Number of locks per chunk
+     */
+    private volatile Table m_locked = new Table(INITIAL_SIZE);
+
+    /**
+     * Number of locked chunks within the radius
+     */
+    private volatile Table m_near = new Table(INITIAL_SIZE);
+
+    ChunkLockIndex(int radius) {
+        m_radius = radius;
+    }
+
+    /**
+     * Is any chunk within the radius locked
+     *
+     * @param cx
+     * @param cz
+     * @return
+     */
+    boolean isNearLocked(int cx, int cz) {
+        return m_near.get(encode(cx, cz)) > 0;
+    }
+
+    /**
+     * Add chunk lock
+     *
+     * @param cx
+     * @param cz
+     */
+    synchronized void add(int cx, int cz) {
+        m_locked = m_locked.add(encode(cx, cz), 1);
+        if (m_locked.get(encode(cx, cz)) == 1) {
+            updateNear(cx, cz, 1);
+        }
+    }
+
+    /**
+     * Remove chunk lock, removing a chunk that is not locked does nothing
+     *
+     * @param cx
+     * @param cz
+     */
+    synchronized void remove(int cx, int cz) {
+        final long key = encode(cx, cz);
+        if (m_locked.get(key) <= 0) {
+            return;
+        }
+
+        m_locked = m_locked.add(key, -1);
+        if (m_locked.get(key) == 0) {
+            updateNear(cx, cz, -1);
+        }
+    }
+
+    private void updateNear(int cx, int cz, int delta) {
+        Table near = m_near;
+        for (int x = cx - m_radius; x <= cx + m_radius; x++) {
+            for (int z = cz - m_radius; z <= cz + m_radius; z++) {
+                near = near.add(encode(x, z), delta);
+            }
+        }
+        m_near = near;
+    }
+
+    /**
+     * Open addressing long to int table. Removed keys are kept with a zero
+     * count until the table is rehashed.
+     */
+    private static final class Table {
+
+        private final AtomicLongArray m_keys;
+
+        private final AtomicIntegerArray m_counts;
+
+        private final int m_mask;
+
+        /**
+         * Number of used slots (updated only by the writer)
+         */
+        private int m_used;
+
+        Table(int size) {
+            m_keys = new AtomicLongArray(size);
+            m_counts = new AtomicIntegerArray(size);
+            m_mask = size - 1;
+
+            for (int i = 0; i < size; i++) {
+                m_keys.set(i, EMPTY);
+            }
+        }
+
+        private static int hash(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+
+            return (int) key;
+        }
+
+        int get(long key) {
+            for (int i = hash(key) & m_mask;; i = (i + 1) & m_mask) {
+                final long k = m_keys.get(i);
+                if (k == key) {
+                    return m_counts.get(i);
+                } else if (k == EMPTY) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Add the delta to the key count
+         *
+         * @param key
+         * @param delta
+         * @return The table containing the key (this or a rehashed table)
+         */
+        Table add(long key, int delta) {
+            int i = hash(key) & m_mask;
+            for (;; i = (i + 1) & m_mask) {
+                final long k = m_keys.get(i);
+                if (k == key) {
+                    m_counts.set(i, m_counts.get(i) + delta);
+                    return this;
+                } else if (k == EMPTY) {
+                    break;
+                }
+            }
+
+            if ((m_used + 1) * 4 > (m_mask + 1) * 3) {
+                return rehash().add(key, delta);
+            }
+
+            //Publish the count before the key so readers never see a key without its count
+            m_counts.set(i, delta);
+            m_keys.set(i, key);
+            m_used++;
+            return this;
+        }
+
+        /**
+         * Create a new table without the zero entries
+         *
+         * @return
+         */
+        private Table rehash() {
+            int live = 0;
+            for (int i = 0; i <= m_mask; i++) {
+                if (m_keys.get(i) != EMPTY && m_counts.get(i) != 0) {
+                    live++;
+                }
+            }
+
+            int size = INITIAL_SIZE;
+            while (size < live * 4) {
+                size <<= 1;
+            }
+
+            final Table result = new Table(size);
+            for (int i = 0; i <= m_mask; i++) {
+                final long k = m_keys.get(i);
+                final int count = m_counts.get(i);
+                if (k != EMPTY && count != 0) {
+                    result.add(k, count);
+                }
+            }
+
+            return result;
+        }
+    }
+}
@@ -52,6 +52,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.utils.InOutParam;
+import org.primesoft.asyncworldedit.worldedit.world.ChunkSnapshotCache;
 
 /**
  * This class suppresses chunk unloading
@@ -165,9 +166,27 @@ public abstract class ChunkWatch implements IChunkWatch {
             return value;
         });
 
+        if (!result.getValue()) {
+            ChunkSnapshotCache.invalidateChunk(worldName, cx, cz);
+        }
+
         return result.getValue();
     }
 
+    /**
+     * The world was unloaded, drop all loaded chunks and cached snapshots
+     *
+     * @param worldName
+     */
+    public void worldUnloaded(String worldName) {
+        final WorldEntry worldEntry = m_entries.get(worldName);
+        if (worldEntry != null) {
+            worldEntry.Loaded.clear();
+        }
+
+        ChunkSnapshotCache.removeWorld(worldName);
+    }
+
     /**
      * Set chunk data as unloaded
      *
@@ -178,6 +197,7 @@ public abstract class ChunkWatch implements IChunkWatch {
     @Override
     public void setChunkUnloaded(int cx, int cz, String worldName) {
         getEntry(worldName).Loaded.remove(encode(cx, cz));
+        ChunkSnapshotCache.invalidateChunk(worldName, cx, cz);
     }
 
     /**
@@ -48,26 +48,22 @@
 package org.primesoft.asyncworldedit.core;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.Files;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.inner.ICron;
-import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
 import org.primesoft.asyncworldedit.api.inner.IWorldeditIntegratorInner;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerManager;
 import org.primesoft.asyncworldedit.api.utils.IInOutParam;
 import org.primesoft.asyncworldedit.changesetSerializer.StreamProvider;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoCatalog;
 import org.primesoft.asyncworldedit.configuration.ConfigMessages;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.configuration.ConfigUndo;
 import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
-import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.InOutParam;
 
 /**
@@ -146,6 +142,8 @@ public final class Cron implements ICron {
             m_task.cancel();
             m_task = null;
         }
+
+        UndoCatalog.getInstance().close();
     }
 
     @Override
@@ -216,35 +214,29 @@ public final class Cron implements ICron {
         }
 
         final long time = System.currentTimeMillis() - keepUndoFor * 60000;
+        final long quota = (long) undoConfig.undoFolderQuota() * 1024 * 1024;
 
         m_undoCleanupRunning = true;
 
         try {
-            IInnerSerializerManager sm = m_parent.getInnerChangesetSerializer();
+            UndoCatalog catalog = UndoCatalog.getInstance();
             StreamProvider streamProvider = StreamProvider.getInstance();
-            if (sm == null || streamProvider == null) {
+            if (streamProvider == null) {
                 return;
             }
 
-            sm.getUndoFiles()
-                    .filter(i -> i.exists())
-                    .filter(i -> {
-                        Long timestamp = sm.getTimestamp(i);
-                        return timestamp != null && timestamp <= time;
-                    })
-                    .filter(i -> !streamProvider.isInUse(i))
-                    .forEach(i -> deleteFile(i, showMessages, showError, headerShown));
-            if (startup) {
-                Files.walk(ConfigProvider.getUndoFolder().toPath(), 1, FileVisitOption.FOLLOW_LINKS)
-                        .map(i -> i.toFile())
-                        .filter(i -> i.isDirectory() && i.canWrite())
-                        .filter(i -> i.list().length == 0)
-                        .forEach(i -> deleteFile(i, showMessages, showError, headerShown))  ;
-                        
+            for (File file : catalog.getExpired(time)) {
+                deleteUndoFile(catalog, streamProvider, file, showMessages, showError, headerShown);
+            }
+
+            if (quota > 0) {
+                for (File file : catalog.getOverQuota(quota)) {
+                    deleteUndoFile(catalog, streamProvider, file, showMessages, showError, headerShown);
+                }
             }
-        } catch (IOException ex) {
-            ExceptionHelper.printException(ex, "Unable to iterate undo files.");
         } finally {
+            UndoCatalog.getInstance().flush();
+
             m_undoCleanupRunning = false;
             if (showMessages) {
                 log("...undo cleanup done.");
@@ -252,6 +244,28 @@ public final class Cron implements ICron {
         }
     }
 
+    /**
+     * Delete the undo data and index file and remove them from the catalog
+     */
+    private void deleteUndoFile(UndoCatalog catalog, StreamProvider streamProvider, File file,
+            boolean showMessages, boolean showError, IInOutParam<Boolean> headerShown) {
+        final File idxFile = new File(file.getPath() + ".idx");
+        if (streamProvider.isInUse(file) || streamProvider.isInUse(idxFile)) {
+            return;
+        }
+
+        if (file.exists()) {
+            deleteFile(file, showMessages, showError, headerShown);
+        }
+        if (idxFile.exists()) {
+            deleteFile(idxFile, showMessages, showError, headerShown);
+        }
+
+        if (!file.exists() && !idxFile.exists()) {
+            catalog.remove(file);
+        }
+    }
+
     private void deleteFile(File file, boolean showMessages, boolean showError,
             IInOutParam<Boolean> headerShown) {    
         if (file.equals(ConfigProvider.getUndoFolder())) {
@@ -47,10 +47,12 @@
  */
 package org.primesoft.asyncworldedit.core;
 
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -64,26 +66,20 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
     /**
      * Is physics watch enabled
      */
-    protected boolean m_isEnabled;
+    protected volatile boolean m_isEnabled;
     
     protected Function<String, Boolean> m_check = i -> true;
 
     /**
-     * MTA mutex
+     * Locked chunks per world
      */
-    private final Object m_mutex;
-
-    /**
-     * Locked blocks
-     */
-    private final Map<String, Map<Integer, Map<Integer, Integer>>> m_locked;
+    private final Map<String, ChunkLockIndex> m_locked;
 
     /**
      * Create new instanc of the class
      */
     public PhysicsWatch() {
-        m_mutex = new Object();
-        m_locked = new HashMap<>();
+        m_locked = new ConcurrentHashMap<>();
     }
 
     /**
@@ -108,9 +104,11 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
     @Override
     public void disable() {
         m_isEnabled = false;
-        synchronized (m_mutex) {
-            m_locked.clear();
-        }
+        m_locked.clear();
+    }
+
+    private ChunkLockIndex getIndex(String name) {
+        return m_locked.computeIfAbsent(name, _n -> new ChunkLockIndex(TEST_DELTA));
     }
 
     /**
@@ -121,19 +119,11 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
      */
     @Override
     public void addLocation(String name, BlockVector3 location) {
-        int x = location.getBlockX() / 16;
-        //int y = location.getBlockY();
-        int z = location.getBlockZ() / 16;
-
-        synchronized (m_mutex) {
-            if (!m_isEnabled) {
-                return;
-            }
-
-            Map<Integer, Map<Integer, Integer>> xhash = m_locked.computeIfAbsent(name, i -> new HashMap<>());
-            Map<Integer, Integer> zhash = xhash.computeIfAbsent(x, i -> new HashMap<>());
-            zhash.compute(z, (_z, value) -> value == null ? 1 : (value + 1));           
+        if (!m_isEnabled) {
+            return;
         }
+
+        getIndex(name).add(location.getBlockX() >> 4, location.getBlockZ() >> 4);
     }
 
     /**
@@ -144,70 +134,73 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
      */
     @Override
     public void removeLocation(String name, BlockVector3 location) {
-        int x = location.getBlockX() / 16;
-        //int y = location.getBlockY();
-        int z = location.getBlockZ() / 16;
+        if (!m_isEnabled) {
+            return;
+        }
 
-        synchronized (m_mutex) {
-            if (!m_isEnabled) {
-                return;
-            }
+        final ChunkLockIndex index = m_locked.get(name);
+        if (index != null) {
+            index.remove(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
 
-            final Map<Integer, Map<Integer, Integer>> xhash = m_locked.get(name);
-            if (xhash == null) {
-                return;
-            }
+    /**
+     * Add watched chunks
+     *
+     * @param name The world name
+     * @param chunks The chunks
+     */
+    @Override
+    public void addChunks(String name, Collection<BlockVector2> chunks) {
+        if (!m_isEnabled) {
+            return;
+        }
 
-            final Map<Integer, Integer> zhash = xhash.get(x);
-            if (zhash == null) {
-                return;
-            }
-            
-            zhash.compute(z, (_z, value) -> {
-                if (value == null || value == 1) {
-                    return null;
-                }
-                
-                return value - 1;
-            });
-
-            if (zhash.isEmpty()) {
-                xhash.remove(x);
-            }
-            if (xhash.isEmpty()) {
-                m_locked.remove(name);
+        final ChunkLockIndex index = getIndex(name);
+        synchronized (index) {
+            for (BlockVector2 chunk : chunks) {
+                index.add(chunk.getBlockX(), chunk.getBlockZ());
             }
         }
     }
-    
+
     /**
-     * Perform test if block event shuld by canceled
+     * Remove watched chunks
+     *
+     * @param name The world name
+     * @param chunks The chunks
      */
-    protected boolean cancelEvent(String name, int x, int y, int z, String material) {
-        x = x / 16;
-        z = z / 16;
+    @Override
+    public void removeChunks(String name, Collection<BlockVector2> chunks) {
+        if (!m_isEnabled) {
+            return;
+        }
 
-        synchronized (m_mutex) {
-            Map<Integer, Map<Integer, Integer>> xhash = m_locked.get(name);
-            if (xhash == null) {
-                return false;
-            }
+        final ChunkLockIndex index = m_locked.get(name);
+        if (index == null) {
+            return;
+        }
 
-            for (int px = x - TEST_DELTA; px <= x + TEST_DELTA; px++) {
-                final Map<Integer, Integer> zhash = xhash.get(px);
-                if (zhash == null) {
-                    continue;
-                }
-
-                for (int pz = z - TEST_DELTA; pz <= z + TEST_DELTA; pz++) {
-                    if (zhash.containsKey(pz)) {
-                        return m_check.apply(material);
-                    }
-                }
+        synchronized (index) {
+            for (BlockVector2 chunk : chunks) {
+                index.remove(chunk.getBlockX(), chunk.getBlockZ());
             }
         }
-        
-        return false;
+    }
+
+    /**
+     * Check if there are any watched chunks near the block
+     */
+    protected boolean isWatched(String name, int x, int z) {
+        final ChunkLockIndex index = m_locked.get(name);
+        return index != null && index.isNearLocked(x >> 4, z >> 4);
+    }
+    
+    /**
+     * Perform test if block event shuld by canceled
+     */
+    protected boolean cancelEvent(String name, int x, int y, int z, String material) {
+        return isWatched(name, x, z) && m_check.apply(material);
     }
     
     
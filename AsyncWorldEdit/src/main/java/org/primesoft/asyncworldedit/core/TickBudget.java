@@ -0,0 +1,264 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import static org.primesoft.asyncworldedit.LoggerProvider.log;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.ConfigTickBudget;
+import org.primesoft.asyncworldedit.configuration.DebugLevel;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+
+/**
+ * Adaptive main thread budget. The tick duration and the time used by AWE
+ * are measured every server tick. The time left for AWE is the target tick
+ * duration minus the time used by the rest of the server, and the budget is
+ * scaled so the AWE time fits in it. The scale is applied to
+ * the permission group renderer limits and the dispatcher max time so the
+ * ratio between groups is kept.
+ *
+ * @author SBPrime
+ */
+public class TickBudget implements Runnable {
+
+    /**
+     * The tick duration smoothing factor
+     */
+    private final static double SMOOTHING = 0.25;
+
+    /**
+     * Budget increase for each not overloaded tick
+     */
+    private final static double INCREASE_STEP = 0.02;
+
+    /**
+     * Minimum budget multiplier for each overloaded tick
+     */
+    private final static double DECREASE_FACTOR = 0.8;
+
+    private final static double NANOS_PER_MS = 1000000.0;
+
+    /**
+     * MTA mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * Bukkit scheduler
+     */
+    private final IScheduler m_scheduler;
+
+    /**
+     * The tick measure task
+     */
+    private ITask m_task;
+
+    /**
+     * Time used by AWE on the main thread in the current tick (ns)
+     */
+    private final AtomicLong m_aweTime = new AtomicLong(0);
+
+    /**
+     * Last tick start time (ns)
+     */
+    private long m_lastTick = -1;
+
+    /**
+     * Average tick duration (ms)
+     */
+    private double m_avgTick;
+
+    /**
+     * Average main thread time used by AWE (ms)
+     */
+    private double m_avgAwe;
+
+    /**
+     * Number of measured ticks
+     */
+    private int m_tickNumber;
+
+    /**
+     * The current budget scale
+     */
+    private volatile double m_scale = 1;
+
+    private volatile boolean m_isEnabled;
+
+    private double m_targetTickTime;
+
+    private double m_minScale;
+
+    private double m_maxScale;
+
+    public TickBudget(IScheduler scheduler) {
+        m_scheduler = scheduler;
+    }
+
+    /**
+     * Reload the configuration
+     */
+    public void loadConfig() {
+        ConfigTickBudget config = ConfigProvider.tickBudget();
+
+        synchronized (m_mutex) {
+            m_targetTickTime = config.getTargetTickTime();
+            m_minScale = config.getMinBudget() / 100.0;
+            m_maxScale = config.getMaxBudget() / 100.0;
+            m_isEnabled = config.isEnabled();
+            m_scale = 1;
+            m_lastTick = -1;
+            m_avgTick = 0;
+            m_avgAwe = 0;
+
+            if (m_isEnabled && m_task == null) {
+                m_task = m_scheduler.runTaskTimer(this, 1, 1);
+            } else if (!m_isEnabled && m_task != null) {
+                m_task.cancel();
+                m_task = null;
+            }
+        }
+    }
+
+    /**
+     * Stop measuring the ticks
+     */
+    public void stop() {
+        synchronized (m_mutex) {
+            if (m_task != null) {
+                m_task.cancel();
+                m_task = null;
+            }
+
+            m_isEnabled = false;
+            m_scale = 1;
+        }
+    }
+
+    /**
+     * Get the current budget scale
+     *
+     * @return
+     */
+    public double getScale() {
+        return m_scale;
+    }
+
+    /**
+     * Scale the configured limit (time or blocks) using the current budget.
+     *
+     * @param value the configured value, -1 for no limit
+     * @return
+     */
+    public int scale(int value) {
+        if (value < 0 || !m_isEnabled) {
+            return value;
+        }
+
+        return Math.max(1, (int) Math.round(value * m_scale));
+    }
+
+    /**
+     * Report the time AWE spent on the main thread
+     *
+     * @param nanos
+     */
+    public void addAweTime(long nanos) {
+        if (m_isEnabled) {
+            m_aweTime.addAndGet(nanos);
+        }
+    }
+
+    @Override
+    public void run() {
+        final long now = System.nanoTime();
+
+        synchronized (m_mutex) {
+            final long lastTick = m_lastTick;
+            m_lastTick = now;
+
+            if (lastTick < 0 || !m_isEnabled) {
+                m_aweTime.set(0);
+                return;
+            }
+
+            double tick = (now - lastTick) / NANOS_PER_MS;
+            double awe = m_aweTime.getAndSet(0) / NANOS_PER_MS;
+
+            m_avgTick = m_avgTick <= 0 ? tick : m_avgTick * (1 - SMOOTHING) + tick * SMOOTHING;
+            m_avgAwe = m_avgAwe * (1 - SMOOTHING) + awe * SMOOTHING;
+
+            // When the server is not overloaded the tick includes the idle
+            // time, so the available time is never lower than the AWE time
+            final double other = Math.max(0, m_avgTick - m_avgAwe);
+            final double available = m_targetTickTime - other;
+
+            double scale = m_scale;
+            if (available <= 0) {
+                scale *= DECREASE_FACTOR;
+            } else if (m_avgAwe > available) {
+                scale *= Math.max(DECREASE_FACTOR, available / m_avgAwe);
+            } else {
+                scale += INCREASE_STEP;
+            }
+
+            m_scale = Math.max(m_minScale, Math.min(m_maxScale, scale));
+
+            m_tickNumber++;
+            if (m_tickNumber >= ConfigProvider.TICKS_PER_SECOND) {
+                m_tickNumber = 0;
+
+                if (ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.TRACE)) {
+                    log(String.format("[TICK BUDGET] Tick: %1$.2fms\tAWE: %2$.2fms\tOther: %3$.2fms\tBudget: %4$.0f%%",
+                            m_avgTick, m_avgAwe, Math.max(0, m_avgTick - m_avgAwe), m_scale * 100));
+                }
+            }
+        }
+    }
+}
@@ -47,21 +47,81 @@
  */
 package org.primesoft.asyncworldedit.directChunk;
 
+import java.util.Arrays;
 import org.primesoft.asyncworldedit.api.directChunk.IChunkSection;
 
 /**
+ * The chunk section data. The block ids are stored as bit packed indexes to
+ * the section palette (a uniform section does not store any block data).
  *
  * @author SBPrime
  */
 public class ChunkSectionData implements IChunkSection {
-    private final int m_y;
+    /**
+     * Number of blocks in section
+     */
+    public final static int SIZE = 16 * 16 * 16;
+    
+    /**
+     * The minimum number of bits used to store the palette index
+     */
+    private final static int MIN_BITS = 4;
+    
+    /**
+     * Maximum size of palette searched without the lookup table
+     */
+    private final static int LINEAR_PALETTE = 16;
     
-    private final int[] m_blockIds;
+    private final int m_y;
     
     private final byte[] m_emittedLight;
     
     private final byte[] m_skyLight;
     
+    /**
+     * The block palette
+     */
+    private int[] m_palette;
+    
+    /**
+     * Number of used palette entries
+     */
+    private int m_paletteSize;
+    
+    /**
+     * The palette lookup table (palette index + 1), null for small palettes
+     */
+    private int[] m_lookup;
+    
+    /**
+     * Number of bits per block (0 - uniform section)
+     */
+    private int m_bits;
+    
+    /**
+     * Number of blocks stored in a single long
+     */
+    private int m_perLong;
+    
+    /**
+     * The palette index mask
+     */
+    private long m_mask;
+    
+    /**
+     * The packed palette indexes
+     */
+    private long[] m_data;
+    
+    /**
+     * Create new instance of empty (air) chunk section data
+     * @param y
+     * @param skyLight
+     */
+    public ChunkSectionData(int y, boolean skyLight) {
+        this(y, null, null, skyLight ? new byte[2048] : null);
+    }
+    
     /**
      * Create new instance of chunk section data
      * @param y
@@ -75,14 +135,14 @@ public class ChunkSectionData implements IChunkSection {
     /**
      * Create new instance of chunk section data
      * @param y
-     * @param blockIds
+     * @param blockIds The block ids, null for empty (air) section
      * @param emittedLight
      * @param skylight
      */
     public ChunkSectionData(int y, int[] blockIds, byte[] emittedLight, byte[] skylight){
         m_y = y;
         
-        if (blockIds.length != 4096) {
+        if (blockIds != null && blockIds.length != SIZE) {
             throw new IllegalArgumentException(String.format("BlockIds should be 4096 bytes not: %1$s", blockIds.length));
         }
         
@@ -98,14 +158,74 @@ public class ChunkSectionData implements IChunkSection {
             throw new IllegalArgumentException(String.format("Skylight should be 2048 bytes not: %1$s", skylight.length));
         }
         
-        m_blockIds = blockIds;
         m_emittedLight = emittedLight;
         m_skyLight = skylight;
+        
+        m_palette = new int[1];
+        m_paletteSize = 1;
+        
+        if (blockIds != null) {
+            pack(blockIds);
+        }
     }
     
     @Override
     public int[] getBlockIds() {
-        return m_blockIds;
+        final int[] result = new int[SIZE];
+        
+        forEachBlock((idx, id) -> result[idx] = id);
+        return result;
+    }
+    
+    @Override
+    public int getBlock(int idx) {
+        if (m_bits == 0) {
+            return m_palette[0];
+        }
+        
+        final int perLong = m_perLong;
+        final long v = m_data[idx / perLong] >>> ((idx % perLong) * m_bits);
+        
+        return m_palette[(int) (v & m_mask)];
+    }
+    
+    @Override
+    public void setBlock(int idx, int id) {
+        int pIdx = indexOf(id);
+        if (pIdx < 0) {
+            pIdx = addToPalette(id);
+        } else if (m_bits == 0) {
+            return;
+        }
+        
+        write(idx, pIdx);
+    }
+    
+    @Override
+    public void forEachBlock(IBlockConsumer consumer) {
+        if (m_bits == 0) {
+            final int id = m_palette[0];
+            for (int idx = 0; idx < SIZE; idx++) {
+                consumer.accept(idx, id);
+            }
+            
+            return;
+        }
+        
+        final int[] palette = m_palette;
+        final long[] data = m_data;
+        final int bits = m_bits;
+        final int perLong = m_perLong;
+        final long mask = m_mask;
+        
+        int idx = 0;
+        for (int i = 0; i < data.length && idx < SIZE; i++) {
+            long v = data[i];
+            for (int j = 0; j < perLong && idx < SIZE; j++, idx++) {
+                consumer.accept(idx, palette[(int) (v & mask)]);
+                v >>>= bits;
+            }
+        }
     }
     
     @Override
@@ -122,4 +242,189 @@ public class ChunkSectionData implements IChunkSection {
     public int getY() {
         return m_y;
     }
+    
+    /**
+     * Get the number of distinct block ids in section
+     * @return 
+     */
+    public int getPaletteSize() {
+        return m_paletteSize;
+    }
+    
+    /**
+     * Pack the block ids
+     * @param blockIds 
+     */
+    private void pack(int[] blockIds) {
+        final short[] indexes = new short[SIZE];
+        
+        m_palette[0] = blockIds[0];
+        for (int idx = 1; idx < SIZE; idx++) {
+            int id = blockIds[idx];
+            int pIdx = indexOf(id);
+            if (pIdx < 0) {
+                pIdx = appendPalette(id);
+            }
+            
+            indexes[idx] = (short) pIdx;
+        }
+        
+        if (m_paletteSize == 1) {
+            return;
+        }
+        
+        setBits(bitsFor(m_paletteSize));
+        for (int idx = 0; idx < SIZE; idx++) {
+            write(idx, indexes[idx]);
+        }
+    }
+    
+    /**
+     * Add new block id to palette, resize the data if needed
+     * @param id
+     * @return The palette index
+     */
+    private int addToPalette(int id) {
+        final int pIdx = appendPalette(id);
+        final int bits = bitsFor(m_paletteSize);
+        
+        if (bits != m_bits) {
+            resize(bits);
+        }
+        
+        return pIdx;
+    }
+    
+    /**
+     * Append the block id to palette
+     * @param id
+     * @return 
+     */
+    private int appendPalette(int id) {
+        final int pIdx = m_paletteSize;
+        if (pIdx == m_palette.length) {
+            m_palette = Arrays.copyOf(m_palette, pIdx * 2);
+        }
+        
+        m_palette[pIdx] = id;
+        m_paletteSize++;
+        
+        if (m_lookup != null) {
+            if (m_paletteSize * 2 > m_lookup.length) {
+                buildLookup();
+            } else {
+                putLookup(pIdx);
+            }
+        } else if (m_paletteSize > LINEAR_PALETTE) {
+            buildLookup();
+        }
+        
+        return pIdx;
+    }
+    
+    /**
+     * Find the block id in palette
+     * @param id
+     * @return palette index or -1 when not found
+     */
+    private int indexOf(int id) {
+        final int[] palette = m_palette;
+        final int[] lookup = m_lookup;
+        
+        if (lookup == null) {
+            for (int i = 0; i < m_paletteSize; i++) {
+                if (palette[i] == id) {
+                    return i;
+                }
+            }
+            
+            return -1;
+        }
+        
+        final int mask = lookup.length - 1;
+        for (int h = hash(id) & mask; ; h = (h + 1) & mask) {
+            final int entry = lookup[h];
+            if (entry == 0) {
+                return -1;
+            }
+            
+            if (palette[entry - 1] == id) {
+                return entry - 1;
+            }
+        }
+    }
+    
+    private void buildLookup() {
+        m_lookup = new int[Integer.highestOneBit(m_paletteSize * 4 - 1)];
+        for (int i = 0; i < m_paletteSize; i++) {
+            putLookup(i);
+        }
+    }
+    
+    private void putLookup(int pIdx) {
+        final int[] lookup = m_lookup;
+        final int mask = lookup.length - 1;
+        
+        int h = hash(m_palette[pIdx]) & mask;
+        while (lookup[h] != 0) {
+            h = (h + 1) & mask;
+        }
+        
+        lookup[h] = pIdx + 1;
+    }
+    
+    private static int hash(int id) {
+        final int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Get number of bits required to store the palette index
+     * @param paletteSize
+     * @return 
+     */
+    private static int bitsFor(int paletteSize) {
+        if (paletteSize <= 1) {
+            return 0;
+        }
+        
+        return Math.max(MIN_BITS, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+    }
+    
+    /**
+     * Change the number of bits per block, repack the data
+     * @param bits 
+     */
+    private void resize(int bits) {
+        final long[] oldData = m_data;
+        final int oldBits = m_bits;
+        final int oldPerLong = m_perLong;
+        final long oldMask = m_mask;
+        
+        setBits(bits);
+        
+        if (oldBits == 0) {
+            return;
+        }
+        
+        for (int idx = 0; idx < SIZE; idx++) {
+            final long v = oldData[idx / oldPerLong] >>> ((idx % oldPerLong) * oldBits);
+            write(idx, (int) (v & oldMask));
+        }
+    }
+    
+    private void setBits(int bits) {
+        m_bits = bits;
+        m_perLong = 64 / bits;
+        m_mask = (1L << bits) - 1;
+        m_data = new long[(SIZE + m_perLong - 1) / m_perLong];
+    }
+    
+    private void write(int idx, int pIdx) {
+        final int perLong = m_perLong;
+        final int lIdx = idx / perLong;
+        final int shift = (idx % perLong) * m_bits;
+        
+        m_data[lIdx] = (m_data[lIdx] & ~(m_mask << shift)) | ((long) pIdx << shift);
+    }
 }
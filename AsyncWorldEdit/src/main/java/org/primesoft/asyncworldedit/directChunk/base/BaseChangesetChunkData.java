@@ -52,13 +52,11 @@ import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
-import com.sk89q.worldedit.registry.state.Property;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.UUID;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IWorld;
@@ -73,6 +71,7 @@ import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.directChunk.entries.BiomeEntry;
 import org.primesoft.asyncworldedit.directChunk.entries.BlockEntry;
+import org.primesoft.asyncworldedit.utils.MutexProvider;
 import org.primesoft.asyncworldedit.worldedit.blocks.BlockStates;
 
 /**
@@ -160,9 +159,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
     public void setBlock(int x, int y, int z, BlockStateHolder b) {
         final IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
         
-        final Map<Property<?>, Object> data = b.getStates();
-        final String type = b.getBlockType().getId();
-        final int id = dcApi.getCombinedId(type, data);           
+        final int id = dcApi.getCombinedId(b);
         final CompoundTag ct = b instanceof BaseBlock ? ((BaseBlock)b).getNbtData() : null;
         
         setTileEntity(x, y, z, id, ct);
@@ -177,9 +174,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
     public void setBlockAndEmission(int x, int y, int z, BlockStateHolder b, byte emission) {
         final IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
         
-        final Map<Property<?>, Object> data = b.getStates();
-        final String type = b.getBlockType().getId();
-        final int id = dcApi.getCombinedId(type, data);           
+        final int id = dcApi.getCombinedId(b);
         final CompoundTag ct = b instanceof BaseBlock ? ((BaseBlock)b).getNbtData() : null;
 
         setTileEntityAndEmission(x, y, z, id, ct, emission);
@@ -413,7 +408,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
 
             if (bEntry != null && bEntry.hasBlock()) {
                 final IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
-                BlockStateHolder block = dcApi.convertId(bEntry.getId());
+                BlockStateHolder block = dcApi.getBlockState(bEntry.getId());
                 if (bEntry.getNbt() != null) {
                     block = block.toBaseBlock(bEntry.getNbt());
                 }
@@ -534,6 +529,6 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
      */
     private IChunkData fullChunkData() {
         IWorld world = m_wrappedChunk.getWorld();
-        return m_dispatcher.performSafeChunk(world, m_wrappedChunk::getData, world, m_chunkCoords);
+        return m_dispatcher.performSafeChunk(MutexProvider.getMutex(world), m_wrappedChunk::getData, world, m_chunkCoords);
     }
 }
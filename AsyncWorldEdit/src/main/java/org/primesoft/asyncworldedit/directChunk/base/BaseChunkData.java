@@ -53,7 +53,6 @@ import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
-import com.sk89q.worldedit.registry.state.Property;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
@@ -61,7 +60,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.directChunk.IChunkData;
 import org.primesoft.asyncworldedit.api.directChunk.IChunkSection;
@@ -331,9 +329,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
 
     @Override
     public void setBlockAndEmission(int x, int y, int z, BlockStateHolder b, byte emission) {        
-        final Map<Property<?>, Object> data = b.getStates();
-        final String type = b.getBlockType().getId();
-        final int id = getDirectChunkAPI().getCombinedId(type, data);           
+        final int id = getDirectChunkAPI().getCombinedId(b);
         final CompoundTag ct = b instanceof BaseBlock ? ((BaseBlock)b).getNbtData() : null;
 
         if (ct != null) {
@@ -347,9 +343,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
     public void setBlock(int x, int y, int z, BlockStateHolder b) {
         final IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
         
-        final Map<Property<?>, Object> data = b.getStates();
-        final String type = b.getBlockType().getId();
-        final int id = dcApi.getCombinedId(type, data);           
+        final int id = dcApi.getCombinedId(b);
         final CompoundTag ct = b instanceof BaseBlock ? ((BaseBlock)b).getNbtData() : null;
 
         if (ct != null) {
@@ -369,20 +363,19 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
         int cy = y / 16;
         IChunkSection cs = getChunkSection(cy);
         if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
+            cs = new ChunkSectionData(y, true);
             setChunkSection(cy, cs);
         }
 
-        int[] ids = cs.getBlockIds();
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= ChunkSectionData.SIZE) {
             return;
         }
 
         removeTileEntity(BlockVector3.at(x, y, z));
 
-        ids[idx] = id;
+        cs.setBlock(idx, id);
         if (emission >= 0) {
             setEmission(cs, idx, emission);
         }
@@ -407,24 +400,22 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
         int cy = y / 16;
         IChunkSection cs = getChunkSection(cy);
         if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
+            cs = new ChunkSectionData(y, true);
             setChunkSection(cy, cs);
         }
 
         BlockVector3 entityCoords = BlockVector3.at(x, y, z);
         ISerializedTileEntity entity = createTileEntity(entityCoords, ct);
 
-        int[] ids = cs.getBlockIds();
-
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= ChunkSectionData.SIZE) {
             return;
         }
 
         setTileEntity(BlockVector3.at(x, y, z), entity);
 
-        ids[idx] = id;
+        cs.setBlock(idx, id);
 
         if (emission >= 0) {
             setEmission(cs, idx, emission);
@@ -483,10 +474,9 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return 0;
         }
 
-        int[] ids = cs.getBlockIds();
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= ChunkSectionData.SIZE) {
             return 0;
         }
 
@@ -498,7 +488,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             }
         }
 
-        return ids[idx];
+        return cs.getBlock(idx);
     }
 
     @Override
@@ -511,7 +501,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
         int cy = y / 16;
         IChunkSection cs = getChunkSection(cy);
         if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
+            cs = new ChunkSectionData(y, true);
             setChunkSection(cy, cs);
         }
 
@@ -533,7 +523,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
         int cy = y / 16;
         IChunkSection cs = getChunkSection(cy);
         if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
+            cs = new ChunkSectionData(y, true);
             setChunkSection(cy, cs);
         }
 
@@ -49,10 +49,12 @@ package org.primesoft.asyncworldedit.directChunk.base;
 
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.IChunk;
 import org.primesoft.asyncworldedit.api.inner.IBlockRelighter;
 import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
@@ -95,9 +97,19 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
     
     
     /**
-     * Block ID to BaseBlock
+     * Combined ID to block state, indexed by the ID
      */
-    private final HashMap<Integer, BlockStateHolder> m_idToBlock = new LinkedHashMap<>();
+    private volatile BlockState[] m_idToState = new BlockState[4096];
+
+    /**
+     * Block state to combined ID
+     */
+    private final Map<BlockState, Integer> m_stateToId = new ConcurrentHashMap<>();
+
+    /**
+     * The block state table mutex
+     */
+    private final Object m_stateMutex = new Object();
     
     private final IBlockRelighter m_blockRelighter;
 
@@ -113,7 +125,7 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
         Byte level = m_idToEmission.get(id);
 
         if (level == null) {
-            BlockStateHolder block = convertId(id);
+            BlockStateHolder block = getBlockState(id);
             if (block == null) {
                 return 0;
             }
@@ -139,7 +151,7 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
         Short level = m_idToOpacity.get(id);
 
         if (level == null) {
-            BlockStateHolder block = convertId(id);
+            BlockStateHolder block = getBlockState(id);
             if (block == null) {
                 return 0;
             }
@@ -165,7 +177,7 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
         Short level = m_idToOpacitySkyLight.get(id);
 
         if (level == null) {
-            BlockStateHolder block = convertId(id);
+            BlockStateHolder block = getBlockState(id);
             if (block == null) {
                 return 0;
             }
@@ -200,6 +212,61 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
     public int getCombinedId(BlockStateHolder m, Map<Property<?>, Object> data) {
         return getCombinedId(m.getBlockType().getId(), data);
     }
+
+    @Override
+    public int getCombinedId(BlockStateHolder block) {
+        if (block == null) {
+            throw new IllegalArgumentException("block is null", new NullPointerException());
+        }
+
+        final BlockState state = block.toImmutableState();
+        Integer id = m_stateToId.get(state);
+
+        if (id == null) {
+            id = getCombinedId(state.getBlockType().getId(), state.getStates());
+            m_stateToId.put(state, id);
+        }
+
+        return id;
+    }
+
+    @Override
+    public BlockStateHolder getBlockState(int combinedId) {
+        if (combinedId < 0) {
+            return convertId(combinedId);
+        }
+
+        BlockState[] states = m_idToState;
+        if (combinedId < states.length && states[combinedId] != null) {
+            return states[combinedId];
+        }
+
+        final BlockStateHolder block = convertId(combinedId);
+        if (block == null) {
+            return null;
+        }
+
+        final BlockState state = block.toImmutableState();
+        synchronized (m_stateMutex) {
+            states = m_idToState;
+            if (combinedId >= states.length) {
+                int size = states.length;
+                while (combinedId >= size) {
+                    size *= 2;
+                }
+
+                BlockState[] tmp = new BlockState[size];
+                System.arraycopy(states, 0, tmp, 0, states.length);
+                states = tmp;
+            }
+
+            states[combinedId] = state;
+            m_idToState = states;
+        }
+        m_stateToId.putIfAbsent(state, combinedId);
+
+        return state;
+    }
     
     
     /**
@@ -211,8 +278,8 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
      */        
     @Override
     public BlockStateHolder getBaseBlock(int type, CompoundTag nbt) {
-        BlockStateHolder block = convertId(type);
-        if (nbt != null) {
+        BlockStateHolder block = getBlockState(type);
+        if (block != null && nbt != null) {
             block = block.toBaseBlock(nbt);
         }
 
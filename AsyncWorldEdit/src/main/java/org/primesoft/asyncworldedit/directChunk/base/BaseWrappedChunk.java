@@ -257,7 +257,10 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
         List<IBlockEntry> tOldBlocks = new ArrayList<>();
 
         IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
-        BlockVector3 chunkZero = PositionHelper.chunkToPosition(BlockVector2.at(m_cx, m_cz), 0);
+        BlockVector2 chunk = BlockVector2.at(m_cx, m_cz);
+        BlockVector3 chunkZero = PositionHelper.chunkToPosition(chunk, 0);
+        final boolean checkBlocks = bh != null && m_player != null
+                && !bh.canEditChunk(m_player, m_world, chunk, true);
 
         for (IBlockEntry block : dataBlocks) {
             int x = block.getX();
@@ -275,8 +278,8 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
                 BlockStateHolder old = cData.getBlock(x, y, z);
                 BlockStateHolder newBlock = dcApi.getBaseBlock(id, nbt);
 
-                if (bh == null || m_player == null || bh.canPlace(m_player, m_world, pos, old, newBlock, true)) {
-                    final int oldId = dcApi.getCombinedId(old.getBlockType().getId(), old.getStates());
+                if (!checkBlocks || bh.canPlace(m_player, m_world, pos, old, newBlock, true)) {
+                    final int oldId = dcApi.getCombinedId(old);
                     final CompoundTag oldCt = old instanceof BaseBlock ? ((BaseBlock)old).getNbtData() : null;
 
                     tOldBlocks.add(new BlockEntry(oldId, x, y, z, oldCt, emissionLight));
@@ -47,13 +47,19 @@
  */
 package org.primesoft.asyncworldedit.directChunk.relighter;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkAPI;
 import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkData;
@@ -67,6 +73,7 @@ import org.primesoft.asyncworldedit.directChunk.DcUtils;
 import org.primesoft.asyncworldedit.platform.api.IPlatform;
 import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
@@ -74,9 +81,58 @@ import org.primesoft.asyncworldedit.platform.api.ITask;
  */
 public class BlockReligher implements IBlockRelighter {
 
+    /**
+     * The lowest relighted Y coordinate
+     */
+    private final static int MIN_Y = 0;
+
+    /**
+     * The relighted height (matches the direct chunk data)
+     */
+    private final static int HEIGHT = 256;
+
+    /**
+     * Number of bits used to store the Y offset
+     */
+    private final static int Y_BITS = 32 - Integer.numberOfLeadingZeros(HEIGHT - 1);
+
+    private final static int Y_MASK = (1 << Y_BITS) - 1;
+
+    /**
+     * The tile size (in chunks)
+     */
+    private final static int TILE_SIZE = 3;
+
+    /**
+     * The relighted area size (in chunks), the tile and its neighbours
+     */
+    private final static int AREA_CHUNKS = TILE_SIZE + 2;
+
+    /**
+     * The relighted area size (in blocks)
+     */
+    private final static int AREA_SIZE = AREA_CHUNKS * 16;
+
+    /**
+     * The light range
+     */
+    private final static int RANGE = 15;
+
     private interface IRelighterMethods {
 
-        public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id);
+        /**
+         * Get the light source level for a block column
+         *
+         * @param chunk
+         * @param x
+         * @param z
+         * @param yMin
+         * @param yMax
+         * @param levels the output (yMin stored at offset)
+         * @param offset
+         */
+        public void getLightLevels(IDirectChunkData chunk, int x, int z, int yMin, int yMax,
+                byte[] levels, int offset);
 
         public int getOpacityLevel(int tBlockType);
 
@@ -112,7 +168,10 @@ public class BlockReligher implements IBlockRelighter {
      */
     private final HashMap<UUID, QueueEntry> m_worlds = new LinkedHashMap<>();
 
-    private final LinkedList<UUID> m_worldsStack = new LinkedList<>();
+    /**
+     * The relight workers
+     */
+    private ForkJoinPool m_pool;
 
     /**
      * The data mutex
@@ -145,8 +204,12 @@ public class BlockReligher implements IBlockRelighter {
 
         m_relighterEmission = new IRelighterMethods() {
             @Override
-            public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id) {
-                return m_dcApi.getLightEmissionLevel(id);
+            public void getLightLevels(IDirectChunkData chunk, int x, int z, int yMin, int yMax,
+                    byte[] levels, int offset) {
+                for (int py = yMin; py <= yMax; py++) {
+                    levels[offset + py - yMin] = chunk == null ? (byte) 0
+                            : m_dcApi.getLightEmissionLevel(chunk.getRawBlockData(x, py, z));
+                }
             }
 
             @Override
@@ -172,18 +235,20 @@ public class BlockReligher implements IBlockRelighter {
 
         m_relighterSky = new IRelighterMethods() {
             @Override
-            public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id) {
-                if (chunk == null) {
-                    return 0;
+            public void getLightLevels(IDirectChunkData chunk, int x, int z, int yMin, int yMax,
+                    byte[] levels, int offset) {
+                int opacity = chunk == null ? 15 : 0;
+                for (int py = MIN_Y + HEIGHT - 1; py > yMax && opacity < 15; py--) {
+                    opacity = Math.max(opacity, m_dcApi.getOpacityLevelSkyLight(chunk.getRawBlockData(x, py, z)));
                 }
 
-                int opacity = 0;
-                for (int py = y; py < 256 && opacity < 15; py++) {
-                    id = chunk.getRawBlockData(x, py, z);
-                    opacity = Math.max(opacity, m_dcApi.getOpacityLevelSkyLight(id));
-                }
+                for (int py = yMax; py >= yMin; py--) {
+                    if (opacity < 15) {
+                        opacity = Math.max(opacity, m_dcApi.getOpacityLevelSkyLight(chunk.getRawBlockData(x, py, z)));
+                    }
 
-                return (byte) Math.max(0, 15 - opacity);
+                    levels[offset + py - yMin] = (byte) (15 - opacity);
+                }
             }
 
             @Override
@@ -223,15 +288,26 @@ public class BlockReligher implements IBlockRelighter {
     }
 
     /**
-     * Converts X, Y, Z position to in chunk position
+     * Is the Y coordinate in the relighted height
+     *
+     * @param y Y coordinate
+     * @return
+     */
+    public static boolean isInHeight(int y) {
+        return y >= MIN_Y && y < MIN_Y + HEIGHT;
+    }
+
+    /**
+     * Converts X, Y, Z position to in chunk position. The Y coordinate needs
+     * to be in the relighted height (see isInHeight).
      *
      * @param x X coordinate (not chunk!)
      * @param y Y coordinate (not chunk!)
      * @param z Z coordinate (not chunk!)
      * @return
      */
-    public static short encodePosition(int x, int y, int z) {
-        return (short) ((x & 0xf) | ((z & 0xf) << 4) | ((y & 0xff) << 8));
+    public static int encodePosition(int x, int y, int z) {
+        return (x & 0xf) | ((z & 0xf) << 4) | ((y - MIN_Y) << 8);
     }
 
     @Override
@@ -240,6 +316,12 @@ public class BlockReligher implements IBlockRelighter {
 
         m_chunkWatcher = platform.getChunkWatcher();
 
+        m_pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                pool -> {
+                    ForkJoinWorkerThread result = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    result.setName("AWE:BlockRelighter:" + result.getPoolIndex());
+                    return result;
+                }, null, false);
         m_task = scheduler.runTaskAsynchronously(this::relightLoop);
     }
 
@@ -253,10 +335,10 @@ public class BlockReligher implements IBlockRelighter {
 
         synchronized (m_dataMutex) {
             m_worlds.clear();
-            m_worldsStack.clear();
         }
 
         m_task.cancel();
+        m_pool.shutdownNow();
     }
 
     @Override
@@ -271,7 +353,8 @@ public class BlockReligher implements IBlockRelighter {
 
     @Override
     public void forceQueueBlock(IWorld world, int x, int y, int z) {
-        if (world == null) {
+        if (world == null || !isInHeight(y)) {
+            //There is no light data outside the relighted height
             return;
         }
 
@@ -288,11 +371,7 @@ public class BlockReligher implements IBlockRelighter {
                 m_worlds.put(uuid, queue);
             }
 
-            if (queue.queueBlock(x, y, z)) {
-                if (!m_worldsStack.contains(uuid)) {
-                    m_worldsStack.push(uuid);
-                }
-            }
+            queue.queueBlock(x, y, z);
         }
 
         synchronized (m_waitMutex) {
@@ -323,9 +402,8 @@ public class BlockReligher implements IBlockRelighter {
                 dataProcessed = false;
             }
 
-            IWorld world = null;
-            Long encodedChunk = null;
-            HashSet<Short> blocksToProcess = null;
+            final List<QueueEntry> worlds = new ArrayList<>();
+            final List<Map<Long, BitSet>> blocks = new ArrayList<>();
 
             synchronized (m_dataMutex) {
                 if (m_isDisposed) {
@@ -333,134 +411,213 @@ public class BlockReligher implements IBlockRelighter {
                     continue;
                 }
 
-                while (!m_worldsStack.isEmpty() && blocksToProcess == null) {
-                    UUID worldUUID = m_worldsStack.pop();
-                    QueueEntry entry = m_worlds.get(worldUUID);
+                for (QueueEntry entry : m_worlds.values()) {
+                    if (!entry.isEmpty()) {
+                        worlds.add(entry);
+                        blocks.add(entry.drain());
+                    }
+                }
+            }
 
-                    Queue<Long> hashQueue = entry.getQueue();
-                    HashMap<Long, HashSet<Short>> blockQueue = entry.getBlockQueue();
+            for (int i = 0; i < worlds.size() && !m_isDisposed; i++) {
+                relight(worlds.get(i).getWorld(), blocks.get(i));
+                dataProcessed = true;
+            }
+        }
+    }
 
-                    if (hashQueue.isEmpty()) {
-                        //No data? strange this should not happen...
-                        //Continue to next world
-                        continue;
-                    }
+    /**
+     * Relight the world chunks. The chunks are grouped in 3x3 tiles, tiles
+     * that do not share any chunks (including the relight neighbourhood) are
+     * relighted in parallel.
+     *
+     * @param world
+     * @param chunks
+     */
+    private void relight(IWorld world, Map<Long, BitSet> chunks) {
+        final List<Map<Long, List<Long>>> phases = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++) {
+            phases.add(new LinkedHashMap<>());
+        }
 
-                    encodedChunk = hashQueue.poll();
-                    blocksToProcess = blockQueue.get(encodedChunk);
-                    blockQueue.remove(encodedChunk);
-                    world = entry.getWorld();
+        for (Long encodedChunk : chunks.keySet()) {
+            int tx = Math.floorDiv(decodeChunkX(encodedChunk), TILE_SIZE);
+            int tz = Math.floorDiv(decodeChunkZ(encodedChunk), TILE_SIZE);
+            long tile = ((long) tx << 32) | (tz & 0xFFFFFFFFL);
 
-                    if (!hashQueue.isEmpty()) {
-                        m_worldsStack.push(worldUUID);
-                    }
-                }
+            phases.get((tx & 1) | ((tz & 1) << 1))
+                    .computeIfAbsent(tile, _t -> new ArrayList<>())
+                    .add(encodedChunk);
+        }
+
+        for (Map<Long, List<Long>> tiles : phases) {
+            final List<Callable<Object>> tasks = new ArrayList<>(tiles.size());
+            for (Map.Entry<Long, List<Long>> tile : tiles.entrySet()) {
+                final long key = tile.getKey();
+                final List<Long> tileChunks = tile.getValue();
+
+                tasks.add(Executors.callable(() -> relightTile(world, (int) (key >> 32), (int) key, tileChunks, chunks)));
             }
 
-            if (blocksToProcess != null) {
-                relight(world, encodedChunk, blocksToProcess);
-                dataProcessed = true;
+            if (tasks.isEmpty() || m_isDisposed) {
+                continue;
+            }
+
+            try {
+                for (Future<Object> f : m_pool.invokeAll(tasks)) {
+                    f.get();
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (ExecutionException | RuntimeException ex) {
+                ExceptionHelper.printException(ex, "Error while relighting chunks");
             }
         }
     }
 
     /**
-     * Relight blocks
+     * Relight all chunks in a tile. The tile and its neighbours are loaded
+     * once and both the emission and the sky light are recalculated in a
+     * single pass.
      *
-     * @param encodedChunk
-     * @param blocks
+     * @param world
+     * @param tx
+     * @param tz
+     * @param tile
+     * @param chunks
      */
-    private void relight(IWorld world, long encodedChunk, HashSet<Short> blocks) {
-        //HACK: We need to do SHL then SHR to handle the negative chunks propwerly
-        int cx = ((int) ((encodedChunk & 0xfffffff) << 4)) >> 4;
-        int cz = ((int) (((encodedChunk >> 28) & 0xfffffff) << 4)) >> 4;
-        String worldName = world.getName();
+    private void relightTile(IWorld world, int tx, int tz, List<Long> tile, Map<Long, BitSet> chunks) {
+        if (m_isDisposed) {
+            return;
+        }
+
+        final int ox = tx * TILE_SIZE - 1;
+        final int oz = tz * TILE_SIZE - 1;
+        final String worldName = world.getName();
+        final RelightContext context = s_context.get();
+        final boolean[] used = new boolean[AREA_CHUNKS * AREA_CHUNKS];
+
+        context.clear();
+        for (Long encodedChunk : tile) {
+            int lcx = decodeChunkX(encodedChunk) - ox;
+            int lcz = decodeChunkZ(encodedChunk) - oz;
 
-        int[] ccx = new int[3];
-        int[] ccz = new int[3];
+            for (int i = -1; i < 2; i++) {
+                for (int j = -1; j < 2; j++) {
+                    used[(lcx + i) + (lcz + j) * AREA_CHUNKS] = true;
+                }
+            }
 
-        for (int i = -1; i < 2; i++) {
-            ccx[i + 1] = cx + i;
-            ccz[i + 1] = cz + i;
+            context.addBlocks(lcx * 16, lcz * 16, chunks.get(encodedChunk));
         }
+        context.calculateDiamond();
 
-        final IWrappedChunk[] chunks = new IWrappedChunk[9];
-        final IDirectChunkData[] chunkData = new IDirectChunkData[9];
+        final IWrappedChunk[] wChunks = new IWrappedChunk[AREA_CHUNKS * AREA_CHUNKS];
+        final IDirectChunkData[] chunkData = new IDirectChunkData[AREA_CHUNKS * AREA_CHUNKS];
 
         try {
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    m_chunkWatcher.add(ccx[i], ccz[j], worldName);
+            for (int i = 0; i < used.length; i++) {
+                if (used[i]) {
+                    m_chunkWatcher.add(ox + i % AREA_CHUNKS, oz + i / AREA_CHUNKS, worldName);
                 }
             }
 
-            for (int i = 0; i < 9; i++) {
+            for (int i = 0; i < used.length; i++) {
+                if (!used[i]) {
+                    continue;
+                }
+
                 IWrappedChunk wChunk = DcUtils.wrapChunk(m_taskDispatcher, m_dcApi, world,
-                        ccx[i % 3], ccz[i / 3]);
-                chunks[i] = wChunk;
+                        ox + i % AREA_CHUNKS, oz + i / AREA_CHUNKS);
+                wChunks[i] = wChunk;
                 chunkData[i] = wChunk.getDirectDataManipulator();
 
                 wChunk.initLighting();
             }
 
-            //relight(chunks, chunkData, blocks, m_relighterEmission);
-            relight(chunks, chunkData, blocks, m_relighterSky);
+            relight(chunkData, m_relighterEmission, context);
+            relight(chunkData, m_relighterSky, context);
+
+            for (IWrappedChunk chunk : wChunks) {
+                if (chunk != null) {
+                    chunk.setDirty();
+                    chunk.sendChunkUpdate();
+                }
+            }
         } finally {
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    m_chunkWatcher.remove(ccx[i], ccz[j], worldName);
+            for (int i = 0; i < used.length; i++) {
+                if (used[i]) {
+                    m_chunkWatcher.remove(ox + i % AREA_CHUNKS, oz + i / AREA_CHUNKS, worldName);
                 }
             }
         }
     }
 
+    /**
+     * Decode the chunk X coordinate
+     *
+     * @param encodedChunk
+     * @return
+     */
+    private static int decodeChunkX(long encodedChunk) {
+        //HACK: We need to do SHL then SHR to handle the negative chunks propwerly
+        return ((int) ((encodedChunk & 0xfffffff) << 4)) >> 4;
+    }
+
+    /**
+     * Decode the chunk Z coordinate
+     *
+     * @param encodedChunk
+     * @return
+     */
+    private static int decodeChunkZ(long encodedChunk) {
+        //HACK: We need to do SHL then SHR to handle the negative chunks propwerly
+        return ((int) (((encodedChunk >> 28) & 0xfffffff) << 4)) >> 4;
+    }
+
     private final static int[] DD_X = new int[]{-1, 1, 0, 0, 0, 0};
     private final static int[] DD_Y = new int[]{0, 0, -1, 1, 0, 0};
     private final static int[] DD_Z = new int[]{0, 0, 0, 0, -1, 1};
 
     /**
-     * Recalculate light starting from blocks
-     *
-     * @param chunks
+     * The relight buffers, one for each relight thread
      */
-    private static void relight(IWrappedChunk[] chunks, IDirectChunkData[] chunkData, HashSet<Short> blocks,
-            IRelighterMethods relighter) {
-        //Move position to center chunk
-        final Set<Integer> diamond = new HashSet<>();
-        final HashMap<Byte, Queue<Integer>> blockQueue = new LinkedHashMap<>();
-        final Set<Integer> blockQueueFlat = new HashSet<>();
-
-        calculateDiamond(blocks, diamond, chunkData, relighter.isFullY());
-        queueDiamond(diamond, chunkData, blockQueue, blockQueueFlat, relighter);
+    private final static ThreadLocal<RelightContext> s_context = ThreadLocal.withInitial(RelightContext::new);
 
-        while (!blockQueue.isEmpty()) {
-            int data = dequeueBlock(blockQueue, blockQueueFlat);
-            if (data == -1) {
-                continue;
-            }
+    /**
+     * Recalculate light for all blocks in the context diamond
+     *
+     * @param chunkData
+     * @param relighter
+     * @param context
+     */
+    private static void relight(IDirectChunkData[] chunkData, IRelighterMethods relighter, RelightContext context) {
+        final BitSet diamond = context.Diamond;
+        final BitSet blockQueueFlat = context.Queued;
+        final IntQueue[] blockQueue = context.Queue;
+        final byte[] sources = context.Sources;
 
-            int x = data & 0x3f;
-            int y = (data >> 12) & 0xff;
-            int z = (data >> 6) & 0x3f;
+        context.clearQueue();
+        queueDiamond(chunkData, relighter, context);
 
-            if (!diamond.contains(data)) {
-                continue;
-            }
+        int data;
+        while ((data = dequeueBlock(blockQueue, blockQueueFlat)) != -1) {
+            int y = data & Y_MASK;
+            int x = (data >>> Y_BITS) / AREA_SIZE;
+            int z = (data >>> Y_BITS) % AREA_SIZE;
 
-            int idx = (x / 16) + (z / 16) * 3;
-            IDirectChunkData chunk = chunkData[idx];
+            IDirectChunkData chunk = getChunk(chunkData, x, z);
+            int wy = y + MIN_Y;
 
-            int lightCurrent = relighter.getCurrentLight(chunk, x & 0xf, y, z & 0xf);
-            int lightExpected = getExpectedLight(x, y, z, chunkData, relighter);
+            int tOpacity = relighter.getOpacityLevel(chunk.getRawBlockData(x & 0xf, wy, z & 0xf));
+            int lightCurrent = relighter.getCurrentLight(chunk, x & 0xf, wy, z & 0xf);
+            int lightExpected = getExpectedLight(x, y, z, sources[data], tOpacity, chunkData, relighter);
 
             if (lightCurrent == lightExpected) {
                 continue;
             }
 
-            relighter.setCurrentLight(chunk, x & 0xf, y, z & 0xf, (byte) lightExpected);
-
-            char tBlockType = (char) chunk.getRawBlockData(x & 0xf, y, z & 0xf);
-            int tOpacity = relighter.getOpacityLevel(tBlockType);
+            relighter.setCurrentLight(chunk, x & 0xf, wy, z & 0xf, (byte) lightExpected);
 
             lightExpected -= tOpacity;
             if (lightExpected < 1) {
@@ -472,106 +629,71 @@ public class BlockReligher implements IBlockRelighter {
                 int newY = y + DD_Y[i];
                 int newZ = z + DD_Z[i];
 
-                data = encodeRelightPosition(newX, newY, newZ);
-                if (!diamond.contains(data) || newY < 0 || newY > 255) {
+                if (!isValidPos(newX, newY, newZ)) {
                     continue;
                 }
 
-                idx = (newX / 16) + (newZ / 16) * 3;
-                chunk = chunkData[idx];
-                lightCurrent = relighter.getCurrentLight(chunk, newX & 0xf, newY, newZ & 0xf);
-
-                if (lightCurrent >= lightExpected) {
+                data = encodeRelightPosition(newX, newY, newZ);
+                if (!diamond.get(data) || blockQueueFlat.get(data)) {
                     continue;
                 }
 
-                if (blockQueueFlat.contains(data)) {
+                chunk = getChunk(chunkData, newX, newZ);
+                lightCurrent = relighter.getCurrentLight(chunk, newX & 0xf, newY + MIN_Y, newZ & 0xf);
+
+                if (lightCurrent >= lightExpected) {
                     continue;
                 }
 
-                queueBlock((byte) (lightExpected & 0xf), data, blockQueue, blockQueueFlat);
+                queueBlock(lightExpected & 0xf, data, blockQueue, blockQueueFlat);
             }
         }
-
-        for (IWrappedChunk chunk : chunks) {
-            chunk.setDirty();
-            chunk.sendChunkUpdate();
-        }
-    }
-
-    private static void queueDiamond(final Set<Integer> diamond, IDirectChunkData[] chunkData,
-            final HashMap<Byte, Queue<Integer>> blockQueue, Set<Integer> blockQueueFlat,
-            IRelighterMethods relighter) {
-        for (Integer data : diamond) {
-            int x = data & 0x3f;
-            int y = (data >> 12) & 0xff;
-            int z = (data >> 6) & 0x3f;
-
-            int idx = (x / 16) + (z / 16) * 3;
-            IDirectChunkData chunk = chunkData[idx];
-            relighter.setCurrentLight(chunk, x & 0xf, y, z & 0xf, (byte) 0);
-            int id = chunk.getRawBlockData(x & 0xf, y, z & 0xf);
-            byte lightLevel = relighter.getLightLevel(chunk, x & 0xf, y, z & 0xf, id);
-
-            queueBlock(lightLevel, data, blockQueue, blockQueueFlat);
-        }
     }
 
     /**
-     * Queue all blocks inside a diamond shape
+     * Reset the light of all blocks in the diamond and queue the light
+     * sources
      *
-     * @param blockQueue
      * @param chunkData
+     * @param relighter
+     * @param context
      */
-    private static void calculateDiamond(Set<Short> blocks, final Set<Integer> diamond, IDirectChunkData[] chunkData,
-            boolean fullY) {
-        for (Short data : blocks) {
-            int px = 16 + (data & 0xf);
-            int py = (data >> 8) & 0xff;
-            int pz = 16 + ((data >> 4) & 0xf);
-
-            for (int tx = -15; tx <= 15; tx++) {
-                int dx = tx < 0 ? -tx : tx;
-                int x = px + tx;
-                for (int tz = -15 + dx; tz <= 15 - dx; tz++) {
-                    int z = pz + tz;
-                    int dz = tz < 0 ? -tz : tz;
-
-                    int yMin, yMax;
-                    if (fullY) {
-                        yMin = 0;
-                        yMax = 255;
-                    } else {
-                        yMin = py + -15 + dx + dz;
-                        yMax = py + 15 - dx - dz;
-                    }
-
-                    for (int y = yMin; y <= yMax; y++) {
-                        if (!isValidPos(x, y, z)) {
-                            return;
-                        }
-
-                        Integer encoded = encodeRelightPosition(x, y, z);
-                        if (!diamond.contains(encoded)) {
-                            diamond.add(encoded);
-                        }
-                    }
-                }
+    private static void queueDiamond(IDirectChunkData[] chunkData, IRelighterMethods relighter,
+            RelightContext context) {
+        final boolean fullY = relighter.isFullY();
+        final BitSet columns = context.Columns;
+        final BitSet diamond = context.Diamond;
+        final byte[] sources = context.Sources;
+
+        diamond.clear();
+        for (int col = columns.nextSetBit(0); col >= 0; col = columns.nextSetBit(col + 1)) {
+            int x = col / AREA_SIZE;
+            int z = col % AREA_SIZE;
+            int yMin = fullY ? 0 : context.ColumnMin[col];
+            int yMax = fullY ? HEIGHT - 1 : context.ColumnMax[col];
+            int from = encodeRelightPosition(x, yMin, z);
+
+            IDirectChunkData chunk = getChunk(chunkData, x, z);
+            relighter.getLightLevels(chunk, x & 0xf, z & 0xf, yMin + MIN_Y, yMax + MIN_Y, sources, from);
+            diamond.set(from, from + yMax - yMin + 1);
+
+            for (int y = yMin; y <= yMax; y++) {
+                relighter.setCurrentLight(chunk, x & 0xf, y + MIN_Y, z & 0xf, (byte) 0);
+                queueBlock(sources[from + y - yMin], from + y - yMin, context.Queue, context.Queued);
             }
         }
     }
 
     /**
-     * Encode relight block position and expected light value
+     * Encode relight block position (relative to the relighted area)
      *
      * @param x
      * @param y
      * @param z
-     * @param light
      * @return
      */
     private static int encodeRelightPosition(int x, int y, int z) {
-        return (x & 0x3f) | ((z & 0x3f) << 6) | ((y & 0xff) << 12);
+        return ((x * AREA_SIZE + z) << Y_BITS) | y;
     }
 
     /**
@@ -583,7 +705,19 @@ public class BlockReligher implements IBlockRelighter {
      * @return
      */
     private static boolean isValidPos(int px, int py, int pz) {
-        return px >= 0 && px < 48 && pz >= 0 && pz < 48 && py >= 0 && py < 256;
+        return px >= 0 && px < AREA_SIZE && pz >= 0 && pz < AREA_SIZE && py >= 0 && py < HEIGHT;
+    }
+
+    /**
+     * Get the chunk data for relight position
+     *
+     * @param chunkData
+     * @param x
+     * @param z
+     * @return
+     */
+    private static IDirectChunkData getChunk(IDirectChunkData[] chunkData, int x, int z) {
+        return chunkData[(x >> 4) + (z >> 4) * AREA_CHUNKS];
     }
 
     /**
@@ -592,21 +726,13 @@ public class BlockReligher implements IBlockRelighter {
      * @param x
      * @param y
      * @param z
+     * @param tLight the block light source level
+     * @param tOpacity the block opacity
      * @param chunkData
      * @return
      */
-    private static int getExpectedLight(int x, int y, int z, IDirectChunkData[] chunkData,
-            IRelighterMethods relighter) {
-        if (!isValidPos(x, y, z)) {
-            return -1;
-        }
-
-        IDirectChunkData chunk = chunkData[(x / 16) + (z / 16) * 3];
-        int tBlockType = chunk.getRawBlockData(x & 0xf, y, z & 0xf);
-
-        int tLight = relighter.getLightLevel(chunk, x & 0xf, y, z & 0xf, tBlockType);
-        int tOpacity = relighter.getOpacityLevel(tBlockType);
-
+    private static int getExpectedLight(int x, int y, int z, int tLight, int tOpacity,
+            IDirectChunkData[] chunkData, IRelighterMethods relighter) {
         if (tOpacity >= 15) {
             return 0;
         }
@@ -619,13 +745,16 @@ public class BlockReligher implements IBlockRelighter {
             int newY = y + DD_Y[i];
             int newZ = z + DD_Z[i];
 
-            if (!isValidPos(newX, newY, newZ) || newY < 0 || newY > 255) {
+            if (!isValidPos(newX, newY, newZ)) {
                 continue;
             }
 
-            chunk = chunkData[(newX / 16) + (newZ / 16) * 3];
-            tBlockType = chunk.getRawBlockData(newX & 0xf, newY, newZ & 0xf);
-            tLight = Math.max(tLight, relighter.getCurrentLight(chunk, newX & 0xf, newY, newZ & 0xf) - tOpacity);
+            IDirectChunkData chunk = getChunk(chunkData, newX, newZ);
+            if (chunk == null) {
+                continue;
+            }
+
+            tLight = Math.max(tLight, relighter.getCurrentLight(chunk, newX & 0xf, newY + MIN_Y, newZ & 0xf) - tOpacity);
         }
 
         return tLight;
@@ -637,44 +766,157 @@ public class BlockReligher implements IBlockRelighter {
      * @param emission
      * @param data
      * @param blockQueue
+     * @param blockQueueFlat
      */
-    private static void queueBlock(Byte emission, Integer data,
-            HashMap<Byte, Queue<Integer>> blockQueue, Set<Integer> blockQueueFlat) {
-        Queue<Integer> entry = blockQueue.get(emission);
-        if (entry == null) {
-            entry = new LinkedList<>();
-            blockQueue.put(emission, entry);
-        }
-
-        entry.add(data);
-        blockQueueFlat.add(data);
+    private static void queueBlock(int emission, int data,
+            IntQueue[] blockQueue, BitSet blockQueueFlat) {
+        blockQueue[emission].add(data);
+        blockQueueFlat.set(data);
     }
 
-    private static int dequeueBlock(HashMap<Byte, Queue<Integer>> blockQueue,
-            Set<Integer> blockQueueFlat) {
-        if (blockQueue.isEmpty()) {
-            return -1;
-        }
-
-        for (Byte emission = 15; emission >= 0; emission--) {
-            Queue<Integer> queue = blockQueue.get(emission);
-            if (queue == null) {
-                continue;
-            }
+    private static int dequeueBlock(IntQueue[] blockQueue, BitSet blockQueueFlat) {
+        for (int emission = 15; emission >= 0; emission--) {
+            IntQueue queue = blockQueue[emission];
             if (queue.isEmpty()) {
-                blockQueue.remove(emission);
                 continue;
             }
 
-            Integer result = queue.poll();
-            blockQueueFlat.remove(result);
-            if (queue.isEmpty()) {
-                blockQueue.remove(emission);
-            }
+            int result = queue.poll();
+            blockQueueFlat.clear(result);
 
             return result;
         }
 
         return -1;
     }
+
+    /**
+     * The relight work buffers
+     */
+    private static final class RelightContext {
+
+        private final static int COLUMNS = AREA_SIZE * AREA_SIZE;
+
+        private final static int SIZE = COLUMNS << Y_BITS;
+
+        /**
+         * Columns containing queued blocks
+         */
+        final BitSet Dirty = new BitSet(COLUMNS);
+
+        /**
+         * Lowest and highest queued block in column
+         */
+        final int[] DirtyMin = new int[COLUMNS];
+        final int[] DirtyMax = new int[COLUMNS];
+
+        /**
+         * Columns to relight
+         */
+        final BitSet Columns = new BitSet(COLUMNS);
+
+        /**
+         * The emission relight range in column
+         */
+        final int[] ColumnMin = new int[COLUMNS];
+        final int[] ColumnMax = new int[COLUMNS];
+
+        /**
+         * The blocks to relight
+         */
+        final BitSet Diamond = new BitSet(SIZE);
+
+        /**
+         * The queued blocks
+         */
+        final BitSet Queued = new BitSet(SIZE);
+
+        /**
+         * The light source levels (valid for diamond blocks)
+         */
+        final byte[] Sources = new byte[SIZE];
+
+        /**
+         * Block queue for each light level
+         */
+        final IntQueue[] Queue = new IntQueue[16];
+
+        RelightContext() {
+            for (int i = 0; i < Queue.length; i++) {
+                Queue[i] = new IntQueue();
+            }
+        }
+
+        void clear() {
+            Dirty.clear();
+            Columns.clear();
+        }
+
+        void clearQueue() {
+            Queued.clear();
+            for (IntQueue q : Queue) {
+                q.clear();
+            }
+        }
+
+        /**
+         * Add the queued chunk blocks
+         *
+         * @param bx the chunk X offset (in area)
+         * @param bz the chunk Z offset (in area)
+         * @param blocks encoded block positions
+         */
+        void addBlocks(int bx, int bz, BitSet blocks) {
+            for (int data = blocks.nextSetBit(0); data >= 0; data = blocks.nextSetBit(data + 1)) {
+                int col = (bx + (data & 0xf)) * AREA_SIZE + bz + ((data >> 4) & 0xf);
+                int y = data >>> 8;
+
+                if (!Dirty.get(col)) {
+                    Dirty.set(col);
+                    DirtyMin[col] = y;
+                    DirtyMax[col] = y;
+                } else {
+                    DirtyMin[col] = Math.min(DirtyMin[col], y);
+                    DirtyMax[col] = Math.max(DirtyMax[col], y);
+                }
+            }
+        }
+
+        /**
+         * Calculate the columns inside the diamond shape around the queued
+         * blocks
+         */
+        void calculateDiamond() {
+            for (int col = Dirty.nextSetBit(0); col >= 0; col = Dirty.nextSetBit(col + 1)) {
+                int px = col / AREA_SIZE;
+                int pz = col % AREA_SIZE;
+
+                for (int tx = -RANGE; tx <= RANGE; tx++) {
+                    int dx = tx < 0 ? -tx : tx;
+                    int x = px + tx;
+                    for (int tz = -RANGE + dx; tz <= RANGE - dx; tz++) {
+                        int z = pz + tz;
+                        int dz = tz < 0 ? -tz : tz;
+
+                        if (!isValidPos(x, 0, z)) {
+                            continue;
+                        }
+
+                        int yMin = Math.max(0, DirtyMin[col] - RANGE + dx + dz);
+                        int yMax = Math.min(HEIGHT - 1, DirtyMax[col] + RANGE - dx - dz);
+                        int idx = x * AREA_SIZE + z;
+
+                        if (!Columns.get(idx)) {
+                            Columns.set(idx);
+                            ColumnMin[idx] = yMin;
+                            ColumnMax[idx] = yMax;
+                        } else {
+                            ColumnMin[idx] = Math.min(ColumnMin[idx], yMin);
+                            ColumnMax[idx] = Math.max(ColumnMax[idx], yMax);
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -47,11 +47,9 @@
  */
 package org.primesoft.asyncworldedit.directChunk.relighter;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.primesoft.asyncworldedit.api.IWorld;
 
 /**
@@ -61,14 +59,10 @@ import org.primesoft.asyncworldedit.api.IWorld;
 public class QueueEntry {
 
     /**
-     * Hash of all queued blocks
+     * Queued blocks (encoded position bits) for each encoded chunk in the
+     * relight order
      */
-    private final HashMap<Long, HashSet<Short>> m_blockQueue = new HashMap<Long, HashSet<Short>>();
-
-    /**
-     * Queue used to determine the order of relighting
-     */
-    private final Queue<Long> m_hashQueue = new LinkedList<Long>();
+    private final Map<Long, BitSet> m_blockQueue = new LinkedHashMap<>();
 
     /**
      * The world
@@ -83,38 +77,45 @@ public class QueueEntry {
         return m_world;
     }
 
-    public HashMap<Long, HashSet<Short>> getBlockQueue() {
-        return m_blockQueue;
+    public boolean isEmpty() {
+        return m_blockQueue.isEmpty();
     }
 
-    public Queue<Long> getQueue() {
-        return m_hashQueue;
+    /**
+     * Take all the queued chunks
+     *
+     * @return
+     */
+    public Map<Long, BitSet> drain() {
+        Map<Long, BitSet> result = new LinkedHashMap<>(m_blockQueue);
+        m_blockQueue.clear();
+
+        return result;
     }
 
     /**
-     * Queue block using encoded chunk and encoded position
+     * Queue block using encoded chunk and encoded position, blocks outside
+     * the relighted height are ignored
      *
      * @param x
      * @param y
      * @param z
+     * @return
      */
     public boolean queueBlock(int x, int y, int z) {
-        Long chunk = BlockReligher.encodeChunk(x, z);
-        Short pos = BlockReligher.encodePosition(x, y, z);
-
-        HashSet<Short> data = m_blockQueue.get(chunk);
-        if (data == null) {
-            data = new LinkedHashSet<Short>();
-
-            m_blockQueue.put(chunk, data);
-            m_hashQueue.add(chunk);
+        if (!BlockReligher.isInHeight(y)) {
+            return false;
         }
 
-        if (data.contains(pos)) {            
+        final long chunk = BlockReligher.encodeChunk(x, z);
+        final int pos = BlockReligher.encodePosition(x, y, z);
+
+        final BitSet data = m_blockQueue.computeIfAbsent(chunk, _c -> new BitSet());
+        if (data.get(pos)) {
             return false;
         }
-        
-        data.add(pos);
+
+        data.set(pos);
         return true;
     }
-}
\ No newline at end of file
+}
@@ -56,6 +56,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.core.ChunkWatch;
@@ -141,6 +142,14 @@ class BukkitChunkWatcher extends ChunkWatch implements Listener {
         chunkUnloading(worldName, cx, cz);
     }
 
+    @EventHandler
+    public void onWorldUnloadEvent(WorldUnloadEvent event) {
+        String worldName = event.getWorld().getName();
+
+        m_forceload.remove(worldName);
+        worldUnloaded(worldName);
+    }
+
     @Override
     public void registerEvents() {
         Server server = m_plugin.getServer();
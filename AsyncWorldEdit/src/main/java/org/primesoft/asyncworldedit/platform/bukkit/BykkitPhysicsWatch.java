@@ -47,7 +47,6 @@
  */
 package org.primesoft.asyncworldedit.platform.bukkit;
 
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.event.Cancellable;
@@ -166,13 +165,16 @@ class BykkitPhysicsWatch extends PhysicsWatch implements IPhysicsWatch, Listener
             return;
         }
         
-        String material = block.getType().getKey().toString();
-        Location location = block.getLocation();
-        String name = location.getWorld().getName();
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
+        String name = block.getWorld().getName();
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
         
+        if (!isWatched(name, x, z)) {
+            return;
+        }
+        
+        String material = block.getType().getKey().toString();
         if (cancelEvent(name, x, y, z, material)) {
             event.setCancelled(true);
         }
@@ -56,6 +56,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
+import org.primesoft.asyncworldedit.api.inner.IBlocksHubBridge;
 import org.primesoft.asyncworldedit.api.inner.ICron;
 import org.primesoft.asyncworldedit.api.inner.IWorldeditIntegratorInner;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
@@ -140,6 +141,11 @@ public class PlayerManager implements IPlayerManager, IPlayerStorage {
                 m_parent.getBlockPlacer().purge(entry);
             }
 
+            IBlocksHubBridge blocksHub = m_parent.getBlocksHubBridge();
+            if (blocksHub != null) {
+                blocksHub.invalidateAccess(entry);
+            }
+
             entry.dispose();
         }
 
@@ -53,18 +53,11 @@ import org.primesoft.asyncworldedit.api.utils.IAction;
  *
  * @author SBPrime
  */
-public class ActionEntry extends BaseDispatcherEntry {
+public class ActionEntry extends BaseDispatcherEntry<Void> {
     /**
      * IAction to perform
      */
     private final IAction m_action;
-        
-    
-    /**
-     * Is the task done
-     */
-    private boolean m_isDone = false;
-
     
     /**
      * The action
@@ -79,7 +72,7 @@ public class ActionEntry extends BaseDispatcherEntry {
      * @return 
      */
     public boolean isDone() {
-        return m_isDone;
+        return getFuture().isDone();
     }
 
     /**
@@ -91,8 +84,8 @@ public class ActionEntry extends BaseDispatcherEntry {
     }
 
     @Override
-    public void Execute() {
+    public Void Execute() {
         m_action.execute();
-        m_isDone = true;
+        return null;
     }        
 }
\ No newline at end of file
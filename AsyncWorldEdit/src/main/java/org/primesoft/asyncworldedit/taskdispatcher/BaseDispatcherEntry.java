@@ -48,39 +48,62 @@
 
 package org.primesoft.asyncworldedit.taskdispatcher;
 
+import java.util.concurrent.CompletableFuture;
 import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
  * @author SBPrime
+ * @param <T>
  */
-public abstract class BaseDispatcherEntry implements IDispatcherEntry {
+public abstract class BaseDispatcherEntry<T> implements IDispatcherEntry {
     /**
      * The MTA mutex
      */
     private final Object m_mutex = new Object();
     
+    /**
+     * The task result
+     */
+    private final CompletableFuture<T> m_future = new CompletableFuture<>();
+    
     @Override
     public Object getMutex() {
         return m_mutex;
     }
     
+    /**
+     * The task result, completed with null if the task failed
+     * @return 
+     */
+    public CompletableFuture<T> getFuture() {
+        return m_future;
+    }
+    
     /**
      * The task to execute
+     * @return 
      */
-    public abstract void Execute();
+    public abstract T Execute();
+    
+    /**
+     * Cancel the task, the waiting thread gets the error
+     * @param error 
+     */
+    public void cancel(Throwable error) {
+        m_future.completeExceptionally(error);
+    }
     
     @Override
     public boolean Process() {
-        synchronized (m_mutex) {
-            try {
-                Execute();
-            } catch (Exception ex) {
-                ExceptionHelper.printException(ex, "Error while executing dispatcher task");
-            }
-            m_mutex.notifyAll();
+        T result = null;
+        try {
+            result = Execute();
+        } catch (Exception ex) {
+            ExceptionHelper.printException(ex, "Error while executing dispatcher task");
         }
+        m_future.complete(result);
         
         return true;
     }
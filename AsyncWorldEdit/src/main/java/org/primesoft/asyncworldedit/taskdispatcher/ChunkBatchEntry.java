@@ -0,0 +1,151 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.taskdispatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
+
+/**
+ * Dispatcher entry grouping all pending main thread operations for a chunk
+ *
+ * @author SBPrime
+ */
+class ChunkBatchEntry implements IDispatcherEntry {
+
+    /**
+     * The MTA mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * The batched operations
+     */
+    private List<BaseDispatcherEntry<?>> m_entries = new ArrayList<>();
+
+    /**
+     * Encoded chunk coordinates
+     */
+    private final long m_chunk;
+
+    /**
+     * The pending batches (for the world)
+     */
+    private final Map<Long, ChunkBatchEntry> m_batches;
+
+    ChunkBatchEntry(Map<Long, ChunkBatchEntry> batches, long chunk) {
+        m_batches = batches;
+        m_chunk = chunk;
+    }
+
+    @Override
+    public Object getMutex() {
+        return m_mutex;
+    }
+
+    /**
+     * Add operation to the batch
+     *
+     * @param entry
+     * @return false if the batch is already processed
+     */
+    boolean add(BaseDispatcherEntry<?> entry) {
+        synchronized (m_mutex) {
+            if (m_entries == null) {
+                return false;
+            }
+
+            m_entries.add(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Close the batch, no more operations can be added
+     *
+     * @return the batched operations
+     */
+    private List<BaseDispatcherEntry<?>> close() {
+        synchronized (m_mutex) {
+            List<BaseDispatcherEntry<?>> result = m_entries;
+            m_entries = null;
+
+            return result;
+        }
+    }
+
+    /**
+     * Cancel all batched operations
+     *
+     * @param error
+     */
+    void cancel(Throwable error) {
+        m_batches.remove(m_chunk, this);
+
+        final List<BaseDispatcherEntry<?>> entries = close();
+        if (entries == null) {
+            return;
+        }
+
+        for (BaseDispatcherEntry<?> entry : entries) {
+            entry.cancel(error);
+        }
+    }
+
+    @Override
+    public boolean Process() {
+        m_batches.remove(m_chunk, this);
+
+        for (BaseDispatcherEntry<?> entry : close()) {
+            entry.Process();
+        }
+
+        return true;
+    }
+}
@@ -47,7 +47,6 @@
  */
 package org.primesoft.asyncworldedit.taskdispatcher;
 
-import java.util.Optional;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 
 /**
@@ -55,26 +54,20 @@ import org.primesoft.asyncworldedit.api.utils.IFunc;
  * @author SBPrime
  * @param <T>
  */
-public class FuncEntry<T> extends BaseDispatcherEntry {
+public class FuncEntry<T> extends BaseDispatcherEntry<T> {
 
     private final IFunc<T> m_action;
-    private volatile Optional<T> m_result = null;
 
     public IFunc<T> getAction() {
         return m_action;
     }
 
-    public Optional<T> getResult() {
-        return m_result;
-    }
-
-    public FuncEntry(IFunc action) {
+    public FuncEntry(IFunc<T> action) {
         m_action = action;
     }
 
     @Override
-    public void Execute() {
-        T result = m_action.execute();
-        m_result = result == null ? Optional.empty() : Optional.of(result);
+    public T Execute() {
+        return m_action.execute();
     }
-}
+}
\ No newline at end of file
@@ -53,11 +53,12 @@ import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
 import com.sk89q.worldedit.regions.Region;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
@@ -66,10 +67,12 @@ import org.primesoft.asyncworldedit.api.utils.IAction;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 import org.primesoft.asyncworldedit.configuration.ConfigDispatcher;
+import org.primesoft.asyncworldedit.core.TickBudget;
 import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
 import org.primesoft.asyncworldedit.utils.InOutParam;
 import org.primesoft.asyncworldedit.utils.PositionHelper;
+import org.primesoft.asyncworldedit.utils.WorldMutex;
 
 /**
  * This class is used to perform tasks that need to by performed as fast as
@@ -102,6 +105,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     private final IChunkWatch m_chunkWatch;
 
+    /**
+     * The adaptive main thread budget
+     */
+    private final TickBudget m_tickBudget;
+
     /**
      * Current scheduler fast task
      */
@@ -118,10 +126,19 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     private final IAsyncWorldEditCore m_aweCore;
 
     /**
-     * List of fast tasks (high priority) Use linked list to overcome memory
-     * leakage
+     * Fast operations with a waiting thread (processed first)
+     */
+    private final Queue<IDispatcherEntry> m_criticalTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * List of fast tasks (high priority)
+     */
+    private final Queue<IDispatcherEntry> m_fastTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Pending main thread operations batched by world and chunk
      */
-    private final Queue<IDispatcherEntry> m_fastTasks = new LinkedList<>();
+    private final Map<String, Map<Long, ChunkBatchEntry>> m_chunkBatches = new ConcurrentHashMap<>();
 
     /**
      * The main thread
@@ -143,6 +160,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     private boolean m_isPaused = false;
 
+    /**
+     * Indicates that the task dispatcher is stopped
+     */
+    private volatile boolean m_isStopped = false;
+
     /**
      * Is the task dispatcher paused
      *
@@ -167,9 +189,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      * Initialize new instance of the block placer
      *
      * @param core parent
+     * @param tickBudget the main thread budget
      */
-    public TaskDispatcher(IAsyncWorldEditCore core) {
+    public TaskDispatcher(IAsyncWorldEditCore core, TickBudget tickBudget) {
         m_scheduler = core.getPlatform().getScheduler();
+        m_tickBudget = tickBudget;
         m_aweCore = core;
         m_chunkWatch = m_aweCore.getChunkWatch();
 
@@ -195,13 +219,14 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void run() {
+        long enterNanos = System.nanoTime();
         long enter = System.currentTimeMillis();
         long runDelta = enter - m_lastEnter;
         long runTime;
         ConfigDispatcher dConfig = ConfigProvider.dispatcher();
 
         int jobsCount = dConfig.getMaxJobs();
-        int maxTime = dConfig.getMaxTime();
+        int maxTime = m_tickBudget.scale(dConfig.getMaxTime());
 
         if (runDelta < 1) {
             runDelta = 0;
@@ -219,24 +244,19 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
 
             boolean processed = false;
             for (int i = 0; i < jobsCount && (m_usage * 3 + usage) / 4 < maxTime; i++) {
-                IDispatcherEntry task = null;
-                synchronized (m_fastTasks) {
-                    if (!m_fastTasks.isEmpty()) {
-                        task = m_fastTasks.poll();
-                    }
+                IDispatcherEntry task = m_criticalTasks.poll();
+                if (task == null) {
+                    task = m_fastTasks.poll();
                 }
 
-                if (task != null) {
-                    task.Process();
-                    processed = true;
-                } else {
-                    try {
-                        //Force thread change
-                        Thread.sleep(1);
-                    } catch (InterruptedException ex) {
-                    }
+                if (task == null) {
+                    //Nothing to do, do not waste the tick time
+                    break;
                 }
 
+                task.Process();
+                processed = true;
+
                 runTime = System.currentTimeMillis() - enter;
                 if (runTime + runDelta > 0) {
                     usage = 1000.0 * runTime / (runTime + runDelta);
@@ -263,6 +283,7 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             usage = 0;
         }
         m_usage = (m_usage * 3 + usage) / 4;
+        m_tickBudget.addAweTime(System.nanoTime() - enterNanos);
     }
 
     /**
@@ -270,12 +291,66 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     public void stop() {
         synchronized (m_mutex) {
+            m_isStopped = true;
+
             if (m_fastTask != null) {
                 m_fastTask.cancel();
                 m_fastTask = null;
             }
         }
 
+        cancelPending();
+    }
+
+    /**
+     * Cancel all queued tasks, the waiting threads are released with an
+     * error
+     */
+    private void cancelPending() {
+        final IllegalStateException error = new IllegalStateException("Task dispatcher stopped");
+
+        IDispatcherEntry task;
+        while ((task = m_criticalTasks.poll()) != null || (task = m_fastTasks.poll()) != null) {
+            if (task instanceof BaseDispatcherEntry) {
+                ((BaseDispatcherEntry<?>) task).cancel(error);
+            } else if (task instanceof ChunkBatchEntry) {
+                ((ChunkBatchEntry) task).cancel(error);
+            }
+        }
+    }
+
+    /**
+     * Queue the critical task, the queued tasks are canceled when the
+     * dispatcher is stopped
+     *
+     * @param entry
+     */
+    private void queueCriticalTask(IDispatcherEntry entry) {
+        m_criticalTasks.add(entry);
+
+        if (m_isStopped) {
+            cancelPending();
+        } else {
+            startFastTask();
+        }
+    }
+
+    /**
+     * Wait for the task result
+     *
+     * @param <T>
+     * @param entry
+     * @return
+     */
+    private static <T> T await(BaseDispatcherEntry<T> entry) {
+        try {
+            return entry.getFuture().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the main thread", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Main thread operation canceled", ex.getCause());
+        }
     }
 
     /**
@@ -285,13 +360,24 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void addFastTask(IDispatcherEntry entry) {
-        synchronized (m_fastTasks) {
-            m_fastTasks.add(entry);
-        }
+        m_fastTasks.add(entry);
 
         startFastTask();
     }
 
+    /**
+     * Add new fast task and wait for the result
+     *
+     * @param <T>
+     * @param entry
+     * @return
+     */
+    private <T> T addCriticalTask(BaseDispatcherEntry<T> entry) {
+        queueCriticalTask(entry);
+
+        return await(entry);
+    }
+
     /**
      * Is this thread the main bukkit thread
      *
@@ -334,24 +420,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return null;
         }
 
-        FuncEntry<T> getBlock = new FuncEntry<>(action);
         if (isMainTask()) {
             return action.execute();
         }
 
-        final Object mutex = getBlock.getMutex();
-
-        addFastTask(getBlock);
-        synchronized (mutex) {
-            while (getBlock.getResult() == null) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException ex) {
-                }
-            }
-        }
-        
-        return getBlock.getResult().orElse(null);
+        return addCriticalTask(new FuncEntry<>(action));
     }
 
     /**
@@ -364,22 +437,76 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return;
         }
 
-        ActionEntry actionEntry = new ActionEntry(action);
         if (isMainTask()) {
             action.execute();
             return;
         }
 
-        final Object mutex = actionEntry.getMutex();
+        addCriticalTask(new ActionEntry(action));
+    }
 
-        addFastTask(actionEntry);
-        synchronized (mutex) {
-            while (!actionEntry.isDone()) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException ex) {
+    /**
+     * Queue secure get operation, the operation is performed together with
+     * all other pending operations for the chunk
+     *
+     * @param <T>
+     * @param action
+     * @param world
+     * @param chunk
+     * @return
+     */
+    @Override
+    public <T> T queueFastOperation(IFunc<T> action, IWorld world, BlockVector2 chunk) {
+        if (action == null) {
+            return null;
+        }
+
+        if (isMainTask()) {
+            return action.execute();
+        }
+
+        return queueChunkTask(new FuncEntry<>(action), world, chunk);
+    }
+
+    /**
+     * Add the entry to the chunk batch and wait for the result
+     *
+     * @param <T>
+     * @param entry
+     * @param world
+     * @param chunk
+     * @return
+     */
+    private <T> T queueChunkTask(BaseDispatcherEntry<T> entry, IWorld world, BlockVector2 chunk) {
+        if (world == null) {
+            return addCriticalTask(entry);
+        }
+
+        final Map<Long, ChunkBatchEntry> batches = m_chunkBatches.computeIfAbsent(world.getName(),
+                _w -> new ConcurrentHashMap<>());
+        final long key = ((long) chunk.getBlockX() << 32) | (chunk.getBlockZ() & 0xFFFFFFFFL);
+
+        while (true) {
+            ChunkBatchEntry batch = batches.get(key);
+            boolean isNew = false;
+            if (batch == null) {
+                ChunkBatchEntry newBatch = new ChunkBatchEntry(batches, key);
+                batch = batches.putIfAbsent(key, newBatch);
+                if (batch == null) {
+                    batch = newBatch;
+                    isNew = true;
+                }
+            }
+
+            if (batch.add(entry)) {
+                if (isNew) {
+                    queueCriticalTask(batch);
                 }
+
+                return await(entry);
             }
+
+            //The batch was processed and removed in the meantime, retry
         }
     }
 
@@ -410,6 +537,141 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         m_threadMarker.remove(id);
     }
 
+    /**
+     * Get the mutexes protecting the chunks. For world mutexes only the chunk
+     * stripes are locked.
+     *
+     * @param mutex
+     * @param chunks
+     * @return
+     */
+    private static Object[] getMutexes(Object mutex, Collection<BlockVector2> chunks) {
+        if (mutex instanceof WorldMutex) {
+            return ((WorldMutex) mutex).getStripes(chunks);
+        }
+
+        return new Object[]{mutex};
+    }
+
+    /**
+     * Get the mutexes protecting the whole world. For world mutexes all the
+     * chunk stripes are locked so the operation excludes all chunk
+     * operations.
+     *
+     * @param mutex
+     * @return
+     */
+    private static Object[] getMutexes(Object mutex) {
+        if (mutex instanceof WorldMutex) {
+            return ((WorldMutex) mutex).getAllStripes();
+        }
+
+        return new Object[]{mutex};
+    }
+
+    /**
+     * Try to perform the action, the mutexes are locked in order starting
+     * from idx
+     *
+     * @param <T>
+     * @param mutexes
+     * @param idx
+     * @param action
+     * @param result
+     * @return true if the action was performed
+     */
+    private static <T> boolean tryPerform(Object[] mutexes, int idx, IFunc<T> action, InOutParam<T> result) {
+        if (idx < mutexes.length) {
+            synchronized (mutexes[idx]) {
+                return tryPerform(mutexes, idx + 1, action, result);
+            }
+        }
+
+        try {
+            result.setValue(action.execute());
+            return true;
+        } catch (Exception ex) {
+            /*
+             * Exception here indicates that async block get is not
+             * available. Therefore use the queue fallback.
+             */
+            ExceptionHelper.printException(ex, "Error performing safe operation.");
+        }
+
+        return false;
+    }
+
+    /**
+     * Try to perform the action holding the chunk mutexes
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param result
+     * @param world
+     * @param chunks
+     * @return true if the action was performed
+     */
+    private <T> boolean tryPerform(Object mutex, IFunc<T> action, InOutParam<T> result,
+            IWorld world, Collection<BlockVector2> chunks) {
+        return tryPerform(getMutexes(mutex, chunks), 0, action, result, world, chunks);
+    }
+
+    /**
+     * Try to perform the action, the mutexes are locked in order starting
+     * from idx
+     *
+     * @param <T>
+     * @param mutexes
+     * @param idx
+     * @param action
+     * @param result
+     * @param world
+     * @param chunks
+     * @return true if the action was performed
+     */
+    private <T> boolean tryPerform(Object[] mutexes, int idx, IFunc<T> action, InOutParam<T> result,
+            IWorld world, Collection<BlockVector2> chunks) {
+        if (idx < mutexes.length) {
+            synchronized (mutexes[idx]) {
+                return tryPerform(mutexes, idx + 1, action, result, world, chunks);
+            }
+        }
+
+        String worldName = world != null ? world.getName() : null;
+        try {
+            boolean canPerform = true;
+            for (BlockVector2 vector : chunks) {
+                int cx = vector.getBlockX();
+                int cz = vector.getBlockZ();
+                m_chunkWatch.add(cx, cz, worldName);
+                canPerform &= canPerform(world, cx, cz);
+            }
+            if (canPerform) {
+                try {
+                    result.setValue(action.execute());
+                    return true;
+                } catch (Exception ex) {
+                    /*
+                     * Exception here indicates that async block get is not
+                     * available. Therefore use the queue fallback.
+                     */
+                    ExceptionHelper.printException(ex,
+                            String.format("Error performing safe operation for %1$s for %2$s",
+                                    worldName, chunks));
+                }
+            }
+        } finally {
+            for (BlockVector2 vector : chunks) {
+                int cx = vector.getBlockX();
+                int cz = vector.getBlockZ();
+                m_chunkWatch.remove(cx, cz, worldName);
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
      * queue it on dispatcher
@@ -428,32 +690,12 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                int cx = pos.getBlockX();
-                int cz = pos.getBlockZ();
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            if (!tryPerform(mutex, () -> {
+                action.execute();
+                return null;
+            }, InOutParam.Out(), world, Collections.singletonList(pos))) {
+                queueChunkTask(new ActionEntry(action), world, pos);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -477,32 +719,13 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                int cx = PositionHelper.positionToChunk(pos.getX());
-                int cz = PositionHelper.positionToChunk(pos.getZ());
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            final BlockVector2 chunk = PositionHelper.positionToChunk(pos);
+            if (!tryPerform(mutex, () -> {
+                action.execute();
+                return null;
+            }, InOutParam.Out(), world, Collections.singletonList(chunk))) {
+                queueChunkTask(new ActionEntry(action), world, chunk);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -526,42 +749,12 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                Set<BlockVector2> chunks = region.getChunks();
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for region %2$s",
-                                            worldName, region.toString()));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+            if (!tryPerform(mutex, () -> {
+                action.execute();
+                return null;
+            }, InOutParam.Out(), world, region.getChunks())) {
+                queueFastOperation(action);
             }
-
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -584,41 +777,13 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         if (isMainTask() || !markThread(id)) {
             return action.execute();
         }
-        try {
-            synchronized (mutex) {
-                Set<BlockVector2> chunks = region.getChunks();
-                String worldName = world != null ? world.getName() : null;
 
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for region %2$s",
-                                            worldName, region.toString()));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+        try {
+            final InOutParam<T> result = InOutParam.Out();
+            if (tryPerform(mutex, action, result, world, region.getChunks())) {
+                return result.getValue();
             }
+
             return queueFastOperation(action);
         } finally {
             unmarkThread(id);
@@ -642,32 +807,15 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         if (isMainTask() || !markThread(id)) {
             return action.execute();
         }
+
         try {
-            synchronized (mutex) {
-                int cx = PositionHelper.positionToChunk(pos.getX());
-                int cz = PositionHelper.positionToChunk(pos.getZ());
-                String worldName = world != null ? world.getName() : null;
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            final BlockVector2 chunk = PositionHelper.positionToChunk(pos);
+            final InOutParam<T> result = InOutParam.Out();
+            if (tryPerform(mutex, action, result, world, Collections.singletonList(chunk))) {
+                return result.getValue();
             }
-            return queueFastOperation(action);
+
+            return queueChunkTask(new FuncEntry<>(action), world, chunk);
         } finally {
             unmarkThread(id);
         }
@@ -690,32 +838,14 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         if (isMainTask() || !markThread(id)) {
             return action.execute();
         }
+
         try {
-            synchronized (mutex) {
-                int cx = pos.getBlockX();
-                int cz = pos.getBlockZ();
-                String worldName = world != null ? world.getName() : null;
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            final InOutParam<T> result = InOutParam.Out();
+            if (tryPerform(mutex, action, result, world, Collections.singletonList(pos))) {
+                return result.getValue();
             }
-            return queueFastOperation(action);
+
+            return queueChunkTask(new FuncEntry<>(action), world, pos);
         } finally {
             unmarkThread(id);
         }
@@ -736,19 +866,12 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return;
         }
         try {
-            synchronized (mutex) {
-                try {
-                    action.execute();
-                    return;
-                } catch (Exception ex) {
-                    /*
-                     * Exception here indicates that async block get is not
-                     * available. Therefore use the queue fallback.
-                     */
-                    ExceptionHelper.printException(ex, "Error performing safe operation.");
-                }
+            if (!tryPerform(getMutexes(mutex), 0, () -> {
+                action.execute();
+                return null;
+            }, InOutParam.Out())) {
+                queueFastOperation(action);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -770,18 +893,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return action.execute();
         }
         try {
-            synchronized (mutex) {
-                try {
-                    T result = action.execute();
-                    return result;
-                } catch (Exception ex) {
-                    /*
-                     * Exception here indicates that async block get is not
-                     * available. Therefore use the queue fallback.
-                     */
-                    ExceptionHelper.printException(ex, "Error performing safe operation.");
-                }
+            final InOutParam<T> result = InOutParam.Out();
+            if (tryPerform(getMutexes(mutex), 0, action, result)) {
+                return result.getValue();
             }
+
             return queueFastOperation(action);
         } finally {
             unmarkThread(id);
@@ -795,42 +911,14 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             action.execute();
             return;
         }
-        try {
-            synchronized (mutex) {
-                String worldName = world != null ? world.getName() : null;
 
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for chunk list",
-                                            worldName));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+        try {
+            if (!tryPerform(mutex, () -> {
+                action.execute();
+                return null;
+            }, InOutParam.Out(), world, chunks)) {
+                queueFastOperation(action);
             }
-
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -844,39 +932,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for chunk list",
-                                            worldName));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+            final InOutParam<T> result = InOutParam.Out();
+            if (tryPerform(mutex, action, result, world, chunks)) {
+                return result.getValue();
             }
+
             return queueFastOperation(action);
         } finally {
             unmarkThread(id);
@@ -48,6 +48,8 @@
 package org.primesoft.asyncworldedit.utils;
 
 import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -59,6 +61,77 @@ import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
  */
 public class Compression {
 
+    /**
+     * Maximum number of pooled compressors and decompressors
+     */
+    private final static int MAX_POOL_SIZE = 16;
+
+    /**
+     * The compressor pool
+     */
+    private final static Queue<Deflater> s_deflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The decompressor pool
+     */
+    private final static Queue<Inflater> s_inflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Get a pooled compressor
+     *
+     * @param level The compression level
+     * @return
+     */
+    private static Deflater getDeflater(int level) {
+        Deflater result = s_deflaters.poll();
+        if (result == null) {
+            return new Deflater(level);
+        }
+
+        result.setLevel(level);
+        return result;
+    }
+
+    /**
+     * Return the compressor to the pool
+     *
+     * @param deflater
+     */
+    private static void release(Deflater deflater) {
+        deflater.reset();
+
+        if (s_deflaters.size() < MAX_POOL_SIZE) {
+            s_deflaters.offer(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get a pooled decompressor
+     *
+     * @return
+     */
+    private static Inflater getInflater() {
+        Inflater result = s_inflaters.poll();
+        return result != null ? result : new Inflater();
+    }
+
+    /**
+     * Return the decompressor to the pool
+     *
+     * @param inflater
+     */
+    private static void release(Inflater inflater) {
+        inflater.reset();
+
+        if (s_inflaters.size() < MAX_POOL_SIZE) {
+            s_inflaters.offer(inflater);
+        } else {
+            inflater.end();
+        }
+    }
+
     /**
      * Compress the data stream
      *
@@ -70,13 +143,25 @@ public class Compression {
             return data;
         }
 
-        Deflater compressor = new Deflater(Deflater.BEST_COMPRESSION);
-        compressor.setInput(data);
-        compressor.finish();
+        return compress(data, data.length, Deflater.BEST_COMPRESSION);
+    }
 
-        UnsafeDataOutput out = new UnsafeDataOutput(data.length);
-        byte[] buffer = new byte[1024];
+    /**
+     * Compress the data stream
+     *
+     * @param data
+     * @param length Number of bytes to compress
+     * @param level The compression level
+     * @return
+     */
+    public static byte[] compress(byte[] data, int length, int level) {
+        Deflater compressor = getDeflater(level);
         try {
+            compressor.setInput(data, 0, length);
+            compressor.finish();
+
+            UnsafeDataOutput out = new UnsafeDataOutput(Math.max(length / 2, 64));
+            byte[] buffer = new byte[4096];
             while (!compressor.finished()) {
                 int count = compressor.deflate(buffer);
                 out.write(buffer, 0, count);
@@ -84,6 +169,8 @@ public class Compression {
             return out.toByteArray();
         } catch (IOException ex) {
             return null;
+        } finally {
+            release(compressor);
         }
     }
 
@@ -98,7 +185,7 @@ public class Compression {
             return data;
         }
 
-        Inflater decompressor = new Inflater();
+        Inflater decompressor = getInflater();
         decompressor.setInput(data);
 
         UnsafeDataOutput out = new UnsafeDataOutput(data.length);
@@ -113,7 +200,56 @@ public class Compression {
             return data;
         } catch (DataFormatException dfex) {
             return null;
+        } finally {
+            release(decompressor);
         }
     }
 
+    /**
+     * Decompress the data stream with known uncompressed size
+     *
+     * @param data
+     * @param length The uncompressed data size
+     * @return
+     * @throws IOException
+     */
+    public static byte[] decompress(byte[] data, int length) throws IOException {
+        return decompress(data, data.length, new byte[length], length);
+    }
+
+    /**
+     * Decompress the data stream with known uncompressed size to the provided
+     * buffer
+     *
+     * @param data
+     * @param dataLength The compressed data size
+     * @param result The output buffer
+     * @param length The uncompressed data size
+     * @return
+     * @throws IOException
+     */
+    public static byte[] decompress(byte[] data, int dataLength, byte[] result, int length) throws IOException {
+        Inflater decompressor = getInflater();
+        try {
+            decompressor.setInput(data, 0, dataLength);
+
+            int pos = 0;
+            while (pos < length && !decompressor.finished()) {
+                int count = decompressor.inflate(result, pos, length - pos);
+                if (count == 0 && decompressor.needsInput()) {
+                    break;
+                }
+                pos += count;
+            }
+
+            if (pos != length) {
+                throw new IOException("Invalid compressed data size");
+            }
+            return result;
+        } catch (DataFormatException ex) {
+            throw new IOException(ex);
+        } finally {
+            release(decompressor);
+        }
+    }
 }
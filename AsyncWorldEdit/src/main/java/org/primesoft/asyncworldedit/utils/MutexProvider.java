@@ -48,6 +48,9 @@
 package org.primesoft.asyncworldedit.utils;
 
 import com.sk89q.worldedit.world.World;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.worldedit.ThreadSafeEditSession;
@@ -58,6 +61,15 @@ import org.primesoft.asyncworldedit.worldedit.world.AbstractWorldWrapper;
  * @author SBPrime
  */
 public class MutexProvider {
+    /**
+     * The world mutexes
+     */
+    private final static Map<UUID, WorldMutex> s_worldMutex = new ConcurrentHashMap<>();
+
+    private static WorldMutex getWorldMutex(UUID world) {
+        return s_worldMutex.computeIfAbsent(world, WorldMutex::new);
+    }
+
     public static Object getMutex(ThreadSafeEditSession es) {
         return es.getMutex();
     }
@@ -68,11 +80,11 @@ public class MutexProvider {
             world = aWorld.getWorld();
         }
         
-        return AwePlatform.getInstance().getCore().getWorldEditIntegrator().getWorld(world).getUUID();
+        return getWorldMutex(AwePlatform.getInstance().getCore().getWorldEditIntegrator().getWorld(world).getUUID());
     }    
     
     
     public static Object getMutex(IWorld world) {
-        return world.getUUID();
+        return getWorldMutex(world.getUUID());
     }    
 }
@@ -0,0 +1,154 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import java.util.UUID;
+
+/**
+ * The world mutex. Chunk operations lock one of the stripes (selected by the
+ * chunk region) so operations on distant chunks do not block each other.
+ * Operations not bound to chunks lock all the stripes.
+ *
+ * @author SBPrime
+ */
+public final class WorldMutex {
+
+    /**
+     * Number of stripes (power of 2)
+     */
+    private final static int STRIPES = 64;
+
+    /**
+     * Chunk region size (as shift), 4x4 chunks share a stripe
+     */
+    private final static int REGION_SHIFT = 2;
+
+    /**
+     * The world UUID
+     */
+    private final UUID m_uuid;
+
+    /**
+     * The stripe mutexes
+     */
+    private final Object[] m_stripes = new Object[STRIPES];
+
+    public WorldMutex(UUID uuid) {
+        m_uuid = uuid;
+
+        for (int i = 0; i < STRIPES; i++) {
+            m_stripes[i] = new Object();
+        }
+    }
+
+    public UUID getUUID() {
+        return m_uuid;
+    }
+
+    private static int getIndex(int cx, int cz) {
+        int h = (cx >> REGION_SHIFT) * 0x9E3779B9 ^ (cz >> REGION_SHIFT) * 0x85EBCA6B;
+        h ^= h >>> 16;
+
+        return h & (STRIPES - 1);
+    }
+
+    /**
+     * Get the stripe mutex for a chunk
+     *
+     * @param cx
+     * @param cz
+     * @return
+     */
+    public Object getStripe(int cx, int cz) {
+        return m_stripes[getIndex(cx, cz)];
+    }
+
+    /**
+     * Get all stripe mutexes for the chunks. The mutexes are always returned
+     * in the same order so they can be locked without a deadlock.
+     *
+     * @param chunks
+     * @return
+     */
+    public Object[] getStripes(Iterable<BlockVector2> chunks) {
+        final boolean[] used = new boolean[STRIPES];
+        int count = 0;
+
+        for (BlockVector2 chunk : chunks) {
+            int idx = getIndex(chunk.getBlockX(), chunk.getBlockZ());
+            if (!used[idx]) {
+                used[idx] = true;
+                count++;
+            }
+        }
+
+        final Object[] result = new Object[count];
+        for (int i = 0, pos = 0; pos < count; i++) {
+            if (used[i]) {
+                result[pos++] = m_stripes[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get all stripe mutexes, in the same order as returned by getStripes
+     *
+     * @return
+     */
+    public Object[] getAllStripes() {
+        return m_stripes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return m_uuid.toString();
+    }
+}
@@ -177,6 +177,12 @@ public class ChunkCacheStream implements IChunkCacheStream {
         return newOffset;
     }
 
+    @Override
+    public void close() throws IOException {
+        m_chunkCache.clear();
+        m_stream.close();
+    }
+
     /**
      * Reads the next byte of data from the input stream. The value byte is
      * returned as an <code>int</code> in the range <code>0</code> to
@@ -0,0 +1,487 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+import org.primesoft.asyncworldedit.utils.Compression;
+
+/**
+ * Stream over a file built from compressed frames. Each frame is stored as
+ * the compressed size, the uncompressed size and the compressed data. The
+ * stream positions are offsets in the uncompressed data, the frames are
+ * decompressed on demand and cached. The frame buffers are reused when a frame
+ * is removed from the cache.
+ *
+ * @author SBPrime
+ */
+public class FrameCacheStream implements IChunkCacheStream {
+
+    /**
+     * The frame header size
+     */
+    private final static int HEADER_SIZE = 8;
+
+    /**
+     * The underlying stream
+     */
+    private final IChunkCacheStream m_stream;
+
+    /**
+     * The frame cache
+     */
+    private final LinkedHashMap<Integer, byte[]> m_frameCache;
+
+    /**
+     * Maximum number of cached frames
+     */
+    private final int m_maxFrames;
+
+    /**
+     * The compressed frame buffer
+     */
+    private byte[] m_compressed = new byte[0];
+
+    /**
+     * Frame data position in the file
+     */
+    private long[] m_framePos;
+
+    /**
+     * Frame compressed size
+     */
+    private int[] m_frameSize;
+
+    /**
+     * Frame start in the uncompressed data
+     */
+    private long[] m_frameStart;
+
+    /**
+     * Number of frames
+     */
+    private int m_frames;
+
+    /**
+     * The current file pointer
+     */
+    private long m_filePointer;
+
+    /**
+     * The uncompressed data length
+     */
+    private long m_length;
+
+    /**
+     * The current frame data
+     */
+    private byte[] m_frame;
+
+    /**
+     * The current frame size
+     */
+    private int m_frameLength;
+
+    /**
+     * The current frame index
+     */
+    private int m_frameIdx = -1;
+
+    public FrameCacheStream(IChunkCacheStream stream) throws IOException {
+        this(stream, 4);
+    }
+
+    public FrameCacheStream(IChunkCacheStream stream, int maxFrames) throws IOException {
+        m_stream = stream;
+        m_maxFrames = Math.max(1, maxFrames);
+        m_frameCache = new LinkedHashMap<>(m_maxFrames + 1, 0.75f, true);
+
+        scanFrames();
+    }
+
+    /**
+     * Write the frame to the output
+     *
+     * @param out
+     * @param data The uncompressed frame data
+     * @param length The uncompressed frame size
+     * @param level The compression level
+     * @throws IOException
+     */
+    public static void writeFrame(DataOutput out, byte[] data, int length, int level) throws IOException {
+        if (length == 0) {
+            return;
+        }
+
+        byte[] compressed = Compression.compress(data, length, level);
+        if (compressed == null) {
+            throw new IOException("Unable to compress the frame");
+        }
+
+        out.writeInt(compressed.length);
+        out.writeInt(length);
+        out.write(compressed);
+    }
+
+    /**
+     * Build the frame table from the frame headers
+     */
+    private void scanFrames() throws IOException {
+        final long fileLength = m_stream.length();
+
+        m_framePos = new long[16];
+        m_frameSize = new int[16];
+        m_frameStart = new long[16];
+
+        long pos = 0;
+        long start = 0;
+        while (fileLength - pos >= HEADER_SIZE) {
+            m_stream.seek(pos, SeekOrigin.Begin);
+            int size = m_stream.readInt();
+            int rawSize = m_stream.readInt();
+            pos += HEADER_SIZE;
+
+            if (size < 0 || rawSize < 0 || fileLength - pos < size) {
+                //Incomplete frame
+                break;
+            }
+
+            if (m_frames == m_framePos.length) {
+                int newSize = m_frames * 2;
+                m_framePos = Arrays.copyOf(m_framePos, newSize);
+                m_frameSize = Arrays.copyOf(m_frameSize, newSize);
+                m_frameStart = Arrays.copyOf(m_frameStart, newSize);
+            }
+
+            m_framePos[m_frames] = pos;
+            m_frameSize[m_frames] = size;
+            m_frameStart[m_frames] = start;
+            m_frames++;
+
+            pos += size;
+            start += rawSize;
+        }
+
+        m_length = start;
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return m_filePointer;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return m_length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_frameCache.clear();
+        m_frame = null;
+        m_frameIdx = -1;
+        m_stream.close();
+    }
+
+    @Override
+    public long seek(long pos, SeekOrigin origin) throws IOException {
+        long newOffset;
+
+        switch (origin) {
+            case Begin:
+                newOffset = pos;
+                break;
+            case Current:
+                newOffset = m_filePointer + pos;
+                break;
+            case End:
+                newOffset = m_length - pos;
+                break;
+            default:
+                return -1;
+        }
+
+        if (newOffset < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        if (newOffset > m_length) {
+            throw new IOException("Seek offset larget then file size");
+        }
+
+        m_filePointer = newOffset;
+        return newOffset;
+    }
+
+    /**
+     * Read the next byte
+     *
+     * @return the next byte of data, or <code>-1</code> if the end of the
+     * stream is reached.
+     * @throws IOException
+     */
+    public int read() throws IOException {
+        if (m_filePointer >= m_length) {
+            return -1;
+        }
+
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (m_length - m_filePointer < len) {
+            throw new EOFException();
+        }
+
+        while (len > 0) {
+            byte[] frame = getFrame(m_filePointer);
+            int offset = (int) (m_filePointer - m_frameStart[m_frameIdx]);
+            int toCopy = Math.min(len, m_frameLength - offset);
+
+            System.arraycopy(frame, offset, b, off, toCopy);
+            off += toCopy;
+            len -= toCopy;
+            m_filePointer += toCopy;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        long pos = m_filePointer;
+        seek(Math.min(n, m_length - pos), SeekOrigin.Current);
+
+        return (int) (m_filePointer - pos);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return (readByte() != 0);
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (m_filePointer >= m_length) {
+            throw new EOFException();
+        }
+
+        byte[] frame = getFrame(m_filePointer);
+        byte result = frame[(int) (m_filePointer - m_frameStart[m_frameIdx])];
+        m_filePointer++;
+
+        return result;
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (short) ((b1 << 8) | b2);
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (b1 << 8) | b2;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (char) ((b1 << 8) | b2);
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int b1 = readUnsignedByte();
+        int b2 = readUnsignedByte();
+        int b3 = readUnsignedByte();
+        int b4 = readUnsignedByte();
+
+        return ((b1 << 24) | (b2 << 16) | (b3 << 8) | b4);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return (((long) readInt()) << 32) | (readInt() & 0xFFFFFFFFl);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int ch = -1;
+        boolean eol = false;
+
+        while (!eol) {
+            ch = read();
+            switch (ch) {
+                case -1:
+                case '\n':
+                    eol = true;
+                    break;
+                case '\r':
+                    eol = true;
+                    if ((read()) != '\n') {
+                        seek(-1, SeekOrigin.Current);
+                    }
+                    break;
+                default:
+                    input.append((char) ch);
+                    break;
+            }
+        }
+
+        if ((ch == -1) && (input.length() == 0)) {
+            return null;
+        }
+        return input.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Get the decompressed frame containing the position
+     *
+     * @param position
+     * @return
+     */
+    private byte[] getFrame(long position) throws IOException {
+        if (m_frameIdx >= 0 && position >= m_frameStart[m_frameIdx]
+                && position - m_frameStart[m_frameIdx] < m_frameLength) {
+            return m_frame;
+        }
+
+        int idx = Arrays.binarySearch(m_frameStart, 0, m_frames, position);
+        if (idx < 0) {
+            idx = -idx - 2;
+        } else {
+            //Skip the empty frames
+            while (idx + 1 < m_frames && m_frameStart[idx + 1] == position) {
+                idx++;
+            }
+        }
+
+        final int length = (int) ((idx + 1 < m_frames ? m_frameStart[idx + 1] : m_length) - m_frameStart[idx]);
+        byte[] result = m_frameCache.get(idx);
+        if (result == null) {
+            final int size = m_frameSize[idx];
+            if (m_compressed.length < size) {
+                m_compressed = new byte[size];
+            }
+
+            m_stream.seek(m_framePos[idx], SeekOrigin.Begin);
+            m_stream.readFully(m_compressed, 0, size);
+
+            //The current frame buffer might get reused
+            m_frameIdx = -1;
+
+            result = Compression.decompress(m_compressed, size, getFrameBuffer(length), length);
+            m_frameCache.put(idx, result);
+        }
+
+        m_frameIdx = idx;
+        m_frame = result;
+        m_frameLength = length;
+
+        return result;
+    }
+
+    /**
+     * Get the frame buffer, reuse the least recently used frame if the cache
+     * is full
+     *
+     * @param length
+     * @return
+     */
+    private byte[] getFrameBuffer(int length) {
+        if (m_frameCache.size() < m_maxFrames) {
+            return new byte[length];
+        }
+
+        Iterator<Map.Entry<Integer, byte[]>> it = m_frameCache.entrySet().iterator();
+        byte[] result = it.next().getValue();
+        it.remove();
+
+        return result.length >= length ? result : new byte[length];
+    }
+}
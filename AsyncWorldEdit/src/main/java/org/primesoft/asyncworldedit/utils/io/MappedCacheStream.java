@@ -0,0 +1,335 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ * File stream backed by memory mapped file segments. The data is read
+ * directly from the mapped memory, no read buffers are allocated. The mapped
+ * segments are only unmapped when the buffers are garbage collected, closing
+ * the stream drops the buffer references and closes the file channel.
+ *
+ * @author SBPrime
+ */
+public class MappedCacheStream implements IChunkCacheStream {
+
+    /**
+     * The default segment size
+     */
+    private final static int SEGMENT_SIZE = 0x4000000;
+
+    /**
+     * The mapped file segments
+     */
+    private MappedByteBuffer[] m_segments;
+
+    /**
+     * The segment size
+     */
+    private final int m_segmentSize;
+
+    /**
+     * The file length
+     */
+    private final long m_length;
+
+    /**
+     * The current file pointer
+     */
+    private long m_filePointer;
+
+    /**
+     * The mapped file channel
+     */
+    private FileChannel m_channel;
+
+    public MappedCacheStream(FileChannel channel) throws IOException {
+        this(channel, SEGMENT_SIZE);
+    }
+
+    public MappedCacheStream(FileChannel channel, int segmentSize) throws IOException {
+        m_channel = channel;
+        m_length = channel.size();
+        m_segmentSize = segmentSize;
+
+        int segments = (int) ((m_length + segmentSize - 1) / segmentSize);
+        m_segments = new MappedByteBuffer[segments];
+        for (int i = 0; i < segments; i++) {
+            long start = (long) i * segmentSize;
+            m_segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    start, Math.min(segmentSize, m_length - start));
+        }
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return m_filePointer;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return m_length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        final FileChannel channel = m_channel;
+
+        m_segments = new MappedByteBuffer[0];
+        m_channel = null;
+        m_filePointer = m_length;
+
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    public long seek(long pos, SeekOrigin origin) throws IOException {
+        if (m_channel == null) {
+            throw new IOException("Stream closed");
+        }
+
+        long newOffset;
+
+        switch (origin) {
+            case Begin:
+                newOffset = pos;
+                break;
+            case Current:
+                newOffset = m_filePointer + pos;
+                break;
+            case End:
+                newOffset = m_length - pos;
+                break;
+            default:
+                return -1;
+        }
+
+        if (newOffset < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        if (newOffset > m_length) {
+            throw new IOException("Seek offset larget then file size");
+        }
+
+        m_filePointer = newOffset;
+        return newOffset;
+    }
+
+    /**
+     * Read the next byte
+     *
+     * @return the next byte of data, or <code>-1</code> if the end of the
+     * stream is reached.
+     * @throws IOException
+     */
+    public int read() throws IOException {
+        if (m_filePointer >= m_length) {
+            return -1;
+        }
+
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (m_length - m_filePointer < len) {
+            throw new EOFException();
+        }
+
+        while (len > 0) {
+            final MappedByteBuffer segment = m_segments[(int) (m_filePointer / m_segmentSize)];
+            final int offset = (int) (m_filePointer % m_segmentSize);
+            final int toCopy = Math.min(len, segment.limit() - offset);
+
+            segment.position(offset);
+            segment.get(b, off, toCopy);
+
+            off += toCopy;
+            len -= toCopy;
+            m_filePointer += toCopy;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        long pos = m_filePointer;
+        seek(Math.min(n, m_length - pos), SeekOrigin.Current);
+
+        return (int) (m_filePointer - pos);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return (readByte() != 0);
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        final long position = m_filePointer;
+        if (position >= m_length) {
+            throw new EOFException();
+        }
+
+        m_filePointer++;
+        return m_segments[(int) (position / m_segmentSize)].get((int) (position % m_segmentSize));
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (short) ((b1 << 8) | b2);
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (b1 << 8) | b2;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (char) ((b1 << 8) | b2);
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        final long position = m_filePointer;
+        final int offset = (int) (position % m_segmentSize);
+        final MappedByteBuffer segment = position + 4 <= m_length
+                ? m_segments[(int) (position / m_segmentSize)] : null;
+
+        if (segment != null && offset + 4 <= segment.limit()) {
+            m_filePointer += 4;
+            return segment.getInt(offset);
+        }
+
+        int b1 = readUnsignedByte();
+        int b2 = readUnsignedByte();
+        int b3 = readUnsignedByte();
+        int b4 = readUnsignedByte();
+
+        return ((b1 << 24) | (b2 << 16) | (b3 << 8) | b4);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return (((long) readInt()) << 32) | (readInt() & 0xFFFFFFFFl);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int ch = -1;
+        boolean eol = false;
+
+        while (!eol) {
+            ch = read();
+            switch (ch) {
+                case -1:
+                case '\n':
+                    eol = true;
+                    break;
+                case '\r':
+                    eol = true;
+                    if ((read()) != '\n') {
+                        seek(-1, SeekOrigin.Current);
+                    }
+                    break;
+                default:
+                    input.append((char) ch);
+                    break;
+            }
+        }
+
+        if ((ch == -1) && (input.length() == 0)) {
+            return null;
+        }
+        return input.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
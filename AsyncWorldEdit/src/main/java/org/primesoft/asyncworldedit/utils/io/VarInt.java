@@ -194,4 +194,38 @@ public class VarInt {
         
         return result;
     }
+
+    /**
+     * Write variable length signed int to data output (zigzag encoded)
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public static void writeSignedInt(DataOutput out, int value) throws IOException {
+        int v = (value << 1) ^ (value >> 31);
+        do {
+            byte b = (byte) (v & MASK_VALUE);
+
+            v >>>= SHIFT;
+
+            if (v != 0) {
+                b |= MASK_MORE;
+            }
+
+            out.writeByte(b);
+        } while (v != 0);
+    }
+
+    /**
+     * Read variable length signed int (zigzag encoded) from data input
+     * @param in
+     * @return
+     * @throws IOException 
+     */
+    public static int readSignedInt(DataInput in) throws IOException {
+        int v = readInt(in);
+
+        return (v >>> 1) ^ -(v & 1);
+    }
 }
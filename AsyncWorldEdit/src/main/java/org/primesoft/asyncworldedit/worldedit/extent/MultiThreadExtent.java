@@ -60,9 +60,9 @@ import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -72,13 +72,13 @@ public class MultiThreadExtent implements Extent {
     /**
      * The default extent
      */
-    private Extent m_default;
+    private volatile Extent m_default;
     
-    //TODO: Consider using thread locale
     /**
-     * Thread delegate extents
+     * Thread delegate extents (lock free reads, extents can be set for
+     * other threads so thread locals are not used)
      */    
-    private final HashMap<Thread, Extent> m_extents = new LinkedHashMap<>();
+    private final Map<Thread, Extent> m_extents = new ConcurrentHashMap<>();
     
     public MultiThreadExtent() { }
     
@@ -96,12 +96,10 @@ public class MultiThreadExtent implements Extent {
      * @param e 
      */
     public void setExtent(Thread t, Extent e) {
-        synchronized (m_extents) {
-            if (e == null) {
-                m_extents.remove(t);
-            } else {
-                m_extents.put(t, e);
-            }
+        if (e == null) {
+            m_extents.remove(t);
+        } else {
+            m_extents.put(t, e);
         }
     }
     
@@ -119,12 +117,7 @@ public class MultiThreadExtent implements Extent {
      * @return 
      */
     private Extent getExtent() {
-        final Thread current = Thread.currentThread();
-        
-        Extent result;
-        synchronized (m_extents) {
-            result = m_extents.get(current);
-        }
+        final Extent result = m_extents.get(Thread.currentThread());
         
         return result != null ? result : m_default;
     }
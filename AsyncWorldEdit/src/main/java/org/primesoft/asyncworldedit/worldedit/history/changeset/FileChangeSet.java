@@ -58,6 +58,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
@@ -100,7 +101,7 @@ public final class FileChangeSet implements ChangeSet {
     private final Queue<Change> m_queuedChanges = new LinkedList<>();
     private boolean m_isDisposed = false;
     private int m_size = 0;
-    private File m_storageFile;
+    private volatile File m_storageFile;
 
     private final IInnerSerializerManager m_changesetSerializer;
     private ICancelabeEditSession m_cancelable;
@@ -108,6 +109,7 @@ public final class FileChangeSet implements ChangeSet {
     private final Object m_saveMutex = new Object();
     private boolean m_savePending = false;
     private boolean m_isRecording = true;
+    private final AtomicBoolean m_isScheduled = new AtomicBoolean(false);
 
     public FileChangeSet(IAsyncWorldEditCore aweCore, IPlayerEntry player) {
         m_changesetSerializer = aweCore.getInnerChangesetSerializer();
@@ -126,11 +128,19 @@ public final class FileChangeSet implements ChangeSet {
         if (change == null && !m_isDisposed) {
             return;
         }
+        final boolean isDisposed;
         synchronized (m_queuedChanges) {
             m_queuedChanges.add(change);
+            isDisposed = m_isDisposed;
         }
 
-        FileChangeSetManager.notiffy();
+        if (!isDisposed) {
+            FileChangeSetManager.addPending(1);
+
+            if (m_storageFile != null) {
+                FileChangeSetManager.schedule(this);
+            }
+        }
     }
 
     @Override
@@ -177,7 +187,9 @@ public final class FileChangeSet implements ChangeSet {
             log(String.format("Warning: unable to reserve undo file %1$s.", m_storageFile));
         }
 
-        FileChangeSetManager.start(this);
+        if (m_storageFile != null && hasQueued()) {
+            FileChangeSetManager.schedule(this);
+        }
     }
 
     private void ensureExists(final File file) throws IOException {
@@ -189,13 +201,15 @@ public final class FileChangeSet implements ChangeSet {
     }
 
     public void close() {
+        int dropped;
         synchronized (m_queuedChanges) {
+            dropped = m_queuedChanges.size();
             m_queuedChanges.clear();
 
             m_isDisposed = true;
         }
+        FileChangeSetManager.removePending(dropped);
         m_changesetSerializer.close(m_storageFile);
-        FileChangeSetManager.stop(this);
 
         if (m_storageFile == null) {
             return;
@@ -207,11 +221,43 @@ public final class FileChangeSet implements ChangeSet {
     }
 
     /**
-     * Save the change set
+     * Mark the change set as scheduled for saving
+     *
+     * @return False if the save is already scheduled
+     */
+    boolean trySchedule() {
+        return m_isScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Mark the save as finished
+     */
+    void endSchedule() {
+        m_isScheduled.set(false);
+    }
+
+    /**
+     * Are there any changes waiting to be saved
      *
      * @return
      */
-    boolean save() {
+    boolean hasQueued() {
+        synchronized (m_queuedChanges) {
+            return !m_queuedChanges.isEmpty() && !m_isDisposed;
+        }
+    }
+
+    /**
+     * Save all queued changes. The drained changes are removed from the
+     * pending counter even if the save fails.
+     *
+     * @return Number of drained changes
+     */
+    int save() {
+        if (m_storageFile == null) {
+            return 0;
+        }
+
         List<Change> dataToSave = new LinkedList<>();
 
         synchronized (m_saveMutex) {
@@ -226,13 +272,14 @@ public final class FileChangeSet implements ChangeSet {
         }
 
         try {
-            if (dataToSave.isEmpty()) {
-                return false;
+            if (!dataToSave.isEmpty()) {
+                m_changesetSerializer.save(m_storageFile, dataToSave);
             }
 
-            m_changesetSerializer.save(m_storageFile, dataToSave);
-            return true;
+            return dataToSave.size();
         } finally {
+            FileChangeSetManager.removePending(dataToSave.size());
+
             synchronized (m_saveMutex) {
                 m_savePending = false;
                 m_saveMutex.notifyAll();
@@ -47,116 +47,169 @@
  */
 package org.primesoft.asyncworldedit.worldedit.history.changeset;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
+ * The undo data write pipeline. Change sets with queued changes are saved
+ * on a worker pool, all changes queued while a change set is being saved are
+ * written by the next save as a single group commit.
  *
  * @author SBPrime
  */
 public class FileChangeSetManager {
 
-    private static final List<FileChangeSet> s_fileSavers = new LinkedList<FileChangeSet>();
-    private static boolean s_isRunning = false;
+    /**
+     * Number of the save workers
+     */
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * Worker thread id
+     */
+    private static final AtomicInteger s_workerId = new AtomicInteger();
+
+    /**
+     * The save workers
+     */
+    private static final ThreadPoolExecutor s_workers = createWorkers();
+
+    /**
+     * Number of changes queued in all change sets
+     */
+    private static final AtomicLong s_pending = new AtomicLong();
+
+    /**
+     * The backpressure wait mutex
+     */
     private static final Object s_waitMutex = new Object();
 
+    private static ThreadPoolExecutor createWorkers() {
+        ThreadPoolExecutor result = new ThreadPoolExecutor(WORKERS, WORKERS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread th = new Thread(r);
+                    th.setName("AWE:FileChangeSetManager:saver-" + s_workerId.incrementAndGet());
+                    th.setDaemon(true);
+                    return th;
+                });
+        result.allowCoreThreadTimeOut(true);
+
+        return result;
+    }
+
     /**
-     * Start the file saver thread
+     * Schedule the change set save
      *
      * @param changeSet
      */
-    static void start(FileChangeSet changeSet) {
-        boolean isRunning;
-        synchronized (s_fileSavers) {
-            s_fileSavers.add(changeSet);
-
-            isRunning = s_isRunning;
-            s_isRunning = true;
-        }
-
-        if (isRunning) {
-            synchronized (s_waitMutex) {
-                s_waitMutex.notifyAll();
-            }
+    static void schedule(FileChangeSet changeSet) {
+        if (!changeSet.trySchedule()) {
             return;
         }
 
-        final Thread th = new Thread(FileChangeSetManager::saveLoop);
-        th.setName("AWE:FileChangeSetManager:saveLoop");
-        th.start();
+        s_workers.execute(() -> saveLoop(changeSet));
     }
 
     /**
-     * Stop the file saver thread
+     * The change set save loop, saves all queued changes
      *
      * @param changeSet
      */
-    static void stop(FileChangeSet changeSet) {
-        synchronized (s_fileSavers) {
-            s_fileSavers.remove(changeSet);
+    private static void saveLoop(FileChangeSet changeSet) {
+        do {
+            int saved;
+            do {
+                try {
+                    saved = changeSet.save();
+                } catch (Exception ex) {
+                    ExceptionHelper.printException(ex, "Unable to save undo data. Preventing undo subsystem from breaking.");
+                    saved = 0;
+                }
+            } while (saved > 0);
 
-            if (!s_fileSavers.isEmpty()) {
-                return;
-            }
+            changeSet.endSchedule();
+        } while (changeSet.hasQueued() && changeSet.trySchedule());
+    }
+
+    /**
+     * Add queued changes
+     *
+     * @param count
+     */
+    static void addPending(int count) {
+        s_pending.addAndGet(count);
+    }
 
-            s_isRunning = false;
+    /**
+     * Remove queued changes (saved or dropped)
+     *
+     * @param count
+     */
+    static void removePending(int count) {
+        if (count <= 0) {
+            return;
         }
 
+        s_pending.addAndGet(-count);
+
         synchronized (s_waitMutex) {
             s_waitMutex.notifyAll();
         }
     }
 
     /**
-     * The change set save loop
+     * Is the write pipeline falling behind
+     *
+     * @return
      */
-    private static void saveLoop() {
-        while (s_isRunning) {
-            boolean dataSaved;
-            do {
-                dataSaved = false;
-                final FileChangeSet[] changeSets;
-                synchronized (s_fileSavers) {
-                    changeSets = s_fileSavers.toArray(new FileChangeSet[0]);
-                }
+    public static boolean isOverloaded() {
+        long max = ConfigProvider.undo().getMaxPendingChanges();
 
-                for (FileChangeSet changeSet : changeSets) {
-                    boolean result;
-                    
-                    try {
-                        result = changeSet.save();
-                    }
-                    catch (Exception ex) {
-                        ExceptionHelper.printException(ex, "Unable to save undo data. Preventing undo subsystem from breaking.");
-                        result = true;
-                    }
-                    if (result) {
-                        try {
-                            /**
-                             * HACK: Sleep is added to prevent IO overflow
-                             */
-                            Thread.sleep(5);
-                        } catch (InterruptedException ex) {
-                        }
-                    }
-                    dataSaved |= result;
-                }
-            } while (dataSaved);
+        return max > 0 && s_pending.get() > max;
+    }
 
-            synchronized (s_waitMutex) {
+    /**
+     * Wait until the write pipeline catches up (the number of queued changes
+     * drops to half of the limit)
+     *
+     * @param editSession
+     * @return False if the wait was interrupted
+     */
+    public static boolean awaitCapacity(ICancelabeEditSession editSession) {
+        long max = ConfigProvider.undo().getMaxPendingChanges();
+        if (max <= 0 || s_pending.get() <= max) {
+            return true;
+        }
+
+        long resume = max / 2;
+        synchronized (s_waitMutex) {
+            while (s_pending.get() > resume && !editSession.isCanceled()) {
                 try {
-                    s_waitMutex.wait();
+                    s_waitMutex.wait(100);
                 } catch (InterruptedException ex) {
+                    return false;
                 }
             }
         }
+
+        return true;
     }
 
-    static void notiffy() {
+    /**
+     * Wait for the next save to finish
+     *
+     * @param timeout
+     * @throws InterruptedException
+     */
+    public static void awaitSave(long timeout) throws InterruptedException {
         synchronized (s_waitMutex) {
-            s_waitMutex.notifyAll();
+            s_waitMutex.wait(timeout);
         }
     }
-
 }
@@ -98,11 +98,6 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
      */
     private final long m_minMemorySoft;
 
-    /**
-     * The wait mutex
-     */
-    private final Object m_mutex = new Object();
-    
     /**
      * THe player
      */
@@ -134,6 +129,14 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
             return;
         }
         
+        if (behaviour == UndoBehaviour.Wait && editSession != null
+                && FileChangeSetManager.isOverloaded()) {
+            //The undo writer is falling behind, wait for it to catch up
+            if (!FileChangeSetManager.awaitCapacity(editSession)) {
+                return;
+            }
+        }
+
         if (behaviour != UndoBehaviour.Off) {
             long memAvailable = GCUtils.getTotalAvailableMemory();
             boolean memLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
@@ -147,13 +150,11 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
                     throw new MaxChangedBlocksException(0);
                 } else if (behaviour == UndoBehaviour.Wait && editSession != null) {
                     do {
-                        //TODO: This needs refactoring
-                        synchronized (m_mutex) {
-                            try {
-                                m_mutex.wait(1000);
-                            } catch (InterruptedException ex) {
-                                return;
-                            }
+                        //Saved undo data frees the memory, wait for the writer
+                        try {
+                            FileChangeSetManager.awaitSave(1000);
+                        } catch (InterruptedException ex) {
+                            return;
                         }
 
                         GCUtils.GC();
@@ -51,12 +51,11 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 import com.google.common.collect.Sets;
 import com.sk89q.worldedit.EditSession;
@@ -89,10 +88,11 @@ import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.weather.WeatherType;
 import org.primesoft.asyncworldedit.api.IWorld;
-import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
 import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+import org.primesoft.asyncworldedit.api.inner.IInnerBlockPlacer;
+import org.primesoft.asyncworldedit.api.inner.IPackedBlockTarget;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.api.utils.IAction;
@@ -161,7 +161,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
     /**
      * The block placer
      */
-    private final IBlockPlacer m_blockPlacer;
+    private final IInnerBlockPlacer m_blockPlacer;
 
     /**
      * The dispather
@@ -178,9 +178,15 @@ public class AsyncWorld extends AbstractWorldWrapper {
      */
     private final IChunkWatch m_chunkWatcher;
 
-    private final static int CACHE_SIZE = 5000;
+    /**
+     * The chunk section snapshots used for block reads
+     */
+    private final ChunkSnapshotCache m_snapshots;
 
-    private final Map<BlockVector3, BlockCacheEntry> m_blockCache = new LruMap<>(CACHE_SIZE);
+    /**
+     * The packed block placer queue target
+     */
+    private final IPackedBlockTarget m_packedTarget = this::setPackedBlock;
 
     public AsyncWorld(World world, IPlayerEntry player) {
         super(world);
@@ -195,6 +201,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         m_blocksHub = aweCore.getBlocksHubBridge();
         m_bukkitWorld = aweCore.getWorldEditIntegrator().getWorld(world);
         m_chunkWatcher = aweCore.getChunkWatch();
+        m_snapshots = ChunkSnapshotCache.forWorld(m_bukkitWorld != null ? m_bukkitWorld.getName() : world.getName());
     }
 
     /**
@@ -307,31 +314,15 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
-        IFuncEx<Boolean, WorldEditException> func = () -> {
-            final BlockStateHolder oldBlock = m_parent.getBlock(v);
-            if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
-                    || isSame(oldBlock, newBlock)) {
-                return false;
-            }
-
-            final boolean result = m_parent.setBlock(v, newBlock, sideEffectSet);
-            if (result) {
-                logBlock(v, player, oldBlock, newBlock);
-            }
-
-            return result;
-        };
-
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
             if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
-            return m_blockPlacer.addTasks(player,
-                    new WorldFuncEntryEx(this.getName(), paramBlock.getJobId(), v, func));
+            return queueBlock(player, paramBlock.getJobId(), v, newBlock, sideEffectSet);
         }
 
-        return func.execute();
+        return setPackedBlock(player, v, newBlock, sideEffectSet);
     }
 
     @Override
@@ -347,31 +338,53 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
-        IFuncEx<Boolean, WorldEditException> func = () -> {
-            final BlockStateHolder oldBlock = m_parent.getBlock(v);
-            if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
-                    || isSame(oldBlock, newBlock)) {
-                return false;
-            }
-
-            final boolean result = m_parent.setBlock(v, newBlock, notifyAndLight);
-            if (result) {
-                logBlock(v, player, oldBlock, newBlock);
-            }
-
-            return result;
-        };
-
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
             if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
-            return m_blockPlacer.addTasks(player,
-                    new WorldFuncEntryEx(this.getName(), paramBlock.getJobId(), v, func));
+            return queueBlock(player, paramBlock.getJobId(), v, newBlock, notifyAndLight);
         }
         
-        return func.execute();
+        return setPackedBlock(player, v, newBlock, notifyAndLight);
+    }
+
+    /**
+     * Queue the block set operation on the block placer (packed)
+     */
+    private boolean queueBlock(IPlayerEntry player, int jobId, BlockVector3 v,
+            BlockStateHolder newBlock, Object options) {
+        return m_blockPlacer.addBlock(player, m_packedTarget,
+                this.getName(), jobId, v, newBlock, options);
+    }
+
+    /**
+     * Set the block, the options are the side effect set, notify and light
+     * flag or null for default
+     */
+    private boolean setPackedBlock(IPlayerEntry player, BlockVector3 v,
+            BlockStateHolder newBlock, Object options) throws WorldEditException {
+        final BlockState oldBlock = m_parent.getBlock(v);
+        if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
+                || isSame(oldBlock, newBlock)) {
+            return false;
+        }
+
+        final boolean result;
+        if (options instanceof SideEffectSet) {
+            result = m_parent.setBlock(v, newBlock, (SideEffectSet) options);
+        } else if (options instanceof Boolean) {
+            result = m_parent.setBlock(v, newBlock, (Boolean) options);
+        } else {
+            result = m_parent.setBlock(v, newBlock);
+        }
+
+        if (result) {
+            updateSnapshot(v, newBlock);
+            logBlock(v, player, oldBlock, newBlock);
+        }
+
+        return result;
     }
 
     @Override
@@ -454,6 +467,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
                 return;
             }
             m_parent.simulateBlockMine(v);
+            m_snapshots.invalidate(v.getX(), v.getY(), v.getZ());
         };
 
         if (param.isAsync() || !m_dispatcher.isMainTask()) {
@@ -593,6 +607,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
                 } catch (InterruptedException ignore) {
                 }
             }
+            invalidateSnapshots(chunk.getBlockX(), chunk.getBlockZ(), 0);
         }
     }
 
@@ -606,7 +621,13 @@ public class AsyncWorld extends AbstractWorldWrapper {
             return false;
         }
 
-        IFuncEx<Boolean, MaxChangedBlocksException> func = () -> m_parent.generateTree(type, editSession, v);
+        IFuncEx<Boolean, MaxChangedBlocksException> func = () -> {
+            try {
+                return m_parent.generateTree(type, editSession, v);
+            } finally {
+                invalidateSnapshots(positionToChunk(v.getX()), positionToChunk(v.getZ()), 1);
+            }
+        };
 
         if (param.isAsync() || !m_dispatcher.isMainTask()) {
             return m_blockPlacer.addTasks(player,
@@ -800,61 +821,203 @@ public class AsyncWorld extends AbstractWorldWrapper {
             final boolean isTile = isTileEntity(bType);
 
             if (isTile) {
-                result = m_dispatcher.queueFastOperation(() -> m_parent.getFullBlock(position));
+                result = m_dispatcher.queueFastOperation(() -> m_parent.getFullBlock(position),
+                        m_bukkitWorld, PositionHelper.positionToChunk(position));
             }
         }
         
         return result;
     }
             
-    private <T> T getBlockEntry(final BlockVector3 position, final Function<BlockCacheEntry, T> get) {
-        BlockCacheEntry result = m_blockCache.computeIfAbsent(position, _p -> {
-            BaseBlock block = getFullBlockDispatcher(position);
-            if (block == null) {
-                return null;
+    /**
+     * Get the section snapshot for the position, reads the whole section
+     * if it is not cached
+     */
+    private ChunkSnapshotCache.SectionSnapshot getSnapshot(final BlockVector3 position) {
+        final int cx = positionToChunk(position.getX());
+        final int sy = position.getY() >> 4;
+        final int cz = positionToChunk(position.getZ());
+
+        ChunkSnapshotCache.SectionSnapshot result = m_snapshots.get(cx, sy, cz);
+        if (result != null) {
+            return result;
+        }
+
+        return m_snapshots.load(cx, sy, cz, () -> readSnapshot(cx, sy, cz));
+    }
+
+    /**
+     * Read all blocks of a chunk section using a single world lock
+     */
+    private ChunkSnapshotCache.SectionSnapshot readSnapshot(final int cx, final int sy, final int cz) {
+        final BlockVector3 origin = BlockVector3.at(cx << 4, sy << 4, cz << 4);
+
+        return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), () -> {
+            final ChunkSnapshotCache.SectionSnapshot result = new ChunkSnapshotCache.SectionSnapshot();
+            final int yMin = Math.max(origin.getY(), m_parent.getMinY());
+            final int yMax = Math.min(origin.getY() + 15, m_parent.getMaxY());
+
+            for (int y = yMin; y <= yMax; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        final BlockState state = m_parent.getBlock(origin.add(x, y - origin.getY(), z));
+                        if (state != null) {
+                            result.set(ChunkSnapshotCache.index(x, y, z), state, this::isTileEntity);
+                        }
+                    }
+                }
+            }
+
+            return result;
+        }, m_bukkitWorld, origin);
+    }
+
+    /**
+     * Update the section snapshot after the block was changed by AWE
+     */
+    private void updateSnapshot(final BlockVector3 position, final BlockStateHolder block) {
+        final BlockState state = block != null ? block.toImmutableState() : null;
+        final boolean isTile = state == null || isTileEntity(state.getBlockType());
+
+        m_snapshots.update(position.getX(), position.getY(), position.getZ(), state, isTile);
+    }
+
+    /**
+     * Drop the section snapshots of the chunk and the chunks in the radius
+     */
+    private void invalidateSnapshots(final int cx, final int cz, final int radius) {
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                m_snapshots.invalidateChunk(cx + x, cz + z);
             }
-            
-            return new BlockCacheEntry(block);
-        });
-        
-        if (result == null) {
-            return null;
         }
-        
-        return get.apply(result);
     }
-    
+
     @Override
-    public BlockState getBlock(final BlockVector3 position) {        
-        return getBlockEntry(position, BlockCacheEntry::state);
+    public BlockState getBlock(final BlockVector3 position) {
+        final ChunkSnapshotCache.SectionSnapshot snapshot = getSnapshot(position);
+        if (snapshot != null) {
+            final BlockState result = snapshot.getBlock(ChunkSnapshotCache.index(position.getX(), position.getY(), position.getZ()));
+            if (result != null) {
+                return result;
+            }
+        }
+
+        final BaseBlock block = getFullBlockDispatcher(position);
+        return block != null ? block.toImmutableState() : null;
     }
 
     @Override
     public BaseBlock getFullBlock(final BlockVector3 position) {
-        return getBlockEntry(position, BlockCacheEntry::block);
+        final ChunkSnapshotCache.SectionSnapshot snapshot = getSnapshot(position);
+        if (snapshot != null) {
+            final int idx = ChunkSnapshotCache.index(position.getX(), position.getY(), position.getZ());
+            if (!snapshot.isTile(idx)) {
+                final BlockState result = snapshot.getBlock(idx);
+                if (result != null) {
+                    return result.toBaseBlock();
+                }
+            } else {
+                if (!snapshot.hasTiles() && !m_dispatcher.isMainTask()) {
+                    prefetchTiles(snapshot, position);
+                }
+
+                final BaseBlock result = snapshot.getTile(idx);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
+        return getFullBlockDispatcher(position);
+    }
+
+    /**
+     * Read all tile entity blocks of the section in a single main thread
+     * operation, further tile entity reads are served from the snapshot
+     */
+    private void prefetchTiles(final ChunkSnapshotCache.SectionSnapshot snapshot, final BlockVector3 position) {
+        final int version = snapshot.getVersion();
+        final int[] indexes = snapshot.getTileIndexes();
+        final BlockVector3 origin = BlockVector3.at(position.getX() & ~0xf, position.getY() & ~0xf, position.getZ() & ~0xf);
+
+        final Map<Integer, BaseBlock> tiles = m_dispatcher.queueFastOperation(() -> {
+            final Map<Integer, BaseBlock> result = new HashMap<>();
+            for (int idx : indexes) {
+                final BaseBlock block = m_parent.getFullBlock(origin.add(idx & 0xf, idx >> 8, (idx >> 4) & 0xf));
+                if (block != null) {
+                    result.put(idx, block);
+                }
+            }
+
+            return result;
+        }, m_bukkitWorld, PositionHelper.positionToChunk(position));
+
+        if (tiles != null) {
+            snapshot.setTiles(tiles, version);
+        }
     }
 
     @Override
     public BiomeType getBiome(BlockVector2 position) {
-        return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()),
-                () -> m_parent.getBiome(position),
-                m_bukkitWorld, BlockVector3.at(position.getX(), 0, position.getZ()));
+        return getBiome(position.toBlockVector3());
     }
 
 
     @Override
     public BiomeType getBiome(final BlockVector3 position) {
+        if (!m_dispatcher.isMainTask()) {
+            final ChunkSnapshotCache.SectionSnapshot snapshot = getSnapshot(position);
+            if (snapshot != null) {
+                if (!snapshot.hasBiomes()) {
+                    prefetchBiomes(snapshot, position);
+                }
+
+                final BiomeType result = snapshot.getBiome(ChunkSnapshotCache.index(position.getX(), position.getY(), position.getZ()));
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
         return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()),
                 () -> m_parent.getBiome(position),
                 m_bukkitWorld, position);
     }
 
+    /**
+     * Read all biomes of the section in a single operation (one main thread
+     * job shared by all the readers of the chunk if the chunk is not safe to
+     * read), further biome reads are served from the snapshot
+     */
+    private void prefetchBiomes(final ChunkSnapshotCache.SectionSnapshot snapshot, final BlockVector3 position) {
+        final BlockVector3 origin = BlockVector3.at(position.getX() & ~0xf, position.getY() & ~0xf, position.getZ() & ~0xf);
+
+        final BiomeType[] biomes = m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()), () -> {
+            final BiomeType[] result = new BiomeType[ChunkSnapshotCache.SectionSnapshot.SIZE];
+            final int yMin = Math.max(origin.getY(), m_parent.getMinY());
+            final int yMax = Math.min(origin.getY() + 15, m_parent.getMaxY());
+
+            for (int y = yMin; y <= yMax; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        result[ChunkSnapshotCache.index(x, y, z)] = m_parent.getBiome(origin.add(x, y - origin.getY(), z));
+                    }
+                }
+            }
+
+            return result;
+        }, m_bukkitWorld, origin);
+
+        if (biomes != null) {
+            snapshot.setBiomes(biomes);
+        }
+    }
+
 
 
     @Override
     public boolean setBlock(final BlockVector3 position, final BlockStateHolder block) throws WorldEditException {
-        m_blockCache.remove(position);
-
         final DataAsyncParams<BlockStateHolder> paramBlock = DataAsyncParams.extract(block);
         final DataAsyncParams<BlockVector3> paramVector = DataAsyncParams.extract(position);
 
@@ -862,31 +1025,15 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
-        IFuncEx<Boolean, WorldEditException> func = () -> {
-            final BlockState oldBlock = m_parent.getBlock(v);
-            if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
-                    || isSame(oldBlock, newBlock)) {
-                return false;
-            }
-
-            final boolean result = m_parent.setBlock(position, newBlock);
-            if (result) {
-                logBlock(position, player, oldBlock, newBlock);
-            }
-
-            return result;
-        };
-
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
             if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
-            return m_blockPlacer.addTasks(player,
-                    new WorldFuncEntryEx(this.getName(), paramBlock.getJobId(), v, func));
+            return queueBlock(player, paramBlock.getJobId(), v, newBlock, null);
         }
 
-        return func.execute();
+        return setPackedBlock(player, v, newBlock, null);
     }
 
     @Override
@@ -902,7 +1049,11 @@ public class AsyncWorld extends AbstractWorldWrapper {
             return false;
         }
 
-        IFunc<Boolean> func = () -> m_parent.setBiome(v, b);
+        IFunc<Boolean> func = () -> {
+            final boolean result = m_parent.setBiome(v, b);
+            invalidateSnapshots(positionToChunk(v.getX()), positionToChunk(v.getZ()), 0);
+            return result;
+        };
 
         if (paramBiome.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
             return m_blockPlacer.addTasks(player,
@@ -925,7 +1076,11 @@ public class AsyncWorld extends AbstractWorldWrapper {
             return false;
         }
 
-        IFunc<Boolean> func = () -> m_parent.setBiome(p, b);
+        IFunc<Boolean> func = () -> {
+            final boolean result = m_parent.setBiome(p, b);
+            invalidateSnapshots(positionToChunk(p.getX()), positionToChunk(p.getZ()), 0);
+            return result;
+        };
 
         if (paramBiome.isAsync() || paramPosition.isAsync() || !m_dispatcher.isMainTask()) {
             return m_blockPlacer.addTasks(player,
@@ -1040,39 +1195,4 @@ public class AsyncWorld extends AbstractWorldWrapper {
     public String getId() {
         return m_parent.getId();
     }
-
-    private static class BlockCacheEntry {
-        private final BaseBlock m_block;
-        
-        private volatile BlockState m_state;
-        
-        public BaseBlock block() { return m_block; }
-        public BlockState state() {
-            if (m_state == null) {
-                m_state = m_block.toImmutableState();
-            }
-            
-            return m_state;
-        }
-        
-        public BlockCacheEntry(BaseBlock block) {
-            m_block = block;
-        }
-    }
-    
-    private static class LruMap<TKey, TValue> extends LinkedHashMap<TKey, TValue> {
-
-        private final int m_size;
-
-        public LruMap(int size) {
-            super(size + 1, 0.75f, true);
-
-            m_size = size;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<TKey, TValue> entry) {
-            return size() > m_size;
-        }
-    }
 }
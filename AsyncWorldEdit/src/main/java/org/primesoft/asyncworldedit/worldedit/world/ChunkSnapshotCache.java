@@ -0,0 +1,613 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+
+/**
+ * Per world cache of chunk section snapshots. A section is read once (under
+ * the world mutex) and all further block reads are served from the snapshot
+ * without any locking. Snapshots are patched by AWE's own block changes and
+ * dropped when the chunk unloads.
+ *
+ * @author SBPrime
+ */
+public final class ChunkSnapshotCache {
+
+    /**
+     * Maximum number of cached chunks per world
+     */
+    private final static int MAX_CHUNKS = 64;
+
+    /**
+     * Maximum snapshot age (ms), changes not done by AWE are picked up after
+     * this time
+     */
+    private final static long MAX_AGE = 5000;
+
+    /**
+     * Marks a section that is being read
+     */
+    private final static Object LOADING = new Object();
+
+    /**
+     * All world caches
+     */
+    private final static Map<String, ChunkSnapshotCache> s_worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Get the snapshot cache for a world
+     *
+     * @param worldName
+     * @return
+     */
+    public static ChunkSnapshotCache forWorld(String worldName) {
+        return s_worlds.computeIfAbsent(worldName, _wn -> new ChunkSnapshotCache());
+    }
+
+    /**
+     * Drop the world cache, the cache instances still in use stop caching
+     * the sections
+     *
+     * @param worldName
+     */
+    public static void removeWorld(String worldName) {
+        if (worldName == null) {
+            return;
+        }
+
+        ChunkSnapshotCache cache = s_worlds.remove(worldName);
+        if (cache != null) {
+            cache.dispose();
+        }
+    }
+
+    /**
+     * Drop all snapshots of a chunk
+     *
+     * @param worldName
+     * @param cx
+     * @param cz
+     */
+    public static void invalidateChunk(String worldName, int cx, int cz) {
+        if (worldName == null) {
+            return;
+        }
+
+        ChunkSnapshotCache cache = s_worlds.get(worldName);
+        if (cache != null) {
+            cache.invalidateChunk(cx, cz);
+        }
+    }
+
+    /**
+     * Get the block index inside a section
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    static int index(int x, int y, int z) {
+        return (y & 0xf) << 8 | (z & 0xf) << 4 | (x & 0xf);
+    }
+
+    private static long encode(int cx, int cz) {
+        return (long) cx << 32 | cz & 0xFFFFFFFFL;
+    }
+
+    /**
+     * The cached chunks
+     */
+    private final Map<Long, ChunkEntry> m_chunks = new ConcurrentHashMap<>();
+
+    /**
+     * The world was unloaded, no new sections are cached
+     */
+    private volatile boolean m_isDisposed;
+
+    ChunkSnapshotCache() {
+    }
+
+    /**
+     * Drop all snapshots and stop caching
+     */
+    void dispose() {
+        m_isDisposed = true;
+        m_chunks.clear();
+    }
+
+    /**
+     * Get the section snapshot
+     *
+     * @param cx
+     * @param sy
+     * @param cz
+     * @return The snapshot or null if not available
+     */
+    SectionSnapshot get(int cx, int sy, int cz) {
+        ChunkEntry chunk = m_chunks.get(encode(cx, cz));
+        if (chunk == null) {
+            return null;
+        }
+
+        Object result = chunk.Sections.get(sy);
+        if (!(result instanceof SectionSnapshot)) {
+            return null;
+        }
+
+        SectionSnapshot snapshot = (SectionSnapshot) result;
+        if (snapshot.isExpired(System.currentTimeMillis())) {
+            chunk.Sections.remove(sy, snapshot);
+            return null;
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Read and publish a section snapshot. When the section is already being
+     * read by an other thread no snapshot is returned.
+     *
+     * @param cx
+     * @param sy
+     * @param cz
+     * @param loader
+     * @return The snapshot or null if not available
+     */
+    SectionSnapshot load(int cx, int sy, int cz, IFunc<SectionSnapshot> loader) {
+        if (m_isDisposed) {
+            return null;
+        }
+
+        final long key = encode(cx, cz);
+        final ChunkEntry chunk = m_chunks.computeIfAbsent(key, _k -> new ChunkEntry());
+        final Object marker = chunk.Sections.putIfAbsent(sy, LOADING);
+        if (marker instanceof SectionSnapshot) {
+            return (SectionSnapshot) marker;
+        } else if (marker != null) {
+            return null;
+        }
+
+        SectionSnapshot result = null;
+        try {
+            result = loader.execute();
+        } finally {
+            if (result == null) {
+                chunk.Sections.remove(sy, LOADING);
+            } else {
+                //Fails when the section was invalidated during the read
+                chunk.Sections.replace(sy, LOADING, result);
+            }
+        }
+
+        if (m_isDisposed) {
+            m_chunks.clear();
+        } else if (m_chunks.size() > MAX_CHUNKS) {
+            evict(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Update a cached block
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param state
+     * @param isTile
+     */
+    void update(int x, int y, int z, BlockState state, boolean isTile) {
+        ChunkEntry chunk = m_chunks.get(encode(x >> 4, z >> 4));
+        if (chunk == null) {
+            return;
+        }
+
+        final int sy = y >> 4;
+        Object section = chunk.Sections.get(sy);
+        if (section instanceof SectionSnapshot && state != null
+                && ((SectionSnapshot) section).update(index(x, y, z), state, isTile)) {
+            return;
+        }
+
+        if (section != null) {
+            chunk.Sections.remove(sy, section);
+        }
+    }
+
+    /**
+     * Drop the section containing the block
+     *
+     * @param x
+     * @param y
+     * @param z
+     */
+    void invalidate(int x, int y, int z) {
+        ChunkEntry chunk = m_chunks.get(encode(x >> 4, z >> 4));
+        if (chunk != null) {
+            chunk.Sections.remove(y >> 4);
+        }
+    }
+
+    /**
+     * Drop all snapshots of a chunk
+     *
+     * @param cx
+     * @param cz
+     */
+    void invalidateChunk(int cx, int cz) {
+        m_chunks.remove(encode(cx, cz));
+    }
+
+    /**
+     * Remove the oldest chunks
+     *
+     * @param keep Chunk that should not be removed
+     */
+    private void evict(long keep) {
+        while (m_chunks.size() > MAX_CHUNKS) {
+            Long oldestKey = null;
+            long oldest = Long.MAX_VALUE;
+
+            for (Map.Entry<Long, ChunkEntry> entry : m_chunks.entrySet()) {
+                long created = entry.getValue().Created;
+                if (entry.getKey() != keep && created < oldest) {
+                    oldest = created;
+                    oldestKey = entry.getKey();
+                }
+            }
+
+            if (oldestKey == null) {
+                return;
+            }
+            m_chunks.remove(oldestKey);
+        }
+    }
+
+    private static class ChunkEntry {
+
+        /**
+         * Creation time
+         */
+        public final long Created = System.currentTimeMillis();
+
+        /**
+         * The section snapshots (or the loading marker)
+         */
+        public final Map<Integer, Object> Sections = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Immutable view of the section palette. The arrays are shared between
+     * the palette versions, entries below the size are never changed.
+     */
+    private static final class Palette {
+
+        /**
+         * The block states, entry 0 is not used
+         */
+        final BlockState[] States;
+
+        /**
+         * Is palette entry a tile entity
+         */
+        final boolean[] Tile;
+
+        /**
+         * Number of used palette entries
+         */
+        final int Size;
+
+        Palette(BlockState[] states, boolean[] tile, int size) {
+            States = states;
+            Tile = tile;
+            Size = size;
+        }
+
+        /**
+         * Create palette with the new entry
+         *
+         * @param state
+         * @param isTile
+         * @return
+         */
+        Palette add(BlockState state, boolean isTile) {
+            BlockState[] states = States;
+            boolean[] tile = Tile;
+            if (Size == states.length) {
+                states = Arrays.copyOf(states, Size * 2);
+                tile = Arrays.copyOf(tile, Size * 2);
+            }
+
+            states[Size] = state;
+            tile[Size] = isTile;
+
+            return new Palette(states, tile, Size + 1);
+        }
+    }
+
+    /**
+     * Palette based snapshot of a single chunk section. The palette is
+     * published through a single volatile reference, the readers never see
+     * a palette index that is not in the palette they read.
+     */
+    static final class SectionSnapshot {
+
+        /**
+         * Number of blocks in a section
+         */
+        public final static int SIZE = 4096;
+
+        /**
+         * Maximum palette size, the palette is never compacted
+         */
+        private final static int MAX_PALETTE = SIZE * 2;
+
+        /**
+         * Palette index for each block, 0 means not cached
+         */
+        private final char[] m_indexes = new char[SIZE];
+
+        /**
+         * Palette index lookup (guarded by this)
+         */
+        private final Map<BlockState, Integer> m_lookup = new HashMap<>();
+
+        /**
+         * Snapshot creation time
+         */
+        private final long m_created = System.currentTimeMillis();
+
+        /**
+         * The current palette
+         */
+        private volatile Palette m_palette = new Palette(new BlockState[16], new boolean[16], 1);
+
+        /**
+         * Bumped on each update
+         */
+        private volatile int m_version;
+
+        /**
+         * Prefetched tile entity blocks (with NBT), null if not read
+         */
+        private volatile Map<Integer, BaseBlock> m_tiles;
+
+        /**
+         * Prefetched biomes, null if not read
+         */
+        private volatile BiomeType[] m_biomes;
+
+        /**
+         * Set a block while the snapshot is being read (not published)
+         *
+         * @param idx
+         * @param state
+         * @param isTile
+         */
+        void set(int idx, BlockState state, Predicate<BlockType> isTile) {
+            Integer p = m_lookup.get(state);
+            if (p == null) {
+                p = add(state, isTile.test(state.getBlockType()));
+            }
+
+            m_indexes[idx] = (char) (int) p;
+        }
+
+        /**
+         * Get the cached block state
+         *
+         * @param idx
+         * @return The block state or null if not cached
+         */
+        BlockState getBlock(int idx) {
+            final int p = m_indexes[idx];
+            final Palette palette = m_palette;
+            return p < palette.Size ? palette.States[p] : null;
+        }
+
+        /**
+         * Is the block a tile entity (full block needs to be read from the
+         * world)
+         *
+         * @param idx
+         * @return
+         */
+        boolean isTile(int idx) {
+            final int p = m_indexes[idx];
+            final Palette palette = m_palette;
+            return p == 0 || p >= palette.Size || palette.Tile[p];
+        }
+
+        /**
+         * Get the indexes of all tile entity blocks
+         *
+         * @return
+         */
+        synchronized int[] getTileIndexes() {
+            final Palette palette = m_palette;
+            return IntStream.range(0, SIZE)
+                    .filter(i -> m_indexes[i] != 0 && palette.Tile[m_indexes[i]])
+                    .toArray();
+        }
+        /**
+         * Are the tile entity blocks prefetched
+         *
+         * @return
+         */
+        boolean hasTiles() {
+            return m_tiles != null;
+        }
+
+        /**
+         * Get the snapshot version
+         *
+         * @return
+         */
+        int getVersion() {
+            return m_version;
+        }
+
+        /**
+         * Set the prefetched tile entity blocks, ignored if the snapshot was
+         * updated while the tiles were read
+         *
+         * @param tiles
+         * @param version The snapshot version the tiles were read at
+         */
+        synchronized void setTiles(Map<Integer, BaseBlock> tiles, int version) {
+            if (m_version != version) {
+                return;
+            }
+
+            m_tiles = new ConcurrentHashMap<>(tiles);
+        }
+
+        /**
+         * Get the prefetched tile entity block
+         *
+         * @param idx
+         * @return The block or null if not prefetched
+         */
+        BaseBlock getTile(int idx) {
+            final Map<Integer, BaseBlock> tiles = m_tiles;
+            if (tiles == null) {
+                return null;
+            }
+
+            return tiles.get(idx);
+        }
+
+        /**
+         * Are the biomes prefetched
+         *
+         * @return
+         */
+        boolean hasBiomes() {
+            return m_biomes != null;
+        }
+
+        /**
+         * Set the prefetched biomes
+         *
+         * @param biomes The biome for each block in the section
+         */
+        void setBiomes(BiomeType[] biomes) {
+            m_biomes = biomes;
+        }
+
+        /**
+         * Get the prefetched biome
+         *
+         * @param idx
+         * @return The biome or null if not prefetched
+         */
+        BiomeType getBiome(int idx) {
+            final BiomeType[] biomes = m_biomes;
+            if (biomes == null) {
+                return null;
+            }
+
+            return biomes[idx];
+        }
+
+        boolean isExpired(long now) {
+            return now - m_created > MAX_AGE;
+        }
+
+        /**
+         * Update a published snapshot
+         *
+         * @param idx
+         * @param state
+         * @param isTile
+         * @return False if the palette is full and the snapshot should be
+         * dropped
+         */
+        synchronized boolean update(int idx, BlockState state, boolean isTile) {
+            Integer p = m_lookup.get(state);
+            if (p == null) {
+                if (m_palette.Size > MAX_PALETTE) {
+                    return false;
+                }
+                p = add(state, isTile);
+            }
+
+            m_indexes[idx] = (char) (int) p;
+
+            final Map<Integer, BaseBlock> tiles = m_tiles;
+            if (tiles != null) {
+                tiles.remove(idx);
+            }
+
+            m_version++;
+            return true;
+        }
+
+        private int add(BlockState state, boolean isTile) {
+            final Palette palette = m_palette.add(state, isTile);
+            final int p = palette.Size - 1;
+
+            m_palette = palette;
+            m_lookup.put(state, p);
+            return p;
+        }
+    }
+}
@@ -96,4 +96,91 @@ public class BlockPlacerGroupTest {
         Assert.assertNotNull("Step 2: Get players", peResult2);
         Assert.assertEquals("Step 2: Number of players", 0, peResult2.length);
     }
+    
+    @Test
+    public void shouldGivePlayerCreditProportionalToWeight() {
+        // Given
+        IPlayerEntry pe1 = Mockito.mock(IPlayerEntry.class);
+        IPlayerEntry pe2 = Mockito.mock(IPlayerEntry.class);
+        Mockito.when(pe1.getRenderBlocks()).thenReturn(-1);
+        Mockito.when(pe2.getRenderBlocks()).thenReturn(-1);
+        BlockPlacerGroup bpg = new BlockPlacerGroup(null, new IPlayerEntry[]{ pe1, pe2 },
+                p -> p == pe1 ? 1 : 4);
+        
+        // When
+        int credit1 = bpg.getPlayerCredit(pe1, 10);
+        int credit2 = bpg.getPlayerCredit(pe2, 10);
+        bpg.updateProgress(0, pe2, 15);
+        boolean hasCredit = bpg.hasPlayerCredit(pe2);
+        bpg.updateProgress(0, pe2, 25);
+        boolean hasCreditAfterTurn = bpg.hasPlayerCredit(pe2);
+        
+        // Then
+        Assert.assertEquals("Player 1 credit", 10, credit1);
+        Assert.assertEquals("Player 2 credit", 40, credit2);
+        Assert.assertTrue("Player 2 credit left", hasCredit);
+        Assert.assertFalse("Player 2 turn done", hasCreditAfterTurn);
+        Assert.assertEquals("New turn credit", 40, bpg.getPlayerCredit(pe2, 10));
+    }
+    
+    @Test
+    public void shouldKeepPlayerCreditBetweenRuns() {
+        // Given
+        IPlayerEntry pe = Mockito.mock(IPlayerEntry.class);
+        Mockito.when(pe.getRenderBlocks()).thenReturn(-1);
+        BlockPlacerGroup bpg = new BlockPlacerGroup(null, new IPlayerEntry[]{ pe });
+        
+        // When
+        bpg.getPlayerCredit(pe, 10);
+        bpg.updateProgress(0, pe, 4);
+        bpg.update(new IPlayerEntry[]{ pe }, p -> 1);
+        int credit = bpg.getPlayerCredit(pe, 10);
+        
+        // Then
+        Assert.assertEquals("Credit left", 6, credit);
+    }
+    
+    @Test
+    public void shouldDeductOverusedCredit() {
+        // Given
+        IPlayerEntry pe = Mockito.mock(IPlayerEntry.class);
+        Mockito.when(pe.getRenderBlocks()).thenReturn(-1);
+        BlockPlacerGroup bpg = new BlockPlacerGroup(null, new IPlayerEntry[]{ pe });
+        
+        // When
+        bpg.getPlayerCredit(pe, 10);
+        bpg.updateProgress(0, pe, 15);
+        bpg.update(new IPlayerEntry[]{ pe }, p -> 1);
+        int playerCredit = bpg.getPlayerCredit(pe, 10);
+        bpg.getCredit(10);
+        bpg.useCredit(12);
+        int groupCredit = bpg.getCredit(10);
+        
+        // Then
+        Assert.assertEquals("Player credit", 5, playerCredit);
+        Assert.assertEquals("Group credit", 8, groupCredit);
+    }
+    
+    @Test
+    public void shouldDropCreditOfRemovedPlayer() {
+        // Given
+        IPlayerEntry pe1 = Mockito.mock(IPlayerEntry.class);
+        IPlayerEntry pe2 = Mockito.mock(IPlayerEntry.class);
+        Mockito.when(pe1.getRenderBlocks()).thenReturn(-1);
+        Mockito.when(pe2.getRenderBlocks()).thenReturn(2);
+        BlockPlacerGroup bpg = new BlockPlacerGroup(null, new IPlayerEntry[]{ pe1, pe2 });
+        
+        // When
+        bpg.getPlayerCredit(pe1, 10);
+        bpg.updateProgress(0, pe1, 4);
+        bpg.updateProgress(1, pe2, 2);
+        bpg.update(new IPlayerEntry[]{ pe2 }, p -> 1);
+        boolean hasCredit = bpg.hasPlayerCredit(pe1);
+        int blocksLeft = bpg.getBlocksLeft(pe2);
+        
+        // Then
+        Assert.assertFalse("Removed player credit", hasCredit);
+        Assert.assertEquals("Blocks left in new run", 2, blocksLeft);
+        Assert.assertEquals("Sequence number kept", 1, bpg.getSeqNumber());
+    }
 }
@@ -0,0 +1,306 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
+import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobPriority;
+import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
+import org.primesoft.asyncworldedit.api.inner.IPackedBlockTarget;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class BlockPlacerPlayerTest {
+    private static IBlockPlacerEntry mockEntry(int jobId) {
+        IBlockPlacerEntry entry = Mockito.mock(IBlockPlacerEntry.class);
+        Mockito.when(entry.getJobId()).thenReturn(jobId);
+        
+        return entry;
+    }
+    
+    private static IJobEntry mockJob(int jobId) {
+        IJobEntry job = Mockito.mock(IJobEntry.class);
+        Mockito.when(job.getJobId()).thenReturn(jobId);
+        
+        return job;
+    }
+    
+    private static IPlayerEntry mockPlayer() {
+        IPlayerEntry player = Mockito.mock(IPlayerEntry.class);
+        IPermissionGroup group = Mockito.mock(IPermissionGroup.class);
+        Mockito.when(group.getMaxJobs()).thenReturn(-1);
+        Mockito.when(player.getPermissionGroup()).thenReturn(group);
+        
+        return player;
+    }
+    
+    @Test
+    public void shouldTrackQueueSize() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IBlockPlacerEntry e1 = mockEntry(1);
+        IBlockPlacerEntry e2 = mockEntry(1);
+        
+        // When
+        bpp.offer(e1);
+        bpp.offer(e2);
+        int sizeAfterAdd = bpp.getQueueSize();
+        IBlockPlacerEntry r1 = bpp.poll();
+        IBlockPlacerEntry r2 = bpp.poll();
+        IBlockPlacerEntry r3 = bpp.poll();
+        
+        // Then
+        Assert.assertEquals("Size after add", 2, sizeAfterAdd);
+        Assert.assertEquals("First entry", e1, r1);
+        Assert.assertEquals("Second entry", e2, r2);
+        Assert.assertNull("Empty queue", r3);
+        Assert.assertEquals("Size after poll", 0, bpp.getQueueSize());
+    }
+    
+    @Test
+    public void shouldCancelOnlyJobEntriesAndKeepOrder() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IBlockPlacerEntry e1 = mockEntry(1);
+        IBlockPlacerEntry e2 = mockEntry(2);
+        IBlockPlacerEntry e3 = mockEntry(1);
+        IBlockPlacerEntry e4 = mockEntry(3);
+        
+        bpp.offer(e1);
+        bpp.offer(e2);
+        bpp.offer(e3);
+        bpp.offer(e4);
+        
+        // When
+        bpp.cancelJobs(Arrays.asList(1));
+        int cnt = bpp.countEntries(Arrays.asList(1));
+        
+        // Then
+        Assert.assertEquals("Canceled count", 2, cnt);
+        Assert.assertEquals("Queue size", 4, bpp.getQueueSize());
+        Assert.assertTrue("Job canceled", bpp.isCanceled(1));
+        Assert.assertFalse("Other job canceled", bpp.isCanceled(2));
+        Assert.assertEquals("First", e1, bpp.poll());
+        Assert.assertEquals("Second", e2, bpp.poll());
+        Assert.assertEquals("Third", e3, bpp.poll());
+        Assert.assertEquals("Fourth", e4, bpp.poll());
+        Assert.assertNull("Empty queue", bpp.poll());
+        Assert.assertFalse("Job not canceled", bpp.isCanceled(1));
+    }
+    
+    @Test
+    public void shouldNotCancelEntriesAddedAfterCancel() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IBlockPlacerEntry e1 = mockEntry(1);
+        IBlockPlacerEntry e2 = mockEntry(1);
+        
+        bpp.offer(e1);
+        bpp.cancelJobs(Arrays.asList(1));
+        bpp.offer(e2);
+        
+        // When
+        IBlockPlacerEntry r1 = bpp.poll();
+        boolean canceled1 = bpp.isCanceled(1);
+        IBlockPlacerEntry r2 = bpp.poll();
+        boolean canceled2 = bpp.isCanceled(1);
+        
+        // Then
+        Assert.assertEquals("First entry", e1, r1);
+        Assert.assertTrue("First canceled", canceled1);
+        Assert.assertEquals("Second entry", e2, r2);
+        Assert.assertFalse("Second canceled", canceled2);
+        Assert.assertEquals("Size after poll", 0, bpp.getQueueSize());
+    }
+    
+    @Test
+    public void shouldKeepOrderOfPackedBlocks() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IPackedBlockTarget target = Mockito.mock(IPackedBlockTarget.class);
+        BlockStateHolder block = Mockito.mock(BlockStateHolder.class);
+        IBlockPlacerEntry e1 = mockEntry(1);
+        
+        // When
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(1, -10, 2), block, null);
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(-3, 20, -4), block, null);
+        bpp.offer(e1);
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(5, 6, 7), block, null);
+        int sizeAfterAdd = bpp.getQueueSize();
+        IBlockPlacerEntry r1 = bpp.poll();
+        IBlockPlacerEntry r2 = bpp.poll();
+        IBlockPlacerEntry r3 = bpp.poll();
+        IBlockPlacerEntry r4 = bpp.poll();
+        
+        // Then
+        Assert.assertEquals("Size after add", 4, sizeAfterAdd);
+        Assert.assertEquals("First block", BlockVector3.at(1, -10, 2), ((IBlockPlacerLocationEntry)r1).getLocation());
+        Assert.assertEquals("Second block", BlockVector3.at(-3, 20, -4), ((IBlockPlacerLocationEntry)r2).getLocation());
+        Assert.assertEquals("Entry", e1, r3);
+        Assert.assertEquals("Last block", BlockVector3.at(5, 6, 7), ((IBlockPlacerLocationEntry)r4).getLocation());
+        Assert.assertNull("Empty queue", bpp.poll());
+        Assert.assertEquals("Size after poll", 0, bpp.getQueueSize());
+    }
+    
+    @Test
+    public void shouldCancelPackedBlocksOfJob() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IPackedBlockTarget target = Mockito.mock(IPackedBlockTarget.class);
+        BlockStateHolder block = Mockito.mock(BlockStateHolder.class);
+        
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(1, 2, 3), block, null);
+        bpp.offerBlock(target, "world", 2, BlockVector3.at(4, 5, 6), block, null);
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(7, 8, 9), block, null);
+        
+        // When
+        bpp.cancelJobs(Arrays.asList(1));
+        int cnt = bpp.countEntries(Arrays.asList(1));
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(10, 11, 12), block, null);
+        
+        // Then
+        Assert.assertEquals("Canceled count", 2, cnt);
+        Assert.assertEquals("Queue size", 4, bpp.getQueueSize());
+        Assert.assertEquals("First", 1, bpp.poll().getJobId());
+        Assert.assertEquals("Second", 2, bpp.poll().getJobId());
+        Assert.assertEquals("Third", 1, bpp.poll().getJobId());
+        Assert.assertTrue("Job canceled", bpp.isCanceled(1));
+        Assert.assertEquals("Added after cancel", BlockVector3.at(10, 11, 12), 
+                ((IBlockPlacerLocationEntry)bpp.poll()).getLocation());
+        Assert.assertFalse("Job not canceled", bpp.isCanceled(1));
+    }
+    
+    @Test
+    public void shouldRemoveAllEntries() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+        IPackedBlockTarget target = Mockito.mock(IPackedBlockTarget.class);
+        BlockStateHolder block = Mockito.mock(BlockStateHolder.class);
+        List<IBlockPlacerEntry> removed = new ArrayList<>();
+        
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(1, 2, 3), block, null);
+        bpp.offer(mockEntry(2));
+        bpp.cancelJobs(Arrays.asList(2));
+        bpp.offerBlock(target, "world", 1, BlockVector3.at(4, 5, 6), block, null);
+        
+        // When
+        int cnt = bpp.removeAllEntries(removed::add);
+        
+        // Then
+        Assert.assertEquals("Removed count", 3, cnt);
+        Assert.assertEquals("Removed entries", 3, removed.size());
+        Assert.assertEquals("Queue size", 0, bpp.getQueueSize());
+        Assert.assertFalse("Job not canceled", bpp.isCanceled(2));
+        Assert.assertNull("Empty queue", bpp.poll());
+    }
+    
+    @Test
+    public void shouldPollHighPriorityJobFirst() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(mockPlayer());
+        IBlockPlacerEntry e1 = mockEntry(1);
+        IBlockPlacerEntry e2 = mockEntry(2);
+        IBlockPlacerEntry e3 = mockEntry(1);
+        
+        bpp.addJob(mockJob(2), true);
+        bpp.setJobPriority(2, JobPriority.High);
+        
+        // When
+        bpp.offer(e1);
+        bpp.offer(e2);
+        bpp.offer(e3);
+        
+        // Then
+        Assert.assertEquals("First", e2, bpp.poll());
+        Assert.assertEquals("Second", e1, bpp.poll());
+        Assert.assertEquals("Third", e3, bpp.poll());
+        Assert.assertNull("Empty queue", bpp.poll());
+    }
+    
+    @Test
+    public void shouldKeepJobOrderWhenPriorityChanges() {
+        // Given
+        BlockPlacerPlayer bpp = new BlockPlacerPlayer(mockPlayer());
+        IBlockPlacerEntry e1 = mockEntry(1);
+        IBlockPlacerEntry e2 = mockEntry(1);
+        IBlockPlacerEntry e3 = mockEntry(2);
+        IBlockPlacerEntry e4 = mockEntry(2);
+        IBlockPlacerEntry e5 = mockEntry(1);
+        
+        bpp.addJob(mockJob(1), true);
+        bpp.offer(e1);
+        
+        // When
+        bpp.setJobPriority(1, JobPriority.High);
+        bpp.offer(e2);
+        bpp.offer(e3);
+        IBlockPlacerEntry r1 = bpp.poll();
+        IBlockPlacerEntry r2 = bpp.poll();
+        bpp.offer(e4);
+        bpp.offer(e5);
+        
+        // Then
+        Assert.assertEquals("Queued before change", e1, r1);
+        Assert.assertEquals("Queued after change", e2, r2);
+        Assert.assertEquals("High priority", e5, bpp.poll());
+        Assert.assertEquals("Normal priority", e3, bpp.poll());
+        Assert.assertEquals("Last", e4, bpp.poll());
+        Assert.assertEquals("Queue size", 0, bpp.getQueueSize());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class UndoCatalogTest {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private File m_undoFolder;
+
+    private UUID m_owner;
+
+    @Before
+    public void init() throws IOException {
+        m_undoFolder = m_folder.newFolder("undo");
+        m_owner = UUID.randomUUID();
+    }
+
+    /**
+     * Create undo file of the provided size in the owner folder
+     *
+     * @param name
+     * @param size
+     * @return
+     * @throws IOException
+     */
+    private File createFile(String name, int size) throws IOException {
+        File folder = new File(m_undoFolder, m_owner.toString());
+        folder.mkdirs();
+
+        File result = new File(folder, name);
+        Files.write(result.toPath(), new byte[size]);
+
+        return result;
+    }
+
+    @Test
+    public void shouldRestoreEntriesFromJournal() throws IOException {
+        // Given
+        UndoCatalog catalog = new UndoCatalog(() -> m_undoFolder);
+        catalog.getExpired(0);
+
+        File f1 = createFile("test1", 10);
+        File f2 = createFile("test2", 20);
+        File f3 = createFile("test3", 30);
+
+        catalog.add(f1, m_owner, 1);
+        catalog.add(f2, m_owner, 2);
+        catalog.add(f3, m_owner, 3);
+        catalog.close(f1);
+        catalog.close(f2);
+        catalog.close(f3);
+        catalog.touch(f1);
+        catalog.remove(f3);
+        catalog.close();
+
+        // When
+        UndoCatalog loaded = new UndoCatalog(() -> m_undoFolder);
+
+        // Then
+        Assert.assertEquals("Least recently used", Arrays.asList(f2, f1), loaded.getOverQuota(0));
+        Assert.assertEquals("Over quota", Arrays.asList(f2), loaded.getOverQuota(25));
+        Assert.assertEquals("In quota", Collections.emptyList(), loaded.getOverQuota(30));
+        Assert.assertEquals("Expired", Arrays.asList(f1), loaded.getExpired(1));
+    }
+
+    @Test
+    public void shouldCompactJournal() throws IOException {
+        // Given
+        UndoCatalog catalog = new UndoCatalog(() -> m_undoFolder);
+        catalog.getExpired(0);
+
+        File file = createFile("test1", 10);
+        File journal = new File(m_undoFolder, "undo.catalog");
+
+        catalog.add(file, m_owner, 1);
+        catalog.close(file);
+        catalog.flush();
+        long entrySize = journal.length();
+        catalog.touch(file);
+        catalog.flush();
+        long touchSize = journal.length() - entrySize;
+
+        // When
+        for (int i = 0; i < 3000; i++) {
+            catalog.touch(file);
+        }
+        catalog.close();
+
+        // Then
+        Assert.assertTrue("Journal compacted", journal.length() < 2000 * touchSize);
+
+        UndoCatalog loaded = new UndoCatalog(() -> m_undoFolder);
+        Assert.assertEquals("Entry", Arrays.asList(file), loaded.getOverQuota(9));
+        Assert.assertEquals("Entry size", Collections.emptyList(), loaded.getOverQuota(10));
+    }
+}
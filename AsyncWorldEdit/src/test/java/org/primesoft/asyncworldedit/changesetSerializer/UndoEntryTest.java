@@ -0,0 +1,161 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class UndoEntryTest {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    @Test
+    public void shouldSkipTableRecordsWhenLoadingEntries() throws IOException {
+        // Given
+        File file = m_folder.newFile();
+        byte[] first = new byte[]{1, 2, 3};
+        byte[] second = new byte[300];
+        second[299] = 42;
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            UndoEntry.saveTableEntry(out, UndoEntry.RECORD_TYPE, 0, "BlockChange");
+            UndoEntry.saveTableEntry(out, UndoEntry.RECORD_BLOCK, 0, "minecraft:stone");
+            UndoEntry.save(out, new UndoEntry("", first, 7), 0);
+            UndoEntry.saveTableEntry(out, UndoEntry.RECORD_TYPE, 1, "EntityCreate");
+            UndoEntry.save(out, new UndoEntry("", second, 200), 1);
+        }
+
+        // When
+        UndoEntry firstEntry;
+        UndoEntry secondEntry;
+        UndoEntry end;
+        try (ChunkCacheStream in = new ChunkCacheStream(new RandomAccessFile(file, "r"))) {
+            firstEntry = UndoEntry.load(in);
+            secondEntry = UndoEntry.load(in);
+            end = UndoEntry.load(in);
+        }
+
+        // Then
+        Assert.assertEquals("First id", 7, firstEntry.getId());
+        Assert.assertEquals("First type", 0, firstEntry.getTypeId());
+        Assert.assertArrayEquals("First data", first, firstEntry.getData());
+        Assert.assertEquals("Second id", 200, secondEntry.getId());
+        Assert.assertEquals("Second type", 1, secondEntry.getTypeId());
+        Assert.assertArrayEquals("Second data", second, secondEntry.getData());
+        Assert.assertNull("End of file", end);
+    }
+
+    @Test
+    public void shouldReadWrittenTableRecords() throws IOException {
+        // Given
+        File file = m_folder.newFile();
+        String value = "minecraft:oak_stairs[facing=east,half=top]";
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            UndoEntry.saveTableEntry(out, UndoEntry.RECORD_BLOCK, 130, value);
+        }
+
+        // When
+        byte record;
+        int idx;
+        byte[] data;
+        int remaining;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            record = in.readByte();
+            idx = VarInt.readInt(in);
+            data = new byte[VarInt.readInt(in)];
+            in.readFully(data);
+            remaining = in.available();
+        }
+
+        // Then
+        Assert.assertEquals("Record type", UndoEntry.RECORD_BLOCK, record);
+        Assert.assertEquals("Table index", 130, idx);
+        Assert.assertEquals("Table value", value, new String(data, StandardCharsets.UTF_8));
+        Assert.assertEquals("Remaining data", 0, remaining);
+    }
+
+    @Test
+    public void shouldNotLoadTruncatedEntry() throws IOException {
+        // Given
+        File file = m_folder.newFile();
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            UndoEntry.saveTableEntry(out, UndoEntry.RECORD_TYPE, 0, "BlockChange");
+            UndoEntry.save(out, new UndoEntry("", new byte[100], 1), 0);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        // When
+        UndoEntry result;
+        try (ChunkCacheStream in = new ChunkCacheStream(new RandomAccessFile(file, "r"))) {
+            result = UndoEntry.load(in);
+        }
+
+        // Then
+        Assert.assertNull("Truncated entry", result);
+    }
+}
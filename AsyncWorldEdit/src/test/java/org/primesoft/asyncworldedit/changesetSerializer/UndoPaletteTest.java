@@ -0,0 +1,142 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class UndoPaletteTest {
+    @Test
+    public void shouldReturnSameIndexForKnownValue() {
+        // Given
+        UndoPalette palette = new UndoPalette();
+        int stone = palette.getOrAdd("minecraft:stone");
+        int dirt = palette.getOrAdd("minecraft:dirt");
+
+        // When
+        int result = palette.getOrAdd("minecraft:stone");
+
+        // Then
+        Assert.assertEquals("Stone index", stone, result);
+        Assert.assertNotEquals("Dirt index", stone, dirt);
+        Assert.assertEquals("Stone value", "minecraft:stone", palette.get(stone));
+        Assert.assertEquals("Dirt value", "minecraft:dirt", palette.get(dirt));
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownIndex() {
+        // Given
+        UndoPalette palette = new UndoPalette();
+        palette.getOrAdd("minecraft:stone");
+
+        // When
+        String negative = palette.get(-1);
+        String outOfRange = palette.get(1);
+
+        // Then
+        Assert.assertNull("Negative index", negative);
+        Assert.assertNull("Index out of range", outOfRange);
+    }
+
+    @Test
+    public void shouldDrainPendingEntriesOnce() {
+        // Given
+        UndoPalette palette = new UndoPalette();
+        palette.getOrAdd("minecraft:stone");
+        palette.getOrAdd("minecraft:dirt");
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+
+        // When
+        int firstStart = palette.drainPending(first);
+        palette.getOrAdd("minecraft:stone");
+        palette.getOrAdd("minecraft:sand");
+        boolean hasPending = palette.hasPending();
+        int secondStart = palette.drainPending(second);
+
+        // Then
+        Assert.assertEquals("First start", 0, firstStart);
+        Assert.assertEquals("First entries", Arrays.asList("minecraft:stone", "minecraft:dirt"), first);
+        Assert.assertTrue("Has pending", hasPending);
+        Assert.assertEquals("Second start", 2, secondStart);
+        Assert.assertEquals("Second entries", Arrays.asList("minecraft:sand"), second);
+        Assert.assertFalse("Has pending after drain", palette.hasPending());
+    }
+
+    @Test
+    public void shouldRebuildPaletteFromDrainedEntries() {
+        // Given
+        UndoPalette palette = new UndoPalette();
+        String[] values = new String[]{"minecraft:stone", "minecraft:dirt", "minecraft:oak_log[axis=y]"};
+        for (String value : values) {
+            palette.getOrAdd(value);
+        }
+        List<String> pending = new ArrayList<>();
+        int start = palette.drainPending(pending);
+
+        // When
+        UndoPalette loaded = new UndoPalette();
+        for (String value : pending) {
+            loaded.getOrAdd(value);
+        }
+
+        // Then
+        Assert.assertEquals("Start", 0, start);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals("Palette value", palette.get(i), loaded.get(i));
+            Assert.assertEquals("Palette index", palette.getOrAdd(values[i]), loaded.getOrAdd(values[i]));
+        }
+    }
+}
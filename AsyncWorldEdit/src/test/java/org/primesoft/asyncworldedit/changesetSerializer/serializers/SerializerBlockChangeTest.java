@@ -0,0 +1,125 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer.serializers;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoPalette;
+import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
+import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class SerializerBlockChangeTest {
+    @Test
+    public void shouldReadWrittenPositions() throws IOException {
+        // Given
+        BlockVector3[] positions = new BlockVector3[]{
+            BlockVector3.at(0, 0, 0),
+            BlockVector3.at(15, 255, 15),
+            BlockVector3.at(16, 64, -16),
+            BlockVector3.at(-1, 70, -1),
+            BlockVector3.at(-17, -64, 33),
+            BlockVector3.at(29999999, 319, -29999999)
+        };
+        UnsafeDataOutput out = new UnsafeDataOutput();
+
+        // When
+        for (BlockVector3 position : positions) {
+            SerializerBlockChange.writePosition(out, position);
+        }
+        UnsafeDataInput in = new UnsafeDataInput(out.toByteArray());
+
+        // Then
+        for (BlockVector3 position : positions) {
+            Assert.assertEquals("Position", position, SerializerBlockChange.readPosition(in));
+        }
+        Assert.assertEquals("Remaining data", 0, in.available());
+    }
+
+    @Test
+    public void shouldPackPositionInChunkInOneByte() throws IOException {
+        // Given
+        UnsafeDataOutput out = new UnsafeDataOutput();
+
+        // When
+        SerializerBlockChange.writePosition(out, BlockVector3.at(-1, 10, -1));
+
+        // Then
+        //Chunk x, chunk z, packed x and z, y
+        Assert.assertEquals("Encoded size", 4, out.toByteArray().length);
+    }
+
+    @Test
+    public void shouldReadWrittenPaletteEntries() throws IOException {
+        // Given
+        UndoPalette palette = new UndoPalette();
+        String[] ids = new String[]{"minecraft:stone", "minecraft:chest[facing=north]", "minecraft:stone"};
+        boolean[] isBs = new boolean[]{true, false, false};
+        UnsafeDataOutput out = new UnsafeDataOutput();
+
+        // When
+        for (int i = 0; i < ids.length; i++) {
+            SerializerBlockChange.writePaletteEntry(out, palette, ids[i], isBs[i]);
+        }
+        UnsafeDataInput in = new UnsafeDataInput(out.toByteArray());
+
+        // Then
+        for (int i = 0; i < ids.length; i++) {
+            int entry = SerializerBlockChange.readPaletteEntry(in);
+
+            Assert.assertEquals("Block state flag", isBs[i], (entry & 1) != 0);
+            Assert.assertEquals("Block id", ids[i], palette.get(entry >>> 1));
+        }
+        Assert.assertEquals("Remaining data", 0, in.available());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class FrameCacheStreamTest {
+    private final static int FRAME_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    /**
+     * Write the data to a new file as frames of FRAME_SIZE bytes
+     *
+     * @param data
+     * @return
+     * @throws IOException
+     */
+    private File writeFrames(byte[] data) throws IOException {
+        File file = m_folder.newFile();
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            byte[] frame = new byte[FRAME_SIZE];
+            for (int pos = 0; pos < data.length; pos += FRAME_SIZE) {
+                int length = Math.min(FRAME_SIZE, data.length - pos);
+
+                System.arraycopy(data, pos, frame, 0, length);
+                FrameCacheStream.writeFrame(out, frame, length, 6);
+            }
+        }
+
+        return file;
+    }
+
+    private static byte[] randomData(int size) {
+        byte[] result = new byte[size];
+        Random rnd = new Random(1);
+
+        //Mix random and repeated bytes to get frames of a different compressed size
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte) ((i / 100) % 2 == 0 ? rnd.nextInt(256) : i / 100);
+        }
+
+        return result;
+    }
+
+    @Test
+    public void shouldReadWrittenFrames() throws IOException {
+        // Given
+        byte[] data = randomData(3 * FRAME_SIZE + 123);
+        File file = writeFrames(data);
+
+        // When
+        byte[] result = new byte[data.length];
+        long length;
+        long end;
+        try (FrameCacheStream in = new FrameCacheStream(new ChunkCacheStream(new RandomAccessFile(file, "r")), 2)) {
+            length = in.length();
+            in.readFully(result);
+            end = in.read();
+        }
+
+        // Then
+        Assert.assertEquals("Stream length", data.length, length);
+        Assert.assertArrayEquals("Stream data", data, result);
+        Assert.assertEquals("End of stream", -1, end);
+    }
+
+    @Test
+    public void shouldReadAcrossFramesAfterSeek() throws IOException {
+        // Given
+        byte[] data = randomData(4 * FRAME_SIZE);
+        File file = writeFrames(data);
+        int pos = 2 * FRAME_SIZE - 2;
+        int expected = ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16)
+                | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+
+        // When
+        int lastByte;
+        int firstByte;
+        int value;
+        try (FrameCacheStream in = new FrameCacheStream(new ChunkCacheStream(new RandomAccessFile(file, "r")), 1)) {
+            in.seek(1, SeekOrigin.End);
+            lastByte = in.readUnsignedByte();
+
+            in.seek(0, SeekOrigin.Begin);
+            firstByte = in.readUnsignedByte();
+
+            in.seek(pos, SeekOrigin.Begin);
+            value = in.readInt();
+        }
+
+        // Then
+        Assert.assertEquals("Last byte", data[data.length - 1] & 0xff, lastByte);
+        Assert.assertEquals("First byte", data[0] & 0xff, firstByte);
+        Assert.assertEquals("Int across frames", expected, value);
+    }
+
+    @Test
+    public void shouldReadEmptyFile() throws IOException {
+        // Given
+        File file = writeFrames(new byte[0]);
+
+        // When
+        long length;
+        int result;
+        try (FrameCacheStream in = new FrameCacheStream(new ChunkCacheStream(new RandomAccessFile(file, "r")))) {
+            length = in.length();
+            result = in.read();
+        }
+
+        // Then
+        Assert.assertEquals("Stream length", 0, length);
+        Assert.assertEquals("End of stream", -1, result);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2019, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ChunkSnapshotCacheTest {
+    private static BlockState mockState() {
+        return Mockito.mock(BlockState.class);
+    }
+    
+    private static ChunkSnapshotCache.SectionSnapshot snapshot(BlockState state) {
+        ChunkSnapshotCache.SectionSnapshot result = new ChunkSnapshotCache.SectionSnapshot();
+        for (int i = 0; i < ChunkSnapshotCache.SectionSnapshot.SIZE; i++) {
+            result.set(i, state, _t -> false);
+        }
+        
+        return result;
+    }
+    
+    @Test
+    public void shouldServeBlocksFromLoadedSnapshot() {
+        // Given
+        ChunkSnapshotCache cache = new ChunkSnapshotCache();
+        BlockState stone = mockState();
+        ChunkSnapshotCache.SectionSnapshot section = snapshot(stone);
+        
+        // When
+        ChunkSnapshotCache.SectionSnapshot loaded = cache.load(1, 2, 3, () -> section);
+        
+        // Then
+        Assert.assertSame("Loaded", section, loaded);
+        Assert.assertSame("Cached", section, cache.get(1, 2, 3));
+        Assert.assertNull("Other section", cache.get(1, 3, 3));
+        Assert.assertSame("Block", stone, loaded.getBlock(ChunkSnapshotCache.index(5, 6, 7)));
+        Assert.assertFalse("Tile", loaded.isTile(ChunkSnapshotCache.index(5, 6, 7)));
+    }
+    
+    @Test
+    public void shouldTreatUnsetBlocksAsNotCached() {
+        // Given
+        ChunkSnapshotCache.SectionSnapshot section = new ChunkSnapshotCache.SectionSnapshot();
+        
+        // When
+        section.set(0, mockState(), _t -> false);
+        
+        // Then
+        Assert.assertNull("Block", section.getBlock(1));
+        Assert.assertTrue("Tile", section.isTile(1));
+    }
+    
+    @Test
+    public void shouldPatchSnapshotOnUpdate() {
+        // Given
+        ChunkSnapshotCache cache = new ChunkSnapshotCache();
+        BlockState[] states = new BlockState[40];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = mockState();
+        }
+        ChunkSnapshotCache.SectionSnapshot section = cache.load(0, 0, 0, () -> snapshot(states[0]));
+        
+        // When
+        for (int i = 1; i < states.length; i++) {
+            cache.update(i & 0xf, 1 + (i >> 4), 0, states[i], i == 5);
+        }
+        
+        // Then
+        Assert.assertSame("Snapshot kept", section, cache.get(0, 0, 0));
+        for (int i = 1; i < states.length; i++) {
+            int idx = ChunkSnapshotCache.index(i & 0xf, 1 + (i >> 4), 0);
+            Assert.assertSame("Block " + i, states[i], section.getBlock(idx));
+            Assert.assertEquals("Tile " + i, i == 5, section.isTile(idx));
+        }
+        Assert.assertSame("Not changed", states[0], section.getBlock(ChunkSnapshotCache.index(0, 0, 0)));
+    }
+    
+    @Test
+    public void shouldDropSectionOnInvalidate() {
+        // Given
+        ChunkSnapshotCache cache = new ChunkSnapshotCache();
+        BlockState stone = mockState();
+        cache.load(0, 0, 0, () -> snapshot(stone));
+        cache.load(0, 1, 0, () -> snapshot(stone));
+        
+        // When
+        cache.invalidate(1, 2, 3);
+        
+        // Then
+        Assert.assertNull("Invalidated section", cache.get(0, 0, 0));
+        Assert.assertNotNull("Other section", cache.get(0, 1, 0));
+    }
+    
+    @Test
+    public void shouldDropAllSectionsOnChunkInvalidate() {
+        // Given
+        ChunkSnapshotCache cache = new ChunkSnapshotCache();
+        BlockState stone = mockState();
+        cache.load(0, 0, 0, () -> snapshot(stone));
+        cache.load(0, 1, 0, () -> snapshot(stone));
+        cache.load(1, 0, 0, () -> snapshot(stone));
+        
+        // When
+        cache.invalidateChunk(0, 0);
+        
+        // Then
+        Assert.assertNull("Section 0", cache.get(0, 0, 0));
+        Assert.assertNull("Section 1", cache.get(0, 1, 0));
+        Assert.assertNotNull("Other chunk", cache.get(1, 0, 0));
+    }
+    
+    @Test
+    public void shouldNotPublishSectionInvalidatedWhileLoading() {
+        // Given
+        ChunkSnapshotCache cache = new ChunkSnapshotCache();
+        BlockState stone = mockState();
+        
+        // When
+        ChunkSnapshotCache.SectionSnapshot loaded = cache.load(0, 0, 0, () -> {
+            cache.invalidate(0, 0, 0);
+            return snapshot(stone);
+        });
+        
+        // Then
+        Assert.assertNotNull("Loaded", loaded);
+        Assert.assertNull("Cached", cache.get(0, 0, 0));
+    }
+    
+    @Test
+    public void shouldStopCachingWhenWorldRemoved() {
+        // Given
+        ChunkSnapshotCache cache = ChunkSnapshotCache.forWorld("shouldStopCachingWhenWorldRemoved");
+        BlockState stone = mockState();
+        cache.load(0, 0, 0, () -> snapshot(stone));
+        
+        // When
+        ChunkSnapshotCache.removeWorld("shouldStopCachingWhenWorldRemoved");
+        
+        // Then
+        Assert.assertNull("Cached", cache.get(0, 0, 0));
+        Assert.assertNull("Loaded", cache.load(0, 0, 0, () -> snapshot(stone)));
+        Assert.assertNotSame("New cache", cache, ChunkSnapshotCache.forWorld("shouldStopCachingWhenWorldRemoved"));
+        
+        ChunkSnapshotCache.removeWorld("shouldStopCachingWhenWorldRemoved");
+    }
+    
+    @Test
+    public void shouldDropPrefetchedTileOnUpdate() {
+        // Given
+        BlockState stone = mockState();
+        BaseBlock chest = Mockito.mock(BaseBlock.class);
+        ChunkSnapshotCache.SectionSnapshot section = snapshot(stone);
+        int version = section.getVersion();
+        section.setTiles(Collections.singletonMap(1, chest), version);
+        
+        // When
+        section.update(1, stone, false);
+        
+        // Then
+        Assert.assertTrue("Has tiles", section.hasTiles());
+        Assert.assertNull("Tile", section.getTile(1));
+    }
+    
+    @Test
+    public void shouldIgnoreStalePrefetchedTiles() {
+        // Given
+        BlockState stone = mockState();
+        BaseBlock chest = Mockito.mock(BaseBlock.class);
+        ChunkSnapshotCache.SectionSnapshot section = snapshot(stone);
+        int version = section.getVersion();
+        
+        // When
+        section.update(2, stone, false);
+        section.setTiles(Collections.singletonMap(1, chest), version);
+        
+        // Then
+        Assert.assertFalse("Has tiles", section.hasTiles());
+        Assert.assertNull("Tile", section.getTile(1));
+    }
+    
+    @Test
+    public void shouldServePrefetchedBiomes() {
+        // Given
+        BlockState stone = mockState();
+        BiomeType plains = Mockito.mock(BiomeType.class);
+        ChunkSnapshotCache.SectionSnapshot section = snapshot(stone);
+        BiomeType[] biomes = new BiomeType[ChunkSnapshotCache.SectionSnapshot.SIZE];
+        biomes[ChunkSnapshotCache.index(3, 4, 5)] = plains;
+        
+        // When
+        section.setBiomes(biomes);
+        
+        // Then
+        Assert.assertTrue("Has biomes", section.hasBiomes());
+        Assert.assertSame("Biome", plains, section.getBiome(ChunkSnapshotCache.index(3, 4, 5)));
+        Assert.assertNull("Not read", section.getBiome(ChunkSnapshotCache.index(0, 0, 0)));
+    }
+}